@@ -46,6 +46,7 @@ dependencies {
     implementation(libs.engage.core)
     implementation(libs.swiperefreshlayout)
     implementation(libs.google.material)
+    implementation(libs.asynclayoutinflater)
     testImplementation(libs.junit)
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
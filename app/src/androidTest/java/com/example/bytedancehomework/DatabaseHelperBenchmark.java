@@ -0,0 +1,342 @@
+package com.example.bytedancehomework;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.bytedancehomework.Enum.LayoutMode;
+import com.example.bytedancehomework.Enum.MediaType;
+import com.example.bytedancehomework.data.DBHelper.DatabaseHelper;
+import com.example.bytedancehomework.data.Item.FeedItem;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * DatabaseHelper 基准测试，在设备上运行，结果输出到 logcat（TAG: DbBenchmark）。
+ */
+@RunWith(AndroidJUnit4.class)
+public class DatabaseHelperBenchmark {
+    private static final String TAG = "DbBenchmark";
+    private static final String DB_NAME = "feed_benchmark.db";
+
+    private static final int PAGE_SIZE = 5;
+    private static final int[] PAGES = {1, 10, 100, 1000, 10000};
+    private static final int REPEAT = 20;
+
+    private Context context;
+    private DatabaseHelper dbHelper;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DB_NAME);
+        dbHelper = new DatabaseHelper(context, DB_NAME);
+    }
+
+    @After
+    public void tearDown() {
+        dbHelper.close();
+        context.deleteDatabase(DB_NAME);
+    }
+
+    // ==================== 分页 ====================
+
+    @Test
+    public void pageFetch_keysetStaysFlat() {
+        seedRows((PAGES[PAGES.length - 1] + 1) * PAGE_SIZE);
+
+        double firstKeyset = 0;
+        double lastKeyset = 0;
+        for (int page : PAGES) {
+            FeedItem key = keyBeforePage(page);
+
+            double offsetMs = timeMillis(() -> dbHelper.getFeedItemsByPage(page, PAGE_SIZE));
+            double keysetMs = timeMillis(() -> dbHelper.getFeedItemsAfter(key, PAGE_SIZE));
+            Log.i(TAG, "page " + page + ": offset=" + offsetMs + "ms, keyset=" + keysetMs + "ms");
+
+            if (page == PAGES[0]) firstKeyset = keysetMs;
+            lastKeyset = keysetMs;
+        }
+
+        // 游标分页耗时应与页深无关，留足设备抖动余量
+        assertTrue("keyset page fetch grew with depth: " + firstKeyset + " -> " + lastKeyset,
+                lastKeyset < Math.max(firstKeyset * 5, 2.0));
+    }
+
+    @Test
+    public void pageFetch_keysetMatchesOffsetOrder() {
+        seedRows(PAGE_SIZE * 4);
+
+        FeedItem last = null;
+        for (int page = 0; page < 4; page++) {
+            List<FeedItem> byOffset = dbHelper.getFeedItemsByPage(page, PAGE_SIZE);
+            List<FeedItem> byKey = dbHelper.getFeedItemsAfter(last, PAGE_SIZE);
+            assertEquals(byOffset.size(), byKey.size());
+            for (int i = 0; i < byKey.size(); i++) {
+                assertEquals(byOffset.get(i).getId(), byKey.get(i).getId());
+            }
+            last = byKey.get(byKey.size() - 1);
+        }
+    }
+
+    // ==================== 高频写入 ====================
+
+    @Test
+    public void hotWrites_persistentConnectionVsOpenClose() {
+        seedRows(100);
+        long itemId = keyBeforePage(1).getId();
+        String path = context.getDatabasePath(DB_NAME).getPath();
+        int ops = 500;
+
+        // 旧实现：每次写入都打开连接、编译 SQL、关闭连接（同样以 WAL 打开，避免与常驻连接争抢日志模式）
+        int openFlags = SQLiteDatabase.OPEN_READWRITE | SQLiteDatabase.ENABLE_WRITE_AHEAD_LOGGING;
+        long start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < ops; i++) {
+            SQLiteDatabase db = SQLiteDatabase.openDatabase(path, null, openFlags);
+            ContentValues values = new ContentValues();
+            values.put(DatabaseHelper.COLUMN_LAST_PLAY_POSITION, i);
+            db.update(DatabaseHelper.TABLE_FEED_ITEMS, values,
+                    DatabaseHelper.COLUMN_ID + " = ?", new String[]{String.valueOf(itemId)});
+            db.close();
+        }
+        double beforeOps = ops / ((SystemClock.elapsedRealtimeNanos() - start) / 1e9);
+
+        // 新实现：常驻连接 + 预编译语句
+        dbHelper.updateVideoPlayPosition(itemId, 0); // 预热，编译语句
+        start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < ops; i++) {
+            dbHelper.updateVideoPlayPosition(itemId, i);
+        }
+        double afterOps = ops / ((SystemClock.elapsedRealtimeNanos() - start) / 1e9);
+
+        Log.i(TAG, "updateVideoPlayPosition: before=" + (int) beforeOps + " ops/s, after=" + (int) afterOps + " ops/s");
+        assertEquals(ops - 1, dbHelper.getFeedItemById(itemId).getLastPlayPosition());
+        assertTrue(afterOps > beforeOps);
+    }
+
+    // ==================== 批量写入 ====================
+
+    @Test
+    public void bulkInsert_singleTransactionVsPerRow() {
+        // 逐行写入：每行一个隐式事务
+        List<FeedItem> perRow = sampleItems(1000);
+        long start = SystemClock.elapsedRealtimeNanos();
+        for (FeedItem item : perRow) {
+            dbHelper.insertFeedItem(item);
+        }
+        Log.i(TAG, "insert 1000 rows one by one: " + (SystemClock.elapsedRealtimeNanos() - start) / 1e6 + "ms");
+
+        for (int rows : new int[]{1000, 10000, 100000}) {
+            List<FeedItem> items = sampleItems(rows);
+            start = SystemClock.elapsedRealtimeNanos();
+            int inserted = dbHelper.insertFeedItems(items);
+            double ms = (SystemClock.elapsedRealtimeNanos() - start) / 1e6;
+            Log.i(TAG, "insertFeedItems " + rows + " rows: " + ms + "ms (" + (int) (rows / ms * 1000) + " rows/s)");
+
+            assertEquals(rows, inserted);
+            assertTrue(items.get(rows - 1).getId() > items.get(0).getId());
+        }
+    }
+
+    @Test
+    public void bulkInsert_chunkSizes() {
+        for (int chunkSize : new int[]{50, 500, 5000}) {
+            List<FeedItem> items = sampleItems(10000);
+            long start = SystemClock.elapsedRealtimeNanos();
+            dbHelper.insertFeedItems(items, chunkSize);
+            Log.i(TAG, "insertFeedItems 10000 rows, chunk " + chunkSize + ": " +
+                    (SystemClock.elapsedRealtimeNanos() - start) / 1e6 + "ms");
+        }
+        assertEquals(30000, dbHelper.getFeedItemCount());
+    }
+
+    // ==================== 全文检索 ====================
+
+    @Test
+    public void search_indexFollowsWrites() {
+        FeedItem item = new FeedItem("周末露营 装备清单", "帐篷 睡袋 炉头", "https://example.com/a.jpg",
+                800, 600, LayoutMode.single);
+        long id = dbHelper.insertFeedItem(item);
+        item.setId(id);
+        assertArrayEquals(new long[]{id}, dbHelper.searchFeedItemIds("帐篷"));
+
+        // 只改播放进度等非文本列不影响索引；改正文后旧词不再命中、新词命中
+        dbHelper.updateVideoPlayPosition(id, 1000);
+        assertArrayEquals(new long[]{id}, dbHelper.searchFeedItemIds("帐篷"));
+        item.setContent("天幕 折叠椅");
+        assertEquals(1, dbHelper.updateFeedItem(item));
+        assertEquals(0, dbHelper.searchFeedItemIds("帐篷").length);
+        assertArrayEquals(new long[]{id}, dbHelper.searchFeedItemIds("天幕"));
+
+        dbHelper.deleteFeedItem(id);
+        assertEquals(0, dbHelper.searchFeedItemIds("天幕").length);
+    }
+
+    @Test
+    public void search_titleMatchesRankFirst() {
+        List<FeedItem> items = new ArrayList<>();
+        items.add(new FeedItem("daily notes", "kayak trip on the lake", "", 800, 600, LayoutMode.single));
+        items.add(new FeedItem("kayak basics", "paddling for beginners", "", 800, 600, LayoutMode.single));
+        items.add(new FeedItem("weekend", "nothing related", "", 800, 600, LayoutMode.single));
+        dbHelper.insertFeedItems(items);
+
+        long[] ids = dbHelper.searchFeedItemIds("kayak");
+        assertEquals(2, ids.length);
+        assertEquals(items.get(1).getId(), ids[0]);
+
+        // 末尾的词按前缀匹配
+        assertEquals(2, dbHelper.searchFeedItemIds("kay").length);
+        List<FeedItem> page = dbHelper.getFeedItemsByIds(ids, 1, 10);
+        assertEquals(1, page.size());
+        assertEquals(items.get(0).getId(), page.get(0).getId());
+    }
+
+    @Test
+    public void search_latencyAt100kRows() {
+        int rows = 100000;
+        dbHelper.insertFeedItems(searchItems(rows));
+        assertEquals(rows, dbHelper.getFeedItemCount());
+
+        for (String query : new String[]{"kayak", "mountain sunrise", "zebra"}) {
+            long[][] ids = new long[1][];
+            double ftsMs = timeMillis(() -> {
+                ids[0] = dbHelper.searchFeedItemIds(query);
+                dbHelper.getFeedItemsByIds(ids[0], 0, 20);
+            });
+            double likeMs = timeMillis(() -> likeScan(query.split(" ")[0], 20));
+            Log.i(TAG, "search '" + query + "' over " + rows + " rows: fts=" + ftsMs + "ms (" + ids[0].length +
+                    " hits), like=" + likeMs + "ms");
+            assertTrue(ids[0].length > 0);
+        }
+
+        // 命中很少的词：索引直接定位，不应接近全表扫描的耗时
+        double rareFts = timeMillis(() -> dbHelper.searchFeedItems("zebra", 0, 20));
+        double rareLike = timeMillis(() -> likeScan("zebra", 20));
+        assertTrue("fts " + rareFts + "ms vs like " + rareLike + "ms", rareFts < rareLike);
+    }
+
+    @Test
+    public void search_refinementMatchesFullQuery() {
+        int rows = 20000;
+        dbHelper.insertFeedItems(searchItems(rows));
+
+        // 边输入边搜索：在上一次的命中里复核，结果和顺序都与直接检索一致
+        long[] base = dbHelper.searchFeedItemIds("zeb");
+        assertTrue(base.length > 0);
+        assertArrayEquals(dbHelper.searchFeedItemIds("zebra"), dbHelper.searchFeedItemIds("zebra", base, null));
+        long[] kayak = dbHelper.searchFeedItemIds("kayak");
+        assertArrayEquals(dbHelper.searchFeedItemIds("kayak mountain"),
+                dbHelper.searchFeedItemIds("kayak mountain", kayak, null));
+        assertEquals(0, dbHelper.searchFeedItemIds("zebra", new long[0], null).length);
+
+        double fullMs = timeMillis(() -> dbHelper.searchFeedItemIds("zebra title"));
+        double refinedMs = timeMillis(() -> dbHelper.searchFeedItemIds("zebra title", base, null));
+        Log.i(TAG, "refine 'zeb' -> 'zebra title' over " + rows + " rows: full=" + fullMs +
+                "ms, refined=" + refinedMs + "ms (" + base.length + " candidates)");
+    }
+
+    // ==================== 工具方法 ====================
+
+    private List<FeedItem> sampleItems(int count) {
+        List<FeedItem> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            items.add(new FeedItem("title " + i, "content " + i,
+                    "https://example.com/" + i + ".jpg", 800, 600, LayoutMode.single));
+        }
+        return items;
+    }
+
+    // 词表中每个词出现频率不同；zebra 只在极少数行出现
+    private static final String[] WORDS = {"kayak", "mountain", "sunrise", "coffee", "city", "river",
+            "forest", "camera", "travel", "street"};
+
+    private List<FeedItem> searchItems(int count) {
+        List<FeedItem> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String title = "title " + WORDS[i % WORDS.length] + (i % 5000 == 0 ? " zebra" : "");
+            String content = WORDS[(i / 3) % WORDS.length] + " " + WORDS[(i / 7) % WORDS.length] + " content " + i;
+            items.add(new FeedItem(title, content, "https://example.com/" + i + ".jpg", 800, 600, LayoutMode.single));
+        }
+        return items;
+    }
+
+    private List<FeedItem> likeScan(String term, int limit) {
+        List<FeedItem> items = new ArrayList<>();
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        String pattern = "%" + term + "%";
+        try (Cursor cursor = db.query(DatabaseHelper.TABLE_FEED_ITEMS, new String[]{DatabaseHelper.COLUMN_ID},
+                DatabaseHelper.COLUMN_TITLE + " LIKE ? OR " + DatabaseHelper.COLUMN_CONTENT + " LIKE ?",
+                new String[]{pattern, pattern}, null, null, null, String.valueOf(limit))) {
+            while (cursor.moveToNext()) {
+                FeedItem item = new FeedItem();
+                item.setId(cursor.getLong(0));
+                items.add(item);
+            }
+        }
+        return items;
+    }
+
+    private void seedRows(int count) {
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        long now = System.currentTimeMillis();
+        db.beginTransaction();
+        try {
+            ContentValues values = new ContentValues();
+            for (int i = 0; i < count; i++) {
+                values.clear();
+                values.put(DatabaseHelper.COLUMN_TITLE, "title " + i);
+                values.put(DatabaseHelper.COLUMN_CONTENT, "content " + i);
+                values.put(DatabaseHelper.COLUMN_IMAGE_URL, "https://example.com/" + i + ".jpg");
+                // 每 3 条共用一个时间戳，覆盖 created_at 相同时按 _id 排序的情况
+                values.put(DatabaseHelper.COLUMN_CREATED_AT, now - i / 3);
+                values.put(DatabaseHelper.COLUMN_LAYOUT_MODE, LayoutMode.single.ordinal());
+                values.put(DatabaseHelper.COLUMN_MEDIA_TYPE, MediaType.image.ordinal());
+                db.insert(DatabaseHelper.TABLE_FEED_ITEMS, null, values);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    // 取第 page 页之前的最后一行作为游标（不计入耗时）
+    private FeedItem keyBeforePage(int page) {
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        Cursor cursor = db.rawQuery("SELECT " + DatabaseHelper.COLUMN_ID + ", " + DatabaseHelper.COLUMN_CREATED_AT +
+                " FROM " + DatabaseHelper.TABLE_FEED_ITEMS +
+                " ORDER BY " + DatabaseHelper.COLUMN_CREATED_AT + " DESC, " + DatabaseHelper.COLUMN_ID + " DESC" +
+                " LIMIT 1 OFFSET " + (page * PAGE_SIZE - 1), null);
+        try {
+            assertTrue(cursor.moveToFirst());
+            FeedItem key = new FeedItem();
+            key.setId(cursor.getLong(0));
+            key.setCreatedAt(cursor.getLong(1));
+            return key;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private double timeMillis(Runnable op) {
+        op.run(); // 预热
+        long start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < REPEAT; i++) {
+            op.run();
+        }
+        return (SystemClock.elapsedRealtimeNanos() - start) / 1e6 / REPEAT;
+    }
+}
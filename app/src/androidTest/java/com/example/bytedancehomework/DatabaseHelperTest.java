@@ -0,0 +1,153 @@
+package com.example.bytedancehomework;
+
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.bytedancehomework.Enum.LayoutMode;
+import com.example.bytedancehomework.Enum.MediaType;
+import com.example.bytedancehomework.data.DBHelper.DatabaseHelper;
+import com.example.bytedancehomework.data.Item.FeedItem;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 收藏、媒体类型列表：查询计划走对应索引且没有临时排序，游标分页结果与一次性读取一致。
+ */
+@RunWith(AndroidJUnit4.class)
+public class DatabaseHelperTest {
+    private static final String DB_NAME = "feed_helper_test.db";
+    private static final int ROWS = 2000;
+    private static final int PAGE_SIZE = 7;
+
+    private Context context;
+    private DatabaseHelper dbHelper;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DB_NAME);
+        dbHelper = new DatabaseHelper(context, DB_NAME);
+    }
+
+    @After
+    public void tearDown() {
+        dbHelper.close();
+        context.deleteDatabase(DB_NAME);
+    }
+
+    // ==================== 查询计划 ====================
+
+    @Test
+    public void favoritePlan_usesPartialIndexWithoutSort() {
+        seed();
+        assertUsesIndex(dbHelper.explainFavoritePage(null, PAGE_SIZE), DatabaseHelper.INDEX_FEED_ITEMS_FAVORITE);
+
+        FeedItem cursor = dbHelper.getFavoriteFeedItemsAfter(null, PAGE_SIZE).get(PAGE_SIZE - 1);
+        assertUsesIndex(dbHelper.explainFavoritePage(cursor, PAGE_SIZE), DatabaseHelper.INDEX_FEED_ITEMS_FAVORITE);
+        // 不分页的一次性查询也走同一个索引
+        assertUsesIndex(dbHelper.explainFavoritePage(null, 0), DatabaseHelper.INDEX_FEED_ITEMS_FAVORITE);
+    }
+
+    @Test
+    public void mediaTypePlan_searchesCompositeIndexWithoutSort() {
+        seed();
+        for (MediaType type : MediaType.values()) {
+            List<String> plan = dbHelper.explainMediaTypePage(type, null, PAGE_SIZE);
+            assertUsesIndex(plan, DatabaseHelper.INDEX_FEED_ITEMS_MEDIA_TYPE);
+            assertTrue(plan.toString(), plan.get(0).startsWith("SEARCH"));
+        }
+
+        FeedItem cursor = dbHelper.getFeedItemsByMediaTypeAfter(MediaType.video, null, PAGE_SIZE).get(PAGE_SIZE - 1);
+        List<String> plan = dbHelper.explainMediaTypePage(MediaType.video, cursor, PAGE_SIZE);
+        assertUsesIndex(plan, DatabaseHelper.INDEX_FEED_ITEMS_MEDIA_TYPE);
+        assertTrue(plan.toString(), plan.get(0).contains(DatabaseHelper.COLUMN_CREATED_AT + "<?"));
+    }
+
+    // ==================== 分页结果 ====================
+
+    @Test
+    public void favoritePages_matchFullList() {
+        seed();
+        List<FeedItem> all = dbHelper.getFavoriteFeedItems();
+        assertEquals(ROWS / 3 + 1, all.size());
+        assertPagesEqual(all, lastItem -> dbHelper.getFavoriteFeedItemsAfter(lastItem, PAGE_SIZE));
+
+        // 取消收藏后不再出现在列表中，部分索引同步更新
+        long removed = all.get(0).getId();
+        dbHelper.updateFavorite(removed, false);
+        assertNotEquals(removed, dbHelper.getFavoriteFeedItemsAfter(null, 1).get(0).getId());
+    }
+
+    @Test
+    public void mediaTypePages_matchFullList() {
+        seed();
+        for (MediaType type : MediaType.values()) {
+            List<FeedItem> all = dbHelper.getFeedItemsByMediaType(type);
+            assertFalse(all.isEmpty());
+            for (FeedItem item : all) {
+                assertEquals(type, item.getMediaType());
+            }
+            assertPagesEqual(all, lastItem -> dbHelper.getFeedItemsByMediaTypeAfter(type, lastItem, PAGE_SIZE));
+        }
+    }
+
+    // ==================== 工具方法 ====================
+
+    private interface PageLoader {
+        List<FeedItem> load(FeedItem lastItem);
+    }
+
+    // 逐页读取到末尾，拼起来应与一次性读取的顺序完全相同
+    private static void assertPagesEqual(List<FeedItem> expected, PageLoader loader) {
+        List<Long> paged = new ArrayList<>();
+        FeedItem lastItem = null;
+        while (true) {
+            List<FeedItem> page = loader.load(lastItem);
+            for (FeedItem item : page) paged.add(item.getId());
+            if (page.size() < PAGE_SIZE) break;
+            lastItem = page.get(page.size() - 1);
+        }
+
+        List<Long> ids = new ArrayList<>();
+        for (FeedItem item : expected) ids.add(item.getId());
+        assertEquals(ids, paged);
+    }
+
+    private static void assertUsesIndex(List<String> plan, String index) {
+        boolean usesIndex = false;
+        for (String detail : plan) {
+            assertFalse("unexpected sort: " + plan, detail.contains("TEMP B-TREE"));
+            if (detail.contains("INDEX " + index)) usesIndex = true;
+        }
+        assertTrue("expected " + index + " in " + plan, usesIndex);
+    }
+
+    // 每 3 行一条收藏、每 4 行一条视频；created_at 有重复，检验游标分页处理并列的时间
+    private void seed() {
+        List<FeedItem> items = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            FeedItem item;
+            if (i % 4 == 0) {
+                item = new FeedItem("video " + i, "content " + i, "https://example.com/" + i + ".mp4",
+                        "https://example.com/" + i + ".jpg", 1280, 720, 60000, LayoutMode.single);
+            } else {
+                item = new FeedItem("title " + i, "content " + i, "https://example.com/" + i + ".jpg",
+                        800, 600, LayoutMode.single);
+            }
+            item.setCreatedAt(1_700_000_000_000L + i / 5);
+            item.setIsFavorite(i % 3 == 0 ? 1 : 0);
+            items.add(item);
+        }
+        dbHelper.insertFeedItems(items);
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.bytedancehomework;
+
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.bytedancehomework.data.DBHelper.DatabaseHelper;
+import com.example.bytedancehomework.data.Item.ExposureEvent;
+import com.example.bytedancehomework.manager.ExposureEventPipeline;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * 曝光事件管道：批量落库后交给本地替身上传器，上传成功后从数据库删除。
+ */
+@RunWith(AndroidJUnit4.class)
+public class ExposureEventPipelineTest {
+    private static final String DB_NAME = "exposure_pipeline_test.db";
+    private static final int EVENT_COUNT = 100;
+
+    private Context context;
+    private DatabaseHelper dbHelper;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DB_NAME);
+        dbHelper = new DatabaseHelper(context, DB_NAME);
+    }
+
+    @After
+    public void tearDown() {
+        dbHelper.close();
+        context.deleteDatabase(DB_NAME);
+    }
+
+    @Test
+    public void eventsReachUploaderInOrder() throws InterruptedException {
+        List<ExposureEvent> received = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(1);
+
+        ExposureEventPipeline pipeline = new ExposureEventPipeline(dbHelper);
+        pipeline.setUploader(events -> {
+            received.addAll(events);
+            if (received.size() >= EVENT_COUNT) done.countDown();
+            return true;
+        });
+
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            for (int i = 0; i < EVENT_COUNT; i++) {
+                pipeline.offer(new ExposureEvent(i, 50, 1000L + i, 200));
+            }
+            pipeline.flush();
+        });
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(EVENT_COUNT, received.size());
+        for (int i = 0; i < EVENT_COUNT; i++) {
+            assertEquals(i, received.get(i).getItemId());
+        }
+        assertEquals(0, dbHelper.getExposureEventCount());
+    }
+
+    @Test
+    public void rejectedUploadKeepsEventsOnDisk() throws InterruptedException {
+        CountDownLatch attempted = new CountDownLatch(1);
+
+        ExposureEventPipeline pipeline = new ExposureEventPipeline(dbHelper);
+        pipeline.setUploader(events -> {
+            attempted.countDown();
+            return false;
+        });
+
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            for (int i = 0; i < 10; i++) {
+                pipeline.offer(new ExposureEvent(i, 0, 1000L + i, 50));
+            }
+            pipeline.flush();
+        });
+
+        assertTrue(attempted.await(10, TimeUnit.SECONDS));
+        assertEquals(10, dbHelper.getExposureEventCount());
+    }
+}
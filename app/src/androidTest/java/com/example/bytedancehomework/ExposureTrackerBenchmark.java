@@ -0,0 +1,132 @@
+package com.example.bytedancehomework;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.GridLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.bytedancehomework.Enum.LayoutMode;
+import com.example.bytedancehomework.data.Item.FeedItem;
+import com.example.bytedancehomework.manager.ExposureTracker;
+import com.example.bytedancehomework.ui.Adapter.BaseViewHolder;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * ExposureTracker 单次滚动检查的耗时，50 个条目同时可见，结果输出到 logcat（TAG: ExposureBenchmark）。
+ */
+@RunWith(AndroidJUnit4.class)
+public class ExposureTrackerBenchmark {
+    private static final String TAG = "ExposureBenchmark";
+    private static final int ITEM_COUNT = 50;
+    private static final int SPAN_COUNT = 5;
+    private static final int ITEM_HEIGHT = 40;
+    private static final int ITERATIONS = 2000;
+
+    @Test
+    public void checkVisibleItems_fiftyVisible() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+            RecyclerView recyclerView = new RecyclerView(context);
+            recyclerView.setLayoutManager(new GridLayoutManager(context, SPAN_COUNT));
+            TestAdapter adapter = new TestAdapter(sampleItems());
+            recyclerView.setAdapter(adapter);
+
+            // 离屏布局：10 行 × 5 列全部落在可视区域内，最后一行只露出一半
+            int height = (ITEM_COUNT / SPAN_COUNT) * ITEM_HEIGHT - ITEM_HEIGHT / 2;
+            recyclerView.measure(View.MeasureSpec.makeMeasureSpec(500, View.MeasureSpec.EXACTLY),
+                    View.MeasureSpec.makeMeasureSpec(height, View.MeasureSpec.EXACTLY));
+            recyclerView.layout(0, 0, 500, height);
+            assertEquals(ITEM_COUNT, recyclerView.getChildCount());
+
+            ExposureTracker tracker = new ExposureTracker();
+            tracker.startTrack(recyclerView, adapter);
+
+            // 预热
+            for (int i = 0; i < 200; i++) {
+                tracker.checkAllVisibleItems();
+            }
+
+            long start = SystemClock.elapsedRealtimeNanos();
+            for (int i = 0; i < ITERATIONS; i++) {
+                tracker.checkAllVisibleItems();
+            }
+            double microsPerEvent = (SystemClock.elapsedRealtimeNanos() - start) / 1e3 / ITERATIONS;
+            Log.i(TAG, "checkAllVisibleItems with " + ITEM_COUNT + " visible items: " + microsPerEvent + "us/event");
+
+            tracker.stopTrack();
+            // 单次检查应远小于一帧（16ms），留足设备差异余量
+            assertTrue("per-event cost too high: " + microsPerEvent + "us", microsPerEvent < 2000);
+        });
+    }
+
+    private List<FeedItem> sampleItems() {
+        List<FeedItem> items = new ArrayList<>(ITEM_COUNT);
+        for (int i = 0; i < ITEM_COUNT; i++) {
+            FeedItem item = new FeedItem("title " + i, "content " + i,
+                    "https://example.com/" + i + ".jpg", 800, 600, LayoutMode.grid);
+            item.setId(i + 1);
+            items.add(item);
+        }
+        return items;
+    }
+
+    // ==================== 测试用适配器 ====================
+
+    private static class TestAdapter extends RecyclerView.Adapter<TestViewHolder> {
+        private final List<FeedItem> items;
+
+        TestAdapter(List<FeedItem> items) {
+            this.items = items;
+        }
+
+        @NonNull
+        @Override
+        public TestViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+            View view = new View(parent.getContext());
+            view.setLayoutParams(new RecyclerView.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ITEM_HEIGHT));
+            return new TestViewHolder(view);
+        }
+
+        @Override
+        public void onBindViewHolder(@NonNull TestViewHolder holder, int position) {
+            holder.bind(items.get(position));
+        }
+
+        @Override
+        public int getItemCount() {
+            return items.size();
+        }
+    }
+
+    private static class TestViewHolder extends BaseViewHolder {
+        private FeedItem currentItem;
+
+        TestViewHolder(@NonNull View itemView) {
+            super(itemView);
+        }
+
+        @Override
+        public void bind(FeedItem item) {
+            currentItem = item;
+        }
+
+        @Override
+        public FeedItem getCurrentItem() {
+            return currentItem;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.bytedancehomework;
+
+import android.content.Context;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.bytedancehomework.data.DBHelper.DatabaseHelper;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * 从版本 1 逐步升级：数据不丢失，全文索引在后台分批回填，回填期间的增删改、进程重启都不会让索引缺失或重复。
+ */
+@RunWith(AndroidJUnit4.class)
+public class SchemaMigrationTest {
+    private static final String DB_NAME = "feed_migration_test.db";
+    // 超过一批的行数，回填至少分成几批
+    private static final int ROWS = 2000;
+
+    private Context context;
+    private DatabaseHelper dbHelper;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DB_NAME);
+        createVersion1Database();
+    }
+
+    @After
+    public void tearDown() {
+        if (dbHelper != null) dbHelper.close();
+        context.deleteDatabase(DB_NAME);
+    }
+
+    @Test
+    public void upgradeFromVersion1_keepsRowsAndBackfillsInChunks() {
+        dbHelper = new DatabaseHelper(context, DB_NAME);
+        assertEquals(ROWS, dbHelper.getFeedItemCount());
+        assertTrue(dbHelper.hasPendingBackfills());
+        // 升级本身不建全文索引，已有的行要等回填
+        assertEquals(0, dbHelper.searchFeedItemIds("kayak").length);
+
+        // 跑到全文回填进行到一半
+        while (progressOf(DatabaseHelper.TABLE_FEED_ITEMS_FTS) == 0) {
+            assertTrue(dbHelper.runBackfillChunk());
+        }
+        long progress = progressOf(DatabaseHelper.TABLE_FEED_ITEMS_FTS);
+        assertTrue(progress > 0 && progress < ROWS);
+
+        // 回填期间：改已回填的行、改和删尚未回填的行、插入新行
+        rename(1, "zebra first");
+        rename(ROWS, "zebra last");
+        dbHelper.deleteFeedItem(ROWS - 1);
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        db.execSQL("INSERT INTO " + DatabaseHelper.TABLE_FEED_ITEMS + " (title, content, created_at, layout_mode) " +
+                "VALUES ('zebra new', 'content', 1, 0)");
+        long newId = DatabaseUtils.longForQuery(db, "SELECT MAX(_id) FROM " + DatabaseHelper.TABLE_FEED_ITEMS, null);
+
+        // 模拟进程重启：从进度表继续
+        dbHelper.close();
+        dbHelper = new DatabaseHelper(context, DB_NAME);
+        runAllBackfills();
+
+        long[] zebra = dbHelper.searchFeedItemIds("zebra");
+        Arrays.sort(zebra);
+        assertArrayEquals(new long[]{1, ROWS, newId}, zebra);
+        // 每 4 行一条 kayak，减去被改名的第 1 行（ROWS 行和 ROWS - 1 行不是 kayak）
+        assertEquals(ROWS / 4 - 1, dbHelper.searchFeedItemIds("kayak").length);
+        assertEquals(ROWS, dbHelper.getFeedItemCount());
+
+        for (String index : new String[]{DatabaseHelper.INDEX_FEED_ITEMS_CREATED_AT, DatabaseHelper.INDEX_FEED_ITEMS_SERVER_KEY,
+                DatabaseHelper.INDEX_FEED_ITEMS_FAVORITE, DatabaseHelper.INDEX_FEED_ITEMS_MEDIA_TYPE}) {
+            assertEquals(index, 1, DatabaseUtils.longForQuery(dbHelper.getReadableDatabase(),
+                    "SELECT COUNT(*) FROM sqlite_master WHERE type = 'index' AND name = ?", new String[]{index}));
+        }
+    }
+
+    @Test
+    public void downgradeThenUpgrade_keepsDataAndDoesNotReindex() {
+        dbHelper = new DatabaseHelper(context, DB_NAME);
+        runAllBackfills();
+        int kayakHits = dbHelper.searchFeedItemIds("kayak").length;
+        dbHelper.close();
+
+        // 旧版本打开过数据库后再升级：各步骤重复执行也不失败，已有的全文索引不再回填
+        SQLiteDatabase db = SQLiteDatabase.openDatabase(context.getDatabasePath(DB_NAME).getPath(), null,
+                SQLiteDatabase.OPEN_READWRITE);
+        db.setVersion(1);
+        db.close();
+
+        dbHelper = new DatabaseHelper(context, DB_NAME);
+        assertEquals(ROWS, dbHelper.getFeedItemCount());
+        assertFalse(dbHelper.hasPendingBackfills());
+        assertEquals(kayakHits, dbHelper.searchFeedItemIds("kayak").length);
+    }
+
+    // ==================== 工具方法 ====================
+
+    private void runAllBackfills() {
+        int chunks = 0;
+        while (dbHelper.runBackfillChunk()) {
+            assertTrue("backfill does not terminate", ++chunks < ROWS);
+        }
+        assertFalse(dbHelper.hasPendingBackfills());
+    }
+
+    private long progressOf(String backfill) {
+        return DatabaseUtils.longForQuery(dbHelper.getReadableDatabase(),
+                "SELECT " + DatabaseHelper.COLUMN_BACKFILL_PROGRESS + " FROM " + DatabaseHelper.TABLE_SCHEMA_BACKFILLS +
+                        " WHERE " + DatabaseHelper.COLUMN_BACKFILL_NAME + " = ?", new String[]{backfill});
+    }
+
+    private void rename(long id, String title) {
+        dbHelper.getWritableDatabase().execSQL("UPDATE " + DatabaseHelper.TABLE_FEED_ITEMS +
+                " SET title = ? WHERE _id = ?", new Object[]{title, id});
+    }
+
+    // 版本 1 的表结构：没有视频列、server_key 和任何索引
+    private void createVersion1Database() {
+        SQLiteDatabase db = context.openOrCreateDatabase(DB_NAME, Context.MODE_PRIVATE, null);
+        db.execSQL("CREATE TABLE feed_items (" +
+                "_id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                "title TEXT NOT NULL, " +
+                "content TEXT, " +
+                "image_url TEXT, " +
+                "image_width INTEGER DEFAULT 0, " +
+                "image_height INTEGER DEFAULT 0, " +
+                "created_at INTEGER NOT NULL, " +
+                "is_favorite INTEGER DEFAULT 0, " +
+                "layout_mode INTEGER NOT NULL);");
+        db.beginTransaction();
+        try {
+            for (int i = 1; i <= ROWS; i++) {
+                String title = (i % 4 == 1 ? "kayak " : "title ") + i;
+                db.execSQL("INSERT INTO feed_items (title, content, image_url, created_at, is_favorite, layout_mode) " +
+                                "VALUES (?, ?, ?, ?, ?, 0)",
+                        new Object[]{title, "content " + i, "https://example.com/" + i + ".jpg", 1_700_000_000_000L + i, i % 3 == 0 ? 1 : 0});
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        db.setVersion(1);
+        db.close();
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.bytedancehomework;
+
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.bytedancehomework.Enum.LayoutMode;
+import com.example.bytedancehomework.data.DBHelper.DatabaseHelper;
+import com.example.bytedancehomework.data.Item.FeedItem;
+import com.example.bytedancehomework.manager.SearchController;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * 边输入边搜索：逐字输入时每一步都能看到命中，前缀细化得到的最终结果与直接检索一致。
+ */
+@RunWith(AndroidJUnit4.class)
+public class SearchControllerTest {
+    private static final String DB_NAME = "search_controller_test.db";
+
+    private Context context;
+    private DatabaseHelper dbHelper;
+    private SearchController controller;
+    private final BlockingQueue<Result> results = new LinkedBlockingQueue<>();
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DB_NAME);
+        dbHelper = new DatabaseHelper(context, DB_NAME);
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() ->
+                controller = new SearchController(dbHelper, new SearchController.Listener() {
+                    @Override
+                    public void onSearchResults(String query, long[] rankedIds) {
+                        results.add(new Result(query, rankedIds));
+                    }
+
+                    @Override
+                    public void onSearchCleared() {
+                    }
+                }));
+    }
+
+    @After
+    public void tearDown() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(controller::release);
+        dbHelper.close();
+        context.deleteDatabase(DB_NAME);
+    }
+
+    @Test
+    public void typingOneCharacterAtATime_showsHitsAtEveryStep() throws InterruptedException {
+        List<FeedItem> items = new ArrayList<>();
+        items.add(new FeedItem("daily notes", "kayak trip on the lake", "", 800, 600, LayoutMode.single));
+        items.add(new FeedItem("kayak basics", "paddling for beginners", "", 800, 600, LayoutMode.single));
+        items.add(new FeedItem("weekend", "nothing related", "", 800, 600, LayoutMode.single));
+        dbHelper.insertFeedItems(items);
+
+        // 每个字符都等到结果再输入下一个，后一步总以前一步的缓存为细化基础
+        long[] hits = null;
+        for (String prefix : prefixesOf("kayak")) {
+            hits = type(prefix);
+            assertEquals(prefix, 2, hits.length);
+        }
+        assertEquals(items.get(1).getId(), hits[0]);
+        assertSameIds(dbHelper.searchFeedItemIds("kayak"), hits);
+    }
+
+    @Test
+    public void emptyCachedPrefix_doesNotHideLaterHits() throws InterruptedException {
+        // 输入到一半时还没有匹配的行，之后写入的行在继续输入时应能查到
+        assertEquals(0, type("z").length);
+        assertEquals(0, type("ze").length);
+
+        FeedItem item = new FeedItem("zebra crossing", "content", "", 800, 600, LayoutMode.single);
+        long id = dbHelper.insertFeedItem(item);
+
+        for (String prefix : new String[]{"zeb", "zebr", "zebra"}) {
+            assertArrayEquals(prefix, new long[]{id}, type(prefix));
+        }
+    }
+
+    // ==================== 工具方法 ====================
+
+    // 在主线程输入一次，等待这一次输入的结果
+    private long[] type(String text) throws InterruptedException {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> controller.onQueryChanged(text));
+        while (true) {
+            Result result = results.poll(5, TimeUnit.SECONDS);
+            assertNotNull("no result for '" + text + "'", result);
+            if (result.query.equals(text)) return result.ids;
+        }
+    }
+
+    private static List<String> prefixesOf(String word) {
+        List<String> prefixes = new ArrayList<>();
+        for (int i = 1; i <= word.length(); i++) {
+            prefixes.add(word.substring(0, i));
+        }
+        return prefixes;
+    }
+
+    private static void assertSameIds(long[] expected, long[] actual) {
+        long[] sortedExpected = expected.clone();
+        long[] sortedActual = actual.clone();
+        Arrays.sort(sortedExpected);
+        Arrays.sort(sortedActual);
+        assertArrayEquals(sortedExpected, sortedActual);
+    }
+
+    private static final class Result {
+        final String query;
+        final long[] ids;
+
+        Result(String query, long[] ids) {
+            this.query = query;
+            this.ids = ids;
+        }
+    }
+}
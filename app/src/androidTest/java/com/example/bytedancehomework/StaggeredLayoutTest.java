@@ -0,0 +1,184 @@
+package com.example.bytedancehomework;
+
+import android.content.Context;
+import android.graphics.drawable.ShapeDrawable;
+import android.view.ContextThemeWrapper;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.recyclerview.widget.StaggeredGridLayoutManager;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.bytedancehomework.Enum.LayoutMode;
+import com.example.bytedancehomework.Enum.MediaType;
+import com.example.bytedancehomework.data.Item.FeedItem;
+import com.example.bytedancehomework.manager.VideoPlayManager;
+import com.example.bytedancehomework.ui.Adapter.BaseViewHolder;
+import com.example.bytedancehomework.ui.Adapter.ImageViewHolder;
+import com.example.bytedancehomework.ui.Adapter.VideoViewHolder;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 瀑布流布局：条目高度在绑定时按保存的宽高预留，图片（缩略图、原图）到达后不触发任何重新布局，条目不换列。
+ */
+@RunWith(AndroidJUnit4.class)
+public class StaggeredLayoutTest {
+    private static final int ITEM_COUNT = 60;
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 1920;
+    private static final int SCROLL_STEPS = 4;
+
+    @Test
+    public void imageArrival_causesNoRelayout() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            Context context = new ContextThemeWrapper(
+                    InstrumentationRegistry.getInstrumentation().getTargetContext(), R.style.Theme_ByteDanceHomework);
+            CountingRecyclerView recyclerView = new CountingRecyclerView(context);
+            recyclerView.setLayoutManager(new StaggeredGridLayoutManager(2, StaggeredGridLayoutManager.VERTICAL));
+            recyclerView.setAdapter(new TestAdapter(sampleItems()));
+            layout(recyclerView);
+            assertTrue(recyclerView.getChildCount() > 0);
+
+            for (int step = 0; step < SCROLL_STEPS; step++) {
+                int[] before = snapshot(recyclerView);
+
+                // 模拟 Glide 先后送达缩略图和原图，尺寸与预留比例都不相同
+                recyclerView.layoutRequests = 0;
+                for (int i = 0; i < recyclerView.getChildCount(); i++) {
+                    View child = recyclerView.getChildAt(i);
+                    deliverImage(child, R.id.imageView);
+                    deliverImage(child, R.id.videoCoverView);
+                }
+
+                assertEquals("post-bind relayouts at step " + step, 0, recyclerView.layoutRequests);
+                assertFalse(recyclerView.isLayoutRequested());
+
+                // 即使再布局一次，条目的位置和列也不变
+                layout(recyclerView);
+                assertArrayEquals(before, snapshot(recyclerView));
+
+                recyclerView.scrollBy(0, HEIGHT / 2);
+            }
+        });
+    }
+
+    // ==================== 工具方法 ====================
+
+    private static void layout(RecyclerView recyclerView) {
+        recyclerView.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        recyclerView.layout(0, 0, WIDTH, HEIGHT);
+    }
+
+    // 每个子视图的适配器位置、左、上、高
+    private static int[] snapshot(RecyclerView recyclerView) {
+        int count = recyclerView.getChildCount();
+        int[] state = new int[count * 4];
+        for (int i = 0; i < count; i++) {
+            View child = recyclerView.getChildAt(i);
+            state[i * 4] = recyclerView.getChildAdapterPosition(child);
+            state[i * 4 + 1] = child.getLeft();
+            state[i * 4 + 2] = child.getTop();
+            state[i * 4 + 3] = child.getHeight();
+        }
+        return state;
+    }
+
+    private static void deliverImage(View child, int id) {
+        ImageView imageView = child.findViewById(id);
+        if (imageView == null) return;
+        imageView.setImageDrawable(sizedDrawable(40, 30));
+        imageView.setImageDrawable(sizedDrawable(640, 1280));
+    }
+
+    private static ShapeDrawable sizedDrawable(int width, int height) {
+        ShapeDrawable drawable = new ShapeDrawable();
+        drawable.setIntrinsicWidth(width);
+        drawable.setIntrinsicHeight(height);
+        return drawable;
+    }
+
+    private List<FeedItem> sampleItems() {
+        List<FeedItem> items = new ArrayList<>(ITEM_COUNT);
+        for (int i = 0; i < ITEM_COUNT; i++) {
+            FeedItem item;
+            if (i % 4 == 3) {
+                item = new FeedItem("video " + i, "content " + i, "", "",
+                        1280, 720 + (i % 3) * 200, 60000, LayoutMode.staggered);
+            } else {
+                // 空地址：只显示占位图，图片到达由测试手动模拟
+                item = new FeedItem("title " + i, "content " + i, "",
+                        800, 400 + (i % 5) * 300, LayoutMode.staggered);
+            }
+            item.setId(i + 1);
+            items.add(item);
+        }
+        return items;
+    }
+
+    // ==================== 测试用视图与适配器 ====================
+
+    // 统计子视图向上传递的重新布局请求
+    private static class CountingRecyclerView extends RecyclerView {
+        int layoutRequests = 0;
+
+        CountingRecyclerView(Context context) {
+            super(context);
+        }
+
+        @Override
+        public void requestLayout() {
+            layoutRequests++;
+            super.requestLayout();
+        }
+    }
+
+    private static class TestAdapter extends RecyclerView.Adapter<BaseViewHolder> {
+        private static final int TYPE_IMAGE = 0;
+        private static final int TYPE_VIDEO = 1;
+
+        private final List<FeedItem> items;
+
+        TestAdapter(List<FeedItem> items) {
+            this.items = items;
+        }
+
+        @Override
+        public int getItemViewType(int position) {
+            return items.get(position).getMediaType() == MediaType.image ? TYPE_IMAGE : TYPE_VIDEO;
+        }
+
+        @NonNull
+        @Override
+        public BaseViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+            LayoutInflater inflater = LayoutInflater.from(parent.getContext());
+            if (viewType == TYPE_VIDEO) {
+                View view = inflater.inflate(R.layout.layout_video_feed_item_staggered, parent, false);
+                return new VideoViewHolder(view, VideoPlayManager.getInstance());
+            }
+            return new ImageViewHolder(inflater.inflate(R.layout.layout_feed_item_staggered, parent, false));
+        }
+
+        @Override
+        public void onBindViewHolder(@NonNull BaseViewHolder holder, int position) {
+            holder.bind(items.get(position));
+        }
+
+        @Override
+        public int getItemCount() {
+            return items.size();
+        }
+    }
+}
@@ -4,21 +4,36 @@ package com.example.bytedancehomework.data.DBHelper;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteQueryBuilder;
+import android.database.sqlite.SQLiteStatement;
+import android.os.CancellationSignal;
 import android.util.Log;
 
+import androidx.annotation.VisibleForTesting;
+
 import com.example.bytedancehomework.Enum.LayoutMode;
 import com.example.bytedancehomework.Enum.MediaType;
+import com.example.bytedancehomework.data.Item.ExposureEvent;
 import com.example.bytedancehomework.data.Item.FeedItem;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 public class DatabaseHelper extends SQLiteOpenHelper {
     // 数据库信息
     private static final String DATABASE_NAME = "feed_app.db";
-    private static final int DATABASE_VERSION = 2; // 版本升级，因为表结构变更
+    private static final int DATABASE_VERSION = 8; // 版本8：新增后台迁移进度表，升级改为登记表驱动
 
     // 表名和列名
     public static final String TABLE_FEED_ITEMS = "feed_items";
@@ -41,6 +56,26 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     public static final String COLUMN_VIDEO_HEIGHT = "video_height";
     public static final String COLUMN_MEDIA_TYPE = "media_type";
 
+    // 服务端稳定标识，增量同步按它匹配本地行；本地生成的数据为 NULL
+    public static final String COLUMN_SERVER_KEY = "server_key";
+
+    // 曝光事件表
+    public static final String TABLE_EXPOSURE_EVENTS = "exposure_events";
+    public static final String COLUMN_EVENT_ITEM_ID = "item_id";
+    public static final String COLUMN_EVENT_THRESHOLD = "threshold";
+    public static final String COLUMN_EVENT_START_TIME = "start_time";
+    public static final String COLUMN_EVENT_DWELL_MS = "dwell_ms";
+
+    // 后台迁移进度表：每个需要分批执行的迁移一行，处理范围为 (progress, high_water]
+    public static final String TABLE_SCHEMA_BACKFILLS = "schema_backfills";
+    public static final String COLUMN_BACKFILL_NAME = "name";
+    public static final String COLUMN_BACKFILL_PROGRESS = "progress";
+    public static final String COLUMN_BACKFILL_HIGH_WATER = "high_water";
+    public static final String COLUMN_BACKFILL_COMPLETED_AT = "completed_at";
+
+    // 每批回填的行数，单个事务持锁时间短，前台写入可以插在两批之间
+    private static final int BACKFILL_CHUNK_SIZE = 500;
+
     // 创建表的SQL语句 - 更新版本
     private static final String CREATE_TABLE_FEED_ITEMS =
             "CREATE TABLE " + TABLE_FEED_ITEMS + " (" +
@@ -59,33 +94,184 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                     COLUMN_LAST_PLAY_POSITION + " INTEGER DEFAULT 0, " +
                     COLUMN_VIDEO_WIDTH + " INTEGER DEFAULT 0, " +
                     COLUMN_VIDEO_HEIGHT + " INTEGER DEFAULT 0, " +
-                    COLUMN_MEDIA_TYPE + " INTEGER DEFAULT 0" + // 0=IMAGE, 1=VIDEO
+                    COLUMN_MEDIA_TYPE + " INTEGER DEFAULT 0, " + // 0=IMAGE, 1=VIDEO
+                    COLUMN_SERVER_KEY + " TEXT" +
+                    ");";
+
+    static final String CREATE_TABLE_EXPOSURE_EVENTS =
+            "CREATE TABLE IF NOT EXISTS " + TABLE_EXPOSURE_EVENTS + " (" +
+                    COLUMN_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                    COLUMN_EVENT_ITEM_ID + " INTEGER NOT NULL, " +
+                    COLUMN_EVENT_THRESHOLD + " INTEGER NOT NULL, " +
+                    COLUMN_EVENT_START_TIME + " INTEGER NOT NULL, " +
+                    COLUMN_EVENT_DWELL_MS + " INTEGER NOT NULL" +
                     ");";
 
+    static final String CREATE_TABLE_SCHEMA_BACKFILLS =
+            "CREATE TABLE IF NOT EXISTS " + TABLE_SCHEMA_BACKFILLS + " (" +
+                    COLUMN_BACKFILL_NAME + " TEXT PRIMARY KEY, " +
+                    COLUMN_BACKFILL_PROGRESS + " INTEGER NOT NULL DEFAULT 0, " +
+                    COLUMN_BACKFILL_HIGH_WATER + " INTEGER NOT NULL, " +
+                    COLUMN_BACKFILL_COMPLETED_AT + " INTEGER" +
+                    ");";
+
+    // 全文索引：外部内容 FTS4 表，只存倒排索引，文本仍在 feed_items 中；docid 即 feed_items._id
+    // 由触发器随 feed_items 的增删改同步，只有标题、正文变化才重建该行的索引
+    public static final String TABLE_FEED_ITEMS_FTS = "feed_items_fts";
+    // 依次尝试的分词器：icu 能切分中文词语，不可用时退回 simple
+    private static final String[] FTS_TOKENIZERS = {"icu", "simple"};
+    private static final String CREATE_TABLE_FEED_ITEMS_FTS =
+            "CREATE VIRTUAL TABLE IF NOT EXISTS " + TABLE_FEED_ITEMS_FTS + " USING fts4(" +
+                    "content=\"" + TABLE_FEED_ITEMS + "\", " +
+                    COLUMN_TITLE + ", " + COLUMN_CONTENT + ", " +
+                    "prefix=\"2,3\", tokenize=%s);";
+    // 升级前已有的行由后台分批回填索引：回填尚未到达的行不在索引中，删改时不能去删除不存在的索引项
+    // 回填到达时会按当时的文本建立索引，所以这些行的删改直接跳过；新插入的行 _id 总在回填范围之外
+    private static final String FTS_ROW_INDEXED =
+            "NOT EXISTS (SELECT 1 FROM " + TABLE_SCHEMA_BACKFILLS + " WHERE " +
+                    COLUMN_BACKFILL_NAME + " = '" + TABLE_FEED_ITEMS_FTS + "' AND " +
+                    COLUMN_BACKFILL_COMPLETED_AT + " IS NULL AND " +
+                    "%1$s > " + COLUMN_BACKFILL_PROGRESS + " AND %1$s <= " + COLUMN_BACKFILL_HIGH_WATER + ")";
+    // 外部内容表删除索引时要读取旧文本，所以删除必须在源行变化之前（BEFORE），写入在之后（AFTER）
+    private static final String[] CREATE_FTS_TRIGGERS = {
+            "CREATE TRIGGER IF NOT EXISTS " + TABLE_FEED_ITEMS_FTS + "_ai AFTER INSERT ON " + TABLE_FEED_ITEMS + " BEGIN " +
+                    "INSERT INTO " + TABLE_FEED_ITEMS_FTS + "(docid, " + COLUMN_TITLE + ", " + COLUMN_CONTENT + ") " +
+                    "VALUES (new." + COLUMN_ID + ", new." + COLUMN_TITLE + ", new." + COLUMN_CONTENT + "); END;",
+            "CREATE TRIGGER IF NOT EXISTS " + TABLE_FEED_ITEMS_FTS + "_bd BEFORE DELETE ON " + TABLE_FEED_ITEMS +
+                    " WHEN " + String.format(FTS_ROW_INDEXED, "old." + COLUMN_ID) + " BEGIN " +
+                    "DELETE FROM " + TABLE_FEED_ITEMS_FTS + " WHERE docid = old." + COLUMN_ID + "; END;",
+            // 播放进度、收藏等高频更新不涉及这两列，不会触发索引维护
+            "CREATE TRIGGER IF NOT EXISTS " + TABLE_FEED_ITEMS_FTS + "_bu BEFORE UPDATE OF " +
+                    COLUMN_TITLE + ", " + COLUMN_CONTENT + " ON " + TABLE_FEED_ITEMS +
+                    " WHEN " + String.format(FTS_ROW_INDEXED, "old." + COLUMN_ID) + " BEGIN " +
+                    "DELETE FROM " + TABLE_FEED_ITEMS_FTS + " WHERE docid = old." + COLUMN_ID + "; END;",
+            "CREATE TRIGGER IF NOT EXISTS " + TABLE_FEED_ITEMS_FTS + "_au AFTER UPDATE OF " +
+                    COLUMN_TITLE + ", " + COLUMN_CONTENT + " ON " + TABLE_FEED_ITEMS +
+                    " WHEN " + String.format(FTS_ROW_INDEXED, "new." + COLUMN_ID) + " BEGIN " +
+                    "INSERT INTO " + TABLE_FEED_ITEMS_FTS + "(docid, " + COLUMN_TITLE + ", " + COLUMN_CONTENT + ") " +
+                    "VALUES (new." + COLUMN_ID + ", new." + COLUMN_TITLE + ", new." + COLUMN_CONTENT + "); END;"
+    };
+    private static final String SQL_SEARCH_FTS =
+            "SELECT docid, matchinfo(" + TABLE_FEED_ITEMS_FTS + ", '" + FeedSearchRanker.MATCHINFO_FORMAT + "')" +
+                    " FROM " + TABLE_FEED_ITEMS_FTS + " WHERE " + TABLE_FEED_ITEMS_FTS + " MATCH ?";
+
+    // 分页索引：与 ORDER BY created_at DESC, _id DESC 完全对应，游标分页可直接沿索引定位
+    public static final String INDEX_FEED_ITEMS_CREATED_AT = "idx_feed_items_created_at_id";
+    static final String CREATE_INDEX_FEED_ITEMS_CREATED_AT =
+            "CREATE INDEX IF NOT EXISTS " + INDEX_FEED_ITEMS_CREATED_AT + " ON " + TABLE_FEED_ITEMS +
+                    " (" + COLUMN_CREATED_AT + " DESC, " + COLUMN_ID + " DESC);";
+
+    // server_key 唯一索引：同步时按 key 定位行，NULL 不参与唯一性约束
+    public static final String INDEX_FEED_ITEMS_SERVER_KEY = "idx_feed_items_server_key";
+    static final String CREATE_INDEX_FEED_ITEMS_SERVER_KEY =
+            "CREATE UNIQUE INDEX IF NOT EXISTS " + INDEX_FEED_ITEMS_SERVER_KEY + " ON " + TABLE_FEED_ITEMS +
+                    " (" + COLUMN_SERVER_KEY + ");";
+
+    // 收藏列表的部分索引：只收录已收藏的行，体积与收藏数成正比，不随整表增长
+    // 查询条件必须写成字面量 is_favorite = 1，绑定参数时查询规划器无法确认条件蕴含索引的 WHERE，不会使用该索引
+    public static final String INDEX_FEED_ITEMS_FAVORITE = "idx_feed_items_favorite_created_at_id";
+    static final String CREATE_INDEX_FEED_ITEMS_FAVORITE =
+            "CREATE INDEX IF NOT EXISTS " + INDEX_FEED_ITEMS_FAVORITE + " ON " + TABLE_FEED_ITEMS +
+                    " (" + COLUMN_CREATED_AT + " DESC, " + COLUMN_ID + " DESC) WHERE " + COLUMN_IS_FAVORITE + " = 1;";
+
+    // 媒体类型列表：等值列在前，之后的顺序与 ORDER BY 一致，筛选和排序都由索引完成
+    public static final String INDEX_FEED_ITEMS_MEDIA_TYPE = "idx_feed_items_media_type_created_at_id";
+    static final String CREATE_INDEX_FEED_ITEMS_MEDIA_TYPE =
+            "CREATE INDEX IF NOT EXISTS " + INDEX_FEED_ITEMS_MEDIA_TYPE + " ON " + TABLE_FEED_ITEMS +
+                    " (" + COLUMN_MEDIA_TYPE + ", " + COLUMN_CREATED_AT + " DESC, " + COLUMN_ID + " DESC);";
+
+    private static final String SELECTION_FAVORITE = COLUMN_IS_FAVORITE + " = 1";
+    private static final String SELECTION_MEDIA_TYPE = COLUMN_MEDIA_TYPE + " = ?";
+
+    // 游标分页的排序与条件：(created_at, _id) 严格小于上一页最后一条
+    private static final String ORDER_BY_CREATED_AT_DESC =
+            COLUMN_CREATED_AT + " DESC, " + COLUMN_ID + " DESC";
+    private static final String SELECTION_BEFORE_KEY =
+            COLUMN_CREATED_AT + " <= ? AND (" + COLUMN_CREATED_AT + " < ? OR " + COLUMN_ID + " < ?)";
+
     // 查询列数组 - 更新包含所有列
-    private static final String[] ALL_COLUMNS = {
-            COLUMN_ID,
-            COLUMN_TITLE,
-            COLUMN_CONTENT,
-            COLUMN_IMAGE_URL,
-            COLUMN_IMAGE_WIDTH,
-            COLUMN_IMAGE_HEIGHT,
-            COLUMN_CREATED_AT,
-            COLUMN_IS_FAVORITE,
-            COLUMN_LAYOUT_MODE,
-            COLUMN_VIDEO_URL,
-            COLUMN_VIDEO_COVER_URL,
-            COLUMN_VIDEO_DURATION,
-            COLUMN_LAST_PLAY_POSITION,
-            COLUMN_VIDEO_WIDTH,
-            COLUMN_VIDEO_HEIGHT,
-            COLUMN_MEDIA_TYPE
+    private static final String[] ALL_COLUMNS = FeedProjection.full.columns();
+
+    // 高频写操作的预编译语句，首次使用时编译，之后复用
+    private static final String SQL_UPDATE_PLAY_POSITION =
+            "UPDATE " + TABLE_FEED_ITEMS + " SET " + COLUMN_LAST_PLAY_POSITION + " = ? WHERE " + COLUMN_ID + " = ?";
+    private static final String SQL_UPDATE_LAYOUT_MODE =
+            "UPDATE " + TABLE_FEED_ITEMS + " SET " + COLUMN_LAYOUT_MODE + " = ? WHERE " + COLUMN_ID + " = ?";
+    private static final String SQL_UPDATE_FAVORITE =
+            "UPDATE " + TABLE_FEED_ITEMS + " SET " + COLUMN_IS_FAVORITE + " = ? WHERE " + COLUMN_ID + " = ?";
+    private static final String SQL_DELETE_BY_ID =
+            "DELETE FROM " + TABLE_FEED_ITEMS + " WHERE " + COLUMN_ID + " = ?";
+    // 参数顺序与 bindFeedItem 一致
+    private static final String SQL_INSERT_FEED_ITEM =
+            "INSERT INTO " + TABLE_FEED_ITEMS + " (" +
+                    COLUMN_TITLE + ", " + COLUMN_CONTENT + ", " +
+                    COLUMN_IMAGE_URL + ", " + COLUMN_IMAGE_WIDTH + ", " + COLUMN_IMAGE_HEIGHT + ", " +
+                    COLUMN_CREATED_AT + ", " + COLUMN_IS_FAVORITE + ", " + COLUMN_LAYOUT_MODE + ", " +
+                    COLUMN_VIDEO_URL + ", " + COLUMN_VIDEO_COVER_URL + ", " + COLUMN_VIDEO_DURATION + ", " +
+                    COLUMN_LAST_PLAY_POSITION + ", " + COLUMN_VIDEO_WIDTH + ", " + COLUMN_VIDEO_HEIGHT + ", " +
+                    COLUMN_MEDIA_TYPE + ", " + COLUMN_SERVER_KEY +
+                    ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    // 同步只覆盖服务端下发的字段；收藏、播放进度、布局模式属于本地状态，保持不变
+    private static final String SQL_SYNC_UPDATE_FEED_ITEM =
+            "UPDATE " + TABLE_FEED_ITEMS + " SET " +
+                    COLUMN_TITLE + " = ?, " + COLUMN_CONTENT + " = ?, " +
+                    COLUMN_IMAGE_URL + " = ?, " + COLUMN_IMAGE_WIDTH + " = ?, " + COLUMN_IMAGE_HEIGHT + " = ?, " +
+                    COLUMN_CREATED_AT + " = ?, " +
+                    COLUMN_VIDEO_URL + " = ?, " + COLUMN_VIDEO_COVER_URL + " = ?, " + COLUMN_VIDEO_DURATION + " = ?, " +
+                    COLUMN_VIDEO_WIDTH + " = ?, " + COLUMN_VIDEO_HEIGHT + " = ?, " +
+                    COLUMN_MEDIA_TYPE + " = ?, " + COLUMN_SERVER_KEY + " = ?" +
+                    " WHERE " + COLUMN_ID + " = ?";
+
+    private static final String SQL_INSERT_EXPOSURE_EVENT =
+            "INSERT INTO " + TABLE_EXPOSURE_EVENTS + " (" +
+                    COLUMN_EVENT_ITEM_ID + ", " + COLUMN_EVENT_THRESHOLD + ", " +
+                    COLUMN_EVENT_START_TIME + ", " + COLUMN_EVENT_DWELL_MS +
+                    ") VALUES (?, ?, ?, ?)";
+    private static final String[] EXPOSURE_EVENT_COLUMNS = {
+            COLUMN_ID, COLUMN_EVENT_ITEM_ID, COLUMN_EVENT_THRESHOLD,
+            COLUMN_EVENT_START_TIME, COLUMN_EVENT_DWELL_MS
     };
+    // 本地最多保留的曝光事件数，长时间没有上传时丢弃最旧的
+    public static final int MAX_STORED_EXPOSURE_EVENTS = 10000;
+
+    // 批量写入时每个事务包含的行数，兼顾吞吐与单次持锁时长
+    public static final int DEFAULT_INSERT_CHUNK_SIZE = 500;
+
+    private static volatile DatabaseHelper instance;
+
+    private SQLiteStatement updatePlayPositionStatement;
+    private SQLiteStatement updateLayoutModeStatement;
+    private SQLiteStatement updateFavoriteStatement;
+    private SQLiteStatement deleteByIdStatement;
+    private SQLiteStatement insertFeedItemStatement;
+    private SQLiteStatement insertExposureEventStatement;
+
+    // 后台回填之间互斥，与 helper 的监视器分开，见 runBackfillChunk
+    private final Object backfillLock = new Object();
 
     // ==================== 构造方法 ====================
 
-    public DatabaseHelper(Context context) {
-        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    // 单例实现：整个进程共用一个长连接，避免每次操作都打开/关闭数据库
+    public static DatabaseHelper getInstance(Context context) {
+        if (instance == null) {
+            synchronized (DatabaseHelper.class) {
+                if (instance == null)
+                    instance = new DatabaseHelper(context.getApplicationContext());
+            }
+        }
+        return instance;
+    }
+
+    private DatabaseHelper(Context context) {
+        this(context, DATABASE_NAME);
+    }
+
+    // 测试与基准使用独立的数据库文件，避免污染用户数据
+    @VisibleForTesting
+    public DatabaseHelper(Context context, String databaseName) {
+        super(context, databaseName, null, DATABASE_VERSION);
+        // WAL 模式下读写互不阻塞，写入也只需追加日志
+        setWriteAheadLoggingEnabled(true);
     }
 
     // ==================== 数据库生命周期方法 ====================
@@ -93,56 +279,108 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     @Override
     public void onCreate(SQLiteDatabase db) {
         db.execSQL(CREATE_TABLE_FEED_ITEMS);
+        db.execSQL(CREATE_INDEX_FEED_ITEMS_CREATED_AT);
+        db.execSQL(CREATE_INDEX_FEED_ITEMS_SERVER_KEY);
+        db.execSQL(CREATE_INDEX_FEED_ITEMS_FAVORITE);
+        db.execSQL(CREATE_INDEX_FEED_ITEMS_MEDIA_TYPE);
+        db.execSQL(CREATE_TABLE_EXPOSURE_EVENTS);
+        // 全文索引的触发器会查询进度表，须先建
+        db.execSQL(CREATE_TABLE_SCHEMA_BACKFILLS);
+        createFullTextIndex(db);
     }
 
+    // 按 SchemaMigrations 中登记的步骤逐版本升级，不删除任何表；耗时的部分登记为后台回填，见 runBackfillChunk
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        if (oldVersion < 2) {
-            // 从版本1升级到版本2：添加视频相关字段
-            db.execSQL("ALTER TABLE " + TABLE_FEED_ITEMS + " ADD COLUMN " + COLUMN_VIDEO_URL + " TEXT");
-            db.execSQL("ALTER TABLE " + TABLE_FEED_ITEMS + " ADD COLUMN " + COLUMN_VIDEO_COVER_URL + " TEXT");
-            db.execSQL("ALTER TABLE " + TABLE_FEED_ITEMS + " ADD COLUMN " + COLUMN_VIDEO_DURATION + " INTEGER DEFAULT 0");
-            db.execSQL("ALTER TABLE " + TABLE_FEED_ITEMS + " ADD COLUMN " + COLUMN_LAST_PLAY_POSITION + " INTEGER DEFAULT 0");
-            db.execSQL("ALTER TABLE " + TABLE_FEED_ITEMS + " ADD COLUMN " + COLUMN_VIDEO_WIDTH + " INTEGER DEFAULT 0");
-            db.execSQL("ALTER TABLE " + TABLE_FEED_ITEMS + " ADD COLUMN " + COLUMN_VIDEO_HEIGHT + " INTEGER DEFAULT 0");
-            db.execSQL("ALTER TABLE " + TABLE_FEED_ITEMS + " ADD COLUMN " + COLUMN_MEDIA_TYPE + " INTEGER DEFAULT 0");
-        } else {
-            // 其他版本升级逻辑
-            db.execSQL("DROP TABLE IF EXISTS " + TABLE_FEED_ITEMS);
-            onCreate(db);
+        SchemaMigrations.upgrade(db, oldVersion, newVersion);
+    }
+
+    // 回退到旧版本时保留所有表和数据：新增的列、索引、表不影响旧版本的查询
+    // 再次升级时各步骤可重复执行，已完成的回填不会重做
+    @Override
+    public void onDowngrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        Log.w("dbHelper", "onDowngrade: " + oldVersion + " -> " + newVersion + "，保留现有 schema");
+    }
+
+    static void createFullTextIndex(SQLiteDatabase db) {
+        for (String tokenizer : FTS_TOKENIZERS) {
+            try {
+                db.execSQL(String.format(CREATE_TABLE_FEED_ITEMS_FTS, tokenizer));
+                Log.d("dbHelper", "createFullTextIndex: tokenizer=" + tokenizer);
+                break;
+            } catch (SQLException e) {
+                Log.w("dbHelper", "createFullTextIndex: 分词器 " + tokenizer + " 不可用", e);
+            }
+        }
+        for (String trigger : CREATE_FTS_TRIGGERS) {
+            db.execSQL(trigger);
         }
     }
 
     // ==================== 数据插入方法 ====================
 
-    public long insertFeedItem(FeedItem item) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues values = createContentValues(item);
-
-        long id = db.insert(TABLE_FEED_ITEMS, null, values);
-        db.close();
+    public synchronized long insertFeedItem(FeedItem item) {
+        SQLiteStatement statement = getInsertFeedItemStatement();
+        bindFeedItem(statement, item);
+        try {
+            return statement.executeInsert();
+        } finally {
+            statement.clearBindings();
+        }
+    }
 
-        return id;
+    public int insertFeedItems(Collection<FeedItem> items) {
+        return insertFeedItems(items, DEFAULT_INSERT_CHUNK_SIZE);
     }
 
-    // ==================== 数据删除方法 ====================
+    // 批量写入：每 chunkSize 行一个事务，复用同一条预编译语句，生成的 id 回写到 item 中
+    // 某个分块失败时该分块整体回滚并停止，之前已提交的分块保留，返回成功写入的行数
+    public synchronized int insertFeedItems(Collection<FeedItem> items, int chunkSize) {
+        if (items == null || items.isEmpty()) return 0;
+        if (chunkSize <= 0) throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
 
-    public int deleteFeedItem(long id) {
-        SQLiteDatabase db = this.getWritableDatabase();
+        SQLiteDatabase db = getWritableDatabase();
+        SQLiteStatement statement = getInsertFeedItemStatement();
+        Iterator<FeedItem> iterator = items.iterator();
+        int inserted = 0;
 
-        String selection = COLUMN_ID + " = ?";
-        String[] selectionArgs = {String.valueOf(id)};
+        while (iterator.hasNext()) {
+            int chunkInserted = 0;
+            db.beginTransactionNonExclusive();
+            try {
+                while (iterator.hasNext() && chunkInserted < chunkSize) {
+                    FeedItem item = iterator.next();
+                    bindFeedItem(statement, item);
+                    item.setId(statement.executeInsert());
+                    chunkInserted++;
+                }
+                db.setTransactionSuccessful();
+                inserted += chunkInserted;
+            } catch (Exception e) {
+                Log.e("insert错误", "insertFeedItems: ", e);
+                return inserted;
+            } finally {
+                statement.clearBindings();
+                db.endTransaction();
+            }
+        }
 
-        int count = db.delete(TABLE_FEED_ITEMS, selection, selectionArgs);
-        db.close();
+        return inserted;
+    }
 
-        return count;
+    // ==================== 数据删除方法 ====================
+
+    public synchronized int deleteFeedItem(long id) {
+        if (deleteByIdStatement == null) {
+            deleteByIdStatement = compileStatement(SQL_DELETE_BY_ID);
+        }
+        deleteByIdStatement.bindLong(1, id);
+        return executeAndClear(deleteByIdStatement);
     }
 
     public int deleteData() {
         SQLiteDatabase db = this.getWritableDatabase();
         int count = db.delete(TABLE_FEED_ITEMS, null, null);
-        db.close();
 
         return count;
     }
@@ -158,66 +396,129 @@ public class DatabaseHelper extends SQLiteOpenHelper {
 
         int count = db.update(TABLE_FEED_ITEMS, values, selection, selectionArgs);
         Log.d("dbHelper", "updateFeedItem: " + count);
-        db.close();
 
         return count;
     }
 
     // 更新播放位置（单独方法，因为这是频繁操作）
-    public int updateVideoPlayPosition(long itemId, long playPosition) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues values = new ContentValues();
-        values.put(COLUMN_LAST_PLAY_POSITION, playPosition);
-
-        String selection = COLUMN_ID + " = ?";
-        String[] selectionArgs = {String.valueOf(itemId)};
+    public synchronized int updateVideoPlayPosition(long itemId, long playPosition) {
+        if (updatePlayPositionStatement == null) {
+            updatePlayPositionStatement = compileStatement(SQL_UPDATE_PLAY_POSITION);
+        }
+        updatePlayPositionStatement.bindLong(1, playPosition);
+        updatePlayPositionStatement.bindLong(2, itemId);
+        return executeAndClear(updatePlayPositionStatement);
+    }
 
-        int count = db.update(TABLE_FEED_ITEMS, values, selection, selectionArgs);
-        db.close();
+    // 批量更新播放位置：复用预编译语句，在一个事务内写入，供播放进度合并写入使用
+    public synchronized int updateVideoPlayPositions(Map<Long, Long> positions) {
+        if (positions.isEmpty()) return 0;
+        if (updatePlayPositionStatement == null) {
+            updatePlayPositionStatement = compileStatement(SQL_UPDATE_PLAY_POSITION);
+        }
 
+        SQLiteDatabase db = getWritableDatabase();
+        int count = 0;
+        db.beginTransactionNonExclusive();
+        try {
+            for (Map.Entry<Long, Long> entry : positions.entrySet()) {
+                updatePlayPositionStatement.bindLong(1, entry.getValue());
+                updatePlayPositionStatement.bindLong(2, entry.getKey());
+                count += executeAndClear(updatePlayPositionStatement);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
         return count;
     }
 
-    public int updateLayoutMode(long itemId, LayoutMode layoutMode) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues values = new ContentValues();
-        values.put(COLUMN_LAYOUT_MODE, layoutMode.ordinal());
-
-        String selection = COLUMN_ID + " = ?";
-        String[] selectionArgs = {String.valueOf(itemId)};
-
-        int count = db.update(TABLE_FEED_ITEMS, values, selection, selectionArgs);
-        db.close();
+    public synchronized int updateLayoutMode(long itemId, LayoutMode layoutMode) {
+        if (updateLayoutModeStatement == null) {
+            updateLayoutModeStatement = compileStatement(SQL_UPDATE_LAYOUT_MODE);
+        }
+        updateLayoutModeStatement.bindLong(1, layoutMode.ordinal());
+        updateLayoutModeStatement.bindLong(2, itemId);
+        return executeAndClear(updateLayoutModeStatement);
+    }
 
-        return count;
+    public synchronized int updateFavorite(long itemId, boolean favorite) {
+        if (updateFavoriteStatement == null) {
+            updateFavoriteStatement = compileStatement(SQL_UPDATE_FAVORITE);
+        }
+        updateFavoriteStatement.bindLong(1, favorite ? 1 : 0);
+        updateFavoriteStatement.bindLong(2, itemId);
+        return executeAndClear(updateFavoriteStatement);
     }
 
-    public boolean updateAll(List<FeedItem> items) {
-        SQLiteDatabase db = null;
-        try {
-            db = getWritableDatabase();
-            db.beginTransaction();
+    // 增量同步：按 server_key（本地数据按 _id）与现有行比对，只写入新增、变化和删除的行
+    // 未变化的行不会被重写，自增 id 与收藏、播放进度等本地状态都会保留，并回写到 newItems 中
+    // 整个同步在一个事务内完成，失败时回滚并返回 null
+    public synchronized FeedSyncResult syncFeedItems(List<FeedItem> newItems) {
+        Map<String, FeedItem> incoming = new LinkedHashMap<>();
+        List<FeedItem> unkeyed = new ArrayList<>();
+        for (FeedItem item : newItems) {
+            String key = syncKey(item.getServerKey(), item.getId());
+            if (key == null) {
+                unkeyed.add(item);
+            } else {
+                incoming.put(key, item);
+            }
+        }
 
-            // 清空旧数据
-            db.delete(TABLE_FEED_ITEMS, null, null);
+        FeedSyncResult result = new FeedSyncResult();
+        SQLiteDatabase db = getWritableDatabase();
+        SQLiteStatement updateStatement = db.compileStatement(SQL_SYNC_UPDATE_FEED_ITEM);
+        db.beginTransactionNonExclusive();
+        try {
+            // 第一遍：流式遍历现有行，只记录差异，不在遍历游标时修改表
+            try (FeedCursorSource current = openFeedSource(FeedProjection.full)) {
+                for (int i = 0; i < current.size(); i++) {
+                    FeedItem existing = current.get(i);
+                    FeedItem item = incoming.remove(syncKey(existing.getServerKey(), existing.getId()));
+                    if (item == null) {
+                        result.addDeleted(existing.getId());
+                        continue;
+                    }
+
+                    item.setId(existing.getId());
+                    item.setIsFavorite(existing.getIsFavorite());
+                    item.setLastPlayPosition(existing.getLastPlayPosition());
+                    item.setLayoutMode(existing.getLayoutMode());
+                    if (hasSameSyncedContent(existing, item)) {
+                        result.addUnchanged();
+                    } else {
+                        result.addUpdated(item);
+                    }
+                }
+            }
 
-            // 插入新数据
-            for (FeedItem item : items) {
-                ContentValues values = createContentValues(item);
-                db.insert(TABLE_FEED_ITEMS, null, values);
+            // 第二遍：只对差异行执行写入
+            for (long id : result.getDeletedIds()) {
+                deleteFeedItem(id);
+            }
+            for (FeedItem item : result.getUpdated()) {
+                bindSyncUpdate(updateStatement, item);
+                executeAndClear(updateStatement);
+            }
+            SQLiteStatement insertStatement = getInsertFeedItemStatement();
+            List<FeedItem> toInsert = new ArrayList<>(incoming.values());
+            toInsert.addAll(unkeyed);
+            for (FeedItem item : toInsert) {
+                bindFeedItem(insertStatement, item);
+                item.setId(insertStatement.executeInsert());
+                insertStatement.clearBindings();
+                result.addInserted(item);
             }
 
             db.setTransactionSuccessful();
-            return true;
-
+            return result;
         } catch (Exception e) {
-            Log.e("update错误", "updateAll: ", e);
-            return false;
+            Log.e("sync错误", "syncFeedItems: ", e);
+            return null;
         } finally {
-            if (db != null) {
-                db.endTransaction();
-                db.close();
-            }
+            db.endTransaction();
+            updateStatement.close();
         }
     }
 
@@ -231,8 +532,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
 
         Cursor cursor = db.query(TABLE_FEED_ITEMS, ALL_COLUMNS, selection, selectionArgs, null, null, null);
 
-        FeedItem item = extractFeedItemFromCursor(cursor);
-        db.close();
+        FeedItem item = extractFeedItemFromCursor(cursor, FeedProjection.full.getMapper());
 
         return item;
     }
@@ -246,12 +546,13 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 null, null, null, null,
                 COLUMN_CREATED_AT + " DESC");
 
-        extractFeedItemsFromCursor(cursor, items);
-        db.close();
+        extractFeedItemsFromCursor(cursor, FeedProjection.full.getMapper(), items);
 
         return items;
     }
 
+    // 基于 LIMIT/OFFSET 的分页：越往后需要跳过的行越多，且翻页期间的插入/删除会导致错位，请改用 getFeedItemsAfter
+    @Deprecated
     public List<FeedItem> getFeedItemsByPage(int page, int pageSize) {
         List<FeedItem> items = new ArrayList<>();
         SQLiteDatabase db = this.getReadableDatabase();
@@ -267,53 +568,408 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 limit
         );
 
-        extractFeedItemsFromCursor(cursor, items);
-        db.close();
+        extractFeedItemsFromCursor(cursor, FeedProjection.full.getMapper(), items);
 
         return items;
     }
 
-    public List<FeedItem> getFavoriteFeedItems() {
-        List<FeedItem> items = new ArrayList<>();
+    // 不物化整表的数据源，按位置懒加载，调用方负责 close()
+    public FeedCursorSource openFeedSource(FeedProjection projection) {
         SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.query(TABLE_FEED_ITEMS,
+                projection.columns(),
+                null, null, null, null,
+                ORDER_BY_CREATED_AT_DESC);
+        return new FeedCursorSource(cursor, projection.getMapper(), FeedCursorSource.DEFAULT_WINDOW_SIZE);
+    }
 
-        String selection = COLUMN_IS_FAVORITE + " = ?";
-        String[] selectionArgs = {"1"};
+    public long getFeedItemCount() {
+        return DatabaseUtils.queryNumEntries(getReadableDatabase(), TABLE_FEED_ITEMS);
+    }
 
-        Cursor cursor = db.query(
-                TABLE_FEED_ITEMS,
-                ALL_COLUMNS,
-                selection, selectionArgs, null, null,
-                COLUMN_CREATED_AT + " DESC"
-        );
+    // 只判断是否存在数据，找到第一行即返回，不读取任何列
+    public boolean hasFeedItems() {
+        return DatabaseUtils.longForQuery(getReadableDatabase(),
+                "SELECT EXISTS(SELECT 1 FROM " + TABLE_FEED_ITEMS + ")", null) != 0;
+    }
 
-        extractFeedItemsFromCursor(cursor, items);
-        db.close();
+    // 游标（keyset）分页：返回排在 lastItem 之后的 pageSize 条数据，lastItem 为 null 时返回第一页
+    // 通过 (created_at, _id) 复合索引直接定位，耗时与页数无关，翻页期间插入或删除数据也不会重复或遗漏
+    public List<FeedItem> getFeedItemsAfter(FeedItem lastItem, int pageSize) {
+        return getFeedItemsAfter(lastItem, pageSize, FeedProjection.full);
+    }
 
-        return items;
+    // 指定投影的游标分页，只读取目标视图需要的列
+    public List<FeedItem> getFeedItemsAfter(FeedItem lastItem, int pageSize, FeedProjection projection) {
+        return queryPage(null, null, lastItem, pageSize, projection);
+    }
+
+    // 收藏列表的游标分页，沿收藏部分索引读取，耗时只与页大小有关
+    public List<FeedItem> getFavoriteFeedItemsAfter(FeedItem lastItem, int pageSize) {
+        return queryPage(SELECTION_FAVORITE, null, lastItem, pageSize, FeedProjection.full);
+    }
+
+    // 按媒体类型筛选的游标分页；图片列表不需要视频列
+    public List<FeedItem> getFeedItemsByMediaTypeAfter(MediaType mediaType, FeedItem lastItem, int pageSize) {
+        FeedProjection projection = mediaType == MediaType.image ? FeedProjection.image : FeedProjection.full;
+        return queryPage(SELECTION_MEDIA_TYPE, new String[]{String.valueOf(mediaType.ordinal())},
+                lastItem, pageSize, projection);
+    }
+
+    // 一次读取全部收藏，收藏较多时请改用 getFavoriteFeedItemsAfter
+    public List<FeedItem> getFavoriteFeedItems() {
+        return queryPage(SELECTION_FAVORITE, null, null, 0, FeedProjection.full);
     }
 
     // 新增：根据媒体类型查询
     public List<FeedItem> getFeedItemsByMediaType(MediaType mediaType) {
+        return getFeedItemsByMediaTypeAfter(mediaType, null, 0);
+    }
+
+    // 返回分页查询的执行计划（EXPLAIN QUERY PLAN 的 detail 列），与实际执行的是同一条 SQL
+    @VisibleForTesting
+    public List<String> explainFavoritePage(FeedItem lastItem, int pageSize) {
+        return explainPage(SELECTION_FAVORITE, null, lastItem, pageSize, FeedProjection.full);
+    }
+
+    @VisibleForTesting
+    public List<String> explainMediaTypePage(MediaType mediaType, FeedItem lastItem, int pageSize) {
+        return explainPage(SELECTION_MEDIA_TYPE, new String[]{String.valueOf(mediaType.ordinal())},
+                lastItem, pageSize, FeedProjection.full);
+    }
+
+    // 筛选 + 游标分页：filter 为空时是完整列表；pageSize 为 0 时不限条数
+    // 排序固定为 (created_at DESC, _id DESC)，与各列表索引的顺序一致，不需要额外排序
+    private List<FeedItem> queryPage(String filter, String[] filterArgs, FeedItem lastItem, int pageSize,
+                                     FeedProjection projection) {
         List<FeedItem> items = new ArrayList<>();
-        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = getReadableDatabase().rawQuery(
+                pageSql(filter, lastItem != null, pageSize, projection),
+                pageArgs(filterArgs, lastItem));
+        extractFeedItemsFromCursor(cursor, projection.getMapper(), items);
+        return items;
+    }
 
-        String selection = COLUMN_MEDIA_TYPE + " = ?";
-        String[] selectionArgs = {String.valueOf(mediaType.ordinal())};
+    private List<String> explainPage(String filter, String[] filterArgs, FeedItem lastItem, int pageSize,
+                                     FeedProjection projection) {
+        List<String> details = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().rawQuery(
+                "EXPLAIN QUERY PLAN " + pageSql(filter, lastItem != null, pageSize, projection),
+                pageArgs(filterArgs, lastItem))) {
+            int detailIndex = cursor.getColumnIndexOrThrow("detail");
+            while (cursor.moveToNext()) {
+                details.add(cursor.getString(detailIndex));
+            }
+        }
+        return details;
+    }
 
-        Cursor cursor = db.query(
-                TABLE_FEED_ITEMS,
-                ALL_COLUMNS,
-                selection, selectionArgs, null, null,
-                COLUMN_CREATED_AT + " DESC"
-        );
+    private static String pageSql(String filter, boolean afterKey, int pageSize, FeedProjection projection) {
+        String selection = filter;
+        if (afterKey) {
+            selection = filter == null ? SELECTION_BEFORE_KEY : filter + " AND (" + SELECTION_BEFORE_KEY + ")";
+        }
+        return SQLiteQueryBuilder.buildQueryString(false, TABLE_FEED_ITEMS, projection.columns(),
+                selection, null, null, ORDER_BY_CREATED_AT_DESC,
+                pageSize > 0 ? String.valueOf(pageSize) : null);
+    }
+
+    private static String[] pageArgs(String[] filterArgs, FeedItem lastItem) {
+        int filterCount = filterArgs != null ? filterArgs.length : 0;
+        if (lastItem == null) return filterArgs;
+
+        String[] args = new String[filterCount + 3];
+        if (filterCount > 0) System.arraycopy(filterArgs, 0, args, 0, filterCount);
+        String createdAt = String.valueOf(lastItem.getCreatedAt());
+        args[filterCount] = createdAt;
+        args[filterCount + 1] = createdAt;
+        args[filterCount + 2] = String.valueOf(lastItem.getId());
+        return args;
+    }
+
+    // ==================== 全文检索方法 ====================
+
+    // 返回按相关度排序的全部命中 id（相关度相同时新的在前），配合 getFeedItemsByIds 分页读取
+    // 排序只在这里做一次，翻页时不再重复检索；没有可检索的词时返回空数组
+    public long[] searchFeedItemIds(String query) {
+        return searchFeedItemIds(query, null, null);
+    }
 
-        extractFeedItemsFromCursor(cursor, items);
-        db.close();
+    // within 非空时只在这些 id 中检索，用于前缀细化：新查询的命中是上一次结果的子集，只需复核上一次的命中
+    // 语料统计仍来自整张表，得分与不带 within 的检索完全一致
+    // signal 被取消时正在执行的查询会中断并抛出 OperationCanceledException
+    public long[] searchFeedItemIds(String query, long[] within, CancellationSignal signal) {
+        String match = FeedSearchRanker.toMatchExpression(query);
+        if (match == null || (within != null && within.length == 0)) return new long[0];
+
+        String sql = SQL_SEARCH_FTS;
+        if (within != null) {
+            // id 都是 long，直接拼进 SQL，不受绑定参数个数上限的限制
+            StringBuilder builder = new StringBuilder(SQL_SEARCH_FTS).append(" AND docid IN (");
+            for (int i = 0; i < within.length; i++) {
+                if (i > 0) builder.append(',');
+                builder.append(within[i]);
+            }
+            sql = builder.append(')').toString();
+        }
+
+        List<ScoredId> scored = new ArrayList<>();
+        SQLiteDatabase db = getReadableDatabase();
+        try (Cursor cursor = db.rawQuery(sql, new String[]{match}, signal)) {
+            while (cursor.moveToNext()) {
+                int[] info = FeedSearchRanker.parseMatchInfo(cursor.getBlob(1));
+                scored.add(new ScoredId(cursor.getLong(0), FeedSearchRanker.bm25(info, FeedSearchRanker.COLUMN_WEIGHTS)));
+            }
+        } catch (SQLException e) {
+            Log.e("SqlSearch", "searchFeedItemIds: " + e.toString());
+            return new long[0];
+        }
+
+        scored.sort(SCORED_ID_ORDER);
+        long[] ids = new long[scored.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = scored.get(i).id;
+        }
+        return ids;
+    }
 
+    // 按 ids 中的顺序读取 [offset, offset + limit) 这一段；期间已被删除的行直接跳过
+    public List<FeedItem> getFeedItemsByIds(long[] ids, int offset, int limit) {
+        int end = Math.min(ids.length, offset + limit);
+        if (offset >= end) return new ArrayList<>();
+
+        String[] args = new String[end - offset];
+        StringBuilder placeholders = new StringBuilder();
+        for (int i = offset; i < end; i++) {
+            if (i > offset) placeholders.append(',');
+            placeholders.append('?');
+            args[i - offset] = String.valueOf(ids[i]);
+        }
+
+        List<FeedItem> rows = new ArrayList<>(args.length);
+        Cursor cursor = getReadableDatabase().query(TABLE_FEED_ITEMS, ALL_COLUMNS,
+                COLUMN_ID + " IN (" + placeholders + ")", args, null, null, null);
+        extractFeedItemsFromCursor(cursor, FeedProjection.full.getMapper(), rows);
+
+        Map<Long, FeedItem> byId = new HashMap<>(rows.size() * 2);
+        for (FeedItem item : rows) {
+            byId.put(item.getId(), item);
+        }
+        List<FeedItem> items = new ArrayList<>(rows.size());
+        for (int i = offset; i < end; i++) {
+            FeedItem item = byId.get(ids[i]);
+            if (item != null) items.add(item);
+        }
         return items;
     }
 
+    private static final class ScoredId {
+        final long id;
+        final double score;
+
+        ScoredId(long id, double score) {
+            this.id = id;
+            this.score = score;
+        }
+    }
+
+    private static final Comparator<ScoredId> SCORED_ID_ORDER = (a, b) -> {
+        int byScore = Double.compare(b.score, a.score);
+        return byScore != 0 ? byScore : Long.compare(b.id, a.id);
+    };
+
+    // 检索并读取排序后的一页，适合一次性查询；连续翻页请保存 searchFeedItemIds 的结果
+    public List<FeedItem> searchFeedItems(String query, int offset, int limit) {
+        return getFeedItemsByIds(searchFeedItemIds(query), offset, limit);
+    }
+
+    // ==================== 曝光事件方法 ====================
+
+    // 批量写入曝光事件：一个事务、一条预编译语句；超出保留上限时删除最旧的事件
+    public synchronized int insertExposureEvents(List<ExposureEvent> events) {
+        if (events == null || events.isEmpty()) return 0;
+        if (insertExposureEventStatement == null) {
+            insertExposureEventStatement = compileStatement(SQL_INSERT_EXPOSURE_EVENT);
+        }
+
+        SQLiteDatabase db = getWritableDatabase();
+        int inserted = 0;
+        db.beginTransactionNonExclusive();
+        try {
+            for (ExposureEvent event : events) {
+                insertExposureEventStatement.bindLong(1, event.getItemId());
+                insertExposureEventStatement.bindLong(2, event.getThreshold());
+                insertExposureEventStatement.bindLong(3, event.getStartTime());
+                insertExposureEventStatement.bindLong(4, event.getDwellMs());
+                event.setId(insertExposureEventStatement.executeInsert());
+                inserted++;
+            }
+            db.execSQL("DELETE FROM " + TABLE_EXPOSURE_EVENTS + " WHERE " + COLUMN_ID + " <= " +
+                    "(SELECT MAX(" + COLUMN_ID + ") FROM " + TABLE_EXPOSURE_EVENTS + ") - " + MAX_STORED_EXPOSURE_EVENTS);
+            db.setTransactionSuccessful();
+        } catch (Exception e) {
+            Log.e("dbHelper", "insertExposureEvents: ", e);
+            inserted = 0;
+        } finally {
+            insertExposureEventStatement.clearBindings();
+            db.endTransaction();
+        }
+        return inserted;
+    }
+
+    // 按写入顺序取出待上传的事件
+    public List<ExposureEvent> getPendingExposureEvents(int limit) {
+        SQLiteDatabase db = getReadableDatabase();
+        Cursor cursor = db.query(TABLE_EXPOSURE_EVENTS, EXPOSURE_EVENT_COLUMNS, null, null,
+                null, null, COLUMN_ID + " ASC", String.valueOf(limit));
+
+        List<ExposureEvent> events = new ArrayList<>(Math.min(limit, cursor.getCount()));
+        try {
+            while (cursor.moveToNext()) {
+                ExposureEvent event = new ExposureEvent(cursor.getLong(1), cursor.getInt(2),
+                        cursor.getLong(3), cursor.getLong(4));
+                event.setId(cursor.getLong(0));
+                events.add(event);
+            }
+        } finally {
+            cursor.close();
+        }
+        return events;
+    }
+
+    // 上传成功后删除 id 不大于 maxId 的事件
+    public synchronized int deleteExposureEventsUpTo(long maxId) {
+        SQLiteDatabase db = getWritableDatabase();
+        return db.delete(TABLE_EXPOSURE_EVENTS, COLUMN_ID + " <= ?", new String[]{String.valueOf(maxId)});
+    }
+
+    public long getExposureEventCount() {
+        return DatabaseUtils.queryNumEntries(getReadableDatabase(), TABLE_EXPOSURE_EVENTS);
+    }
+
+    // ==================== 后台迁移方法 ====================
+
+    // 执行一批尚未完成的回填，返回是否还有剩余；在后台线程上逐批调用
+    // 每批与进度更新在同一个事务中提交，进程被杀后从上次提交的位置继续
+    // 不持有 helper 的监视器，回填之间用 backfillLock 互斥，同一时刻只有一批在执行
+    // 注意建索引期间唯一的写连接仍被占用，其他写操作照样要等它建完，所以界面触发的写库都在 DbExecutor 上执行
+    public boolean runBackfillChunk() {
+        synchronized (backfillLock) {
+            return runBackfillChunkLocked();
+        }
+    }
+
+    private boolean runBackfillChunkLocked() {
+        SQLiteDatabase db = getWritableDatabase();
+        String name = null;
+        SchemaMigrations.Backfill backfill = null;
+        long progress = 0;
+        long highWater = 0;
+        int pending = 0;
+        try (Cursor cursor = db.query(TABLE_SCHEMA_BACKFILLS,
+                new String[]{COLUMN_BACKFILL_NAME, COLUMN_BACKFILL_PROGRESS, COLUMN_BACKFILL_HIGH_WATER},
+                COLUMN_BACKFILL_COMPLETED_AT + " IS NULL", null, null, null, "rowid")) {
+            while (cursor.moveToNext()) {
+                SchemaMigrations.Backfill candidate = SchemaMigrations.backfill(cursor.getString(0));
+                // 不认识的回填（由更高版本登记）留给那个版本处理
+                if (candidate == null) continue;
+                pending++;
+                if (backfill == null) {
+                    name = cursor.getString(0);
+                    backfill = candidate;
+                    progress = cursor.getLong(1);
+                    highWater = cursor.getLong(2);
+                }
+            }
+        }
+        if (backfill == null) return false;
+
+        long startTime = System.currentTimeMillis();
+        long next;
+        if (backfill instanceof SchemaMigrations.DeferredIndex) {
+            // CREATE INDEX 自身是原子的，不包在事务里，免得整个建索引期间占着写事务
+            next = backfill.runChunk(db, progress, highWater, BACKFILL_CHUNK_SIZE);
+            updateBackfillProgress(db, name, next, highWater);
+        } else {
+            db.beginTransactionNonExclusive();
+            try {
+                next = backfill.runChunk(db, progress, highWater, BACKFILL_CHUNK_SIZE);
+                updateBackfillProgress(db, name, next, highWater);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        }
+        Log.d("dbHelper", "runBackfillChunk: " + name + " " + progress + " -> " + next + " / " + highWater +
+                " in " + (System.currentTimeMillis() - startTime) + "ms");
+        return next < highWater || pending > 1;
+    }
+
+    private static void updateBackfillProgress(SQLiteDatabase db, String name, long next, long highWater) {
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_BACKFILL_PROGRESS, Math.min(next, highWater));
+        if (next >= highWater) {
+            values.put(COLUMN_BACKFILL_COMPLETED_AT, System.currentTimeMillis());
+        }
+        db.update(TABLE_SCHEMA_BACKFILLS, values, COLUMN_BACKFILL_NAME + " = ?", new String[]{name});
+    }
+
+    public boolean hasPendingBackfills() {
+        return DatabaseUtils.queryNumEntries(getReadableDatabase(), TABLE_SCHEMA_BACKFILLS,
+                COLUMN_BACKFILL_COMPLETED_AT + " IS NULL") > 0;
+    }
+
+    // ==================== 连接管理方法 ====================
+
+    @Override
+    public synchronized void close() {
+        // 预编译语句依附于连接，关闭连接前先释放
+        releaseStatement(updatePlayPositionStatement);
+        releaseStatement(updateLayoutModeStatement);
+        releaseStatement(updateFavoriteStatement);
+        releaseStatement(deleteByIdStatement);
+        releaseStatement(insertFeedItemStatement);
+        releaseStatement(insertExposureEventStatement);
+        updatePlayPositionStatement = null;
+        updateLayoutModeStatement = null;
+        updateFavoriteStatement = null;
+        deleteByIdStatement = null;
+        insertFeedItemStatement = null;
+        insertExposureEventStatement = null;
+
+        super.close();
+
+        synchronized (DatabaseHelper.class) {
+            if (instance == this)
+                instance = null;
+        }
+    }
+
+    private SQLiteStatement compileStatement(String sql) {
+        return getWritableDatabase().compileStatement(sql);
+    }
+
+    private SQLiteStatement getInsertFeedItemStatement() {
+        if (insertFeedItemStatement == null) {
+            insertFeedItemStatement = compileStatement(SQL_INSERT_FEED_ITEM);
+        }
+        return insertFeedItemStatement;
+    }
+
+    private int executeAndClear(SQLiteStatement statement) {
+        try {
+            return statement.executeUpdateDelete();
+        } finally {
+            statement.clearBindings();
+        }
+    }
+
+    private void releaseStatement(SQLiteStatement statement) {
+        if (statement != null) {
+            statement.close();
+        }
+    }
+
     // ==================== 工具方法 ====================
 
     private ContentValues createContentValues(FeedItem item) {
@@ -324,6 +980,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         values.put(COLUMN_IS_FAVORITE, item.getIsFavorite());
         values.put(COLUMN_LAYOUT_MODE, item.getLayoutMode().ordinal());
         values.put(COLUMN_MEDIA_TYPE, item.getMediaType().ordinal());
+        values.put(COLUMN_SERVER_KEY, item.getServerKey());
 
         // 根据媒体类型设置相应的字段
         if (item.getMediaType() == MediaType.image) {
@@ -353,59 +1010,110 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         return values;
     }
 
-    private FeedItem extractFeedItemFromCursor(Cursor cursor) {
-        FeedItem item = null;
-        if (cursor != null && cursor.moveToFirst()) {
-            try {
-                item = new FeedItem();
-                populateFeedItemFromCursor(cursor, item);
-            } catch (Exception e) {
-                Log.e("SqlSearch", "getFeedItemById: " + e.toString());
-            } finally {
-                cursor.close();
-            }
-        }
-        return item;
+    // 有 server_key 的按 key 匹配，否则按本地主键匹配；两者都没有的视为新数据
+    private static String syncKey(String serverKey, long id) {
+        if (serverKey != null) return "s:" + serverKey;
+        if (id > 0) return "#" + id;
+        return null;
     }
 
-    private void extractFeedItemsFromCursor(Cursor cursor, List<FeedItem> items) {
-        if (cursor != null && cursor.moveToFirst()) {
-            try {
-                do {
-                    FeedItem item = new FeedItem();
-                    populateFeedItemFromCursor(cursor, item);
-                    items.add(item);
-                } while (cursor.moveToNext());
-            } catch (Exception e) {
-                Log.e("SqlSearch", "getAllFeedItems: " + e.toString());
-            } finally {
-                cursor.close();
-            }
+    // 只比较同步负责的字段，且只比较当前媒体类型实际存储的字段
+    private static boolean hasSameSyncedContent(FeedItem existing, FeedItem item) {
+        if (existing.getMediaType() != item.getMediaType()
+                || existing.getCreatedAt() != item.getCreatedAt()
+                || !Objects.equals(existing.getServerKey(), item.getServerKey())
+                || !Objects.equals(existing.getTitle(), item.getTitle())
+                || !Objects.equals(existing.getContent(), item.getContent())) {
+            return false;
+        }
+        if (item.getMediaType() == MediaType.image) {
+            return Objects.equals(existing.getImageUrl(), item.getImageUrl())
+                    && existing.getImageWidth() == item.getImageWidth()
+                    && existing.getImageHeight() == item.getImageHeight();
         }
+        return Objects.equals(existing.getVideoUrl(), item.getVideoUrl())
+                && Objects.equals(existing.getVideoCoverUrl(), item.getVideoCoverUrl())
+                && existing.getVideoDuration() == item.getVideoDuration()
+                && existing.getVideoWidth() == item.getVideoWidth()
+                && existing.getVideoHeight() == item.getVideoHeight();
     }
 
-    private void populateFeedItemFromCursor(Cursor cursor, FeedItem item) {
-        item.setId(cursor.getLong(cursor.getColumnIndexOrThrow(COLUMN_ID)));
-        item.setTitle(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_TITLE)));
-        item.setContent(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_CONTENT)));
-        item.setImageUrl(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_IMAGE_URL)));
-        item.setImageWidth(cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_IMAGE_WIDTH)));
-        item.setImageHeight(cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_IMAGE_HEIGHT)));
-        item.setCreatedAt(cursor.getLong(cursor.getColumnIndexOrThrow(COLUMN_CREATED_AT)));
-        item.setIsFavorite(cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_IS_FAVORITE)));
+    // 参数顺序见 SQL_SYNC_UPDATE_FEED_ITEM
+    private void bindSyncUpdate(SQLiteStatement statement, FeedItem item) {
+        boolean isImage = item.getMediaType() == MediaType.image;
+
+        bindStringOrNull(statement, 1, item.getTitle());
+        bindStringOrNull(statement, 2, item.getContent());
+        bindStringOrNull(statement, 3, isImage ? item.getImageUrl() : null);
+        statement.bindLong(4, isImage ? item.getImageWidth() : 0);
+        statement.bindLong(5, isImage ? item.getImageHeight() : 0);
+        statement.bindLong(6, item.getCreatedAt());
+        bindStringOrNull(statement, 7, isImage ? null : item.getVideoUrl());
+        bindStringOrNull(statement, 8, isImage ? null : item.getVideoCoverUrl());
+        statement.bindLong(9, isImage ? 0 : item.getVideoDuration());
+        statement.bindLong(10, isImage ? 0 : item.getVideoWidth());
+        statement.bindLong(11, isImage ? 0 : item.getVideoHeight());
+        statement.bindLong(12, item.getMediaType().ordinal());
+        bindStringOrNull(statement, 13, item.getServerKey());
+        statement.bindLong(14, item.getId());
+    }
 
-        int layoutModeValue = cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_LAYOUT_MODE));
-        item.setLayoutModeFromValue(layoutModeValue);
+    // 与 createContentValues 的取值规则一致，参数顺序见 SQL_INSERT_FEED_ITEM
+    private void bindFeedItem(SQLiteStatement statement, FeedItem item) {
+        boolean isImage = item.getMediaType() == MediaType.image;
+
+        bindStringOrNull(statement, 1, item.getTitle());
+        bindStringOrNull(statement, 2, item.getContent());
+        bindStringOrNull(statement, 3, isImage ? item.getImageUrl() : null);
+        statement.bindLong(4, isImage ? item.getImageWidth() : 0);
+        statement.bindLong(5, isImage ? item.getImageHeight() : 0);
+        statement.bindLong(6, item.getCreatedAt());
+        statement.bindLong(7, item.getIsFavorite());
+        statement.bindLong(8, item.getLayoutMode().ordinal());
+        bindStringOrNull(statement, 9, isImage ? null : item.getVideoUrl());
+        bindStringOrNull(statement, 10, isImage ? null : item.getVideoCoverUrl());
+        statement.bindLong(11, isImage ? 0 : item.getVideoDuration());
+        statement.bindLong(12, isImage ? 0 : item.getLastPlayPosition());
+        statement.bindLong(13, isImage ? 0 : item.getVideoWidth());
+        statement.bindLong(14, isImage ? 0 : item.getVideoHeight());
+        statement.bindLong(15, item.getMediaType().ordinal());
+        bindStringOrNull(statement, 16, item.getServerKey());
+    }
+
+    private void bindStringOrNull(SQLiteStatement statement, int index, String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
+        }
+    }
 
-        // 新增视频相关字段
-        item.setVideoUrl(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_VIDEO_URL)));
-        item.setVideoCoverUrl(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_VIDEO_COVER_URL)));
-        item.setVideoDuration(cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_VIDEO_DURATION)));
-        item.setLastPlayPosition(cursor.getLong(cursor.getColumnIndexOrThrow(COLUMN_LAST_PLAY_POSITION)));
-        item.setVideoWidth(cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_VIDEO_WIDTH)));
-        item.setVideoHeight(cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_VIDEO_HEIGHT)));
+    private FeedItem extractFeedItemFromCursor(Cursor cursor, FeedItemMapper mapper) {
+        FeedItem item = null;
+        if (cursor == null) return null;
+        // 连接常驻后不再随 db.close() 回收游标，空结果也必须关闭
+        try {
+            if (cursor.moveToFirst()) {
+                item = mapper.map(cursor);
+            }
+        } catch (Exception e) {
+            Log.e("SqlSearch", "getFeedItemById: " + e.toString());
+        } finally {
+            cursor.close();
+        }
+        return item;
+    }
 
-        int mediaTypeValue = cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_MEDIA_TYPE));
-        item.setMediaTypeFromValue(mediaTypeValue);
+    private void extractFeedItemsFromCursor(Cursor cursor, FeedItemMapper mapper, List<FeedItem> items) {
+        if (cursor == null) return;
+        try {
+            while (cursor.moveToNext()) {
+                items.add(mapper.map(cursor));
+            }
+        } catch (Exception e) {
+            Log.e("SqlSearch", "getAllFeedItems: " + e.toString());
+        } finally {
+            cursor.close();
+        }
     }
 }
\ No newline at end of file
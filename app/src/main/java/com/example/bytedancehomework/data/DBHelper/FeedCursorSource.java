@@ -0,0 +1,62 @@
+package com.example.bytedancehomework.data.DBHelper;
+
+import android.database.Cursor;
+import android.util.LruCache;
+
+import com.example.bytedancehomework.data.Item.FeedItem;
+
+import java.io.Closeable;
+import java.util.AbstractList;
+
+// 基于游标的只读数据源：不预先物化整张表，按位置访问时才从 CursorWindow 中读取并转换为 FeedItem
+// 内存占用 = 游标窗口 + 最近访问的 windowSize 个 FeedItem，与表大小无关
+// 游标不是线程安全的，同一个数据源只应在一个线程中使用，用完必须 close()
+public class FeedCursorSource extends AbstractList<FeedItem> implements Closeable {
+    public static final int DEFAULT_WINDOW_SIZE = 64;
+
+    private final Cursor cursor;
+    private final FeedItemMapper mapper;
+    private final LruCache<Integer, FeedItem> window;
+    private final int count;
+    private boolean closed = false;
+
+    FeedCursorSource(Cursor cursor, FeedItemMapper mapper, int windowSize) {
+        this.cursor = cursor;
+        this.mapper = mapper;
+        this.window = new LruCache<>(windowSize);
+        this.count = cursor.getCount();
+    }
+
+    @Override
+    public FeedItem get(int position) {
+        if (closed) throw new IllegalStateException("FeedCursorSource 已关闭");
+        if (position < 0 || position >= count) {
+            throw new IndexOutOfBoundsException("position=" + position + ", size=" + count);
+        }
+
+        FeedItem item = window.get(position);
+        if (item == null && cursor.moveToPosition(position)) {
+            item = mapper.map(cursor);
+            window.put(position, item);
+        }
+        return item;
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        window.evictAll();
+        cursor.close();
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.bytedancehomework.data.DBHelper;
+
+import android.database.Cursor;
+
+import com.example.bytedancehomework.data.Item.FeedItem;
+
+import static com.example.bytedancehomework.data.DBHelper.DatabaseHelper.*;
+
+// 游标到 FeedItem 的映射：列下标在构造时按列名解析一次，逐行读取时只按下标取值
+// 投影中不存在的列下标为 -1，对应字段保持 FeedItem 默认值
+public final class FeedItemMapper {
+    private static final int ABSENT = -1;
+
+    private final int idIndex;
+    private final int titleIndex;
+    private final int contentIndex;
+    private final int imageUrlIndex;
+    private final int imageWidthIndex;
+    private final int imageHeightIndex;
+    private final int createdAtIndex;
+    private final int isFavoriteIndex;
+    private final int layoutModeIndex;
+    private final int videoUrlIndex;
+    private final int videoCoverUrlIndex;
+    private final int videoDurationIndex;
+    private final int lastPlayPositionIndex;
+    private final int videoWidthIndex;
+    private final int videoHeightIndex;
+    private final int mediaTypeIndex;
+    private final int serverKeyIndex;
+
+    public FeedItemMapper(String[] columnNames) {
+        idIndex = indexOf(columnNames, COLUMN_ID);
+        titleIndex = indexOf(columnNames, COLUMN_TITLE);
+        contentIndex = indexOf(columnNames, COLUMN_CONTENT);
+        imageUrlIndex = indexOf(columnNames, COLUMN_IMAGE_URL);
+        imageWidthIndex = indexOf(columnNames, COLUMN_IMAGE_WIDTH);
+        imageHeightIndex = indexOf(columnNames, COLUMN_IMAGE_HEIGHT);
+        createdAtIndex = indexOf(columnNames, COLUMN_CREATED_AT);
+        isFavoriteIndex = indexOf(columnNames, COLUMN_IS_FAVORITE);
+        layoutModeIndex = indexOf(columnNames, COLUMN_LAYOUT_MODE);
+        videoUrlIndex = indexOf(columnNames, COLUMN_VIDEO_URL);
+        videoCoverUrlIndex = indexOf(columnNames, COLUMN_VIDEO_COVER_URL);
+        videoDurationIndex = indexOf(columnNames, COLUMN_VIDEO_DURATION);
+        lastPlayPositionIndex = indexOf(columnNames, COLUMN_LAST_PLAY_POSITION);
+        videoWidthIndex = indexOf(columnNames, COLUMN_VIDEO_WIDTH);
+        videoHeightIndex = indexOf(columnNames, COLUMN_VIDEO_HEIGHT);
+        mediaTypeIndex = indexOf(columnNames, COLUMN_MEDIA_TYPE);
+        serverKeyIndex = indexOf(columnNames, COLUMN_SERVER_KEY);
+    }
+
+    public FeedItem map(Cursor cursor) {
+        FeedItem item = new FeedItem();
+        populate(cursor, item);
+        return item;
+    }
+
+    public void populate(Cursor cursor, FeedItem item) {
+        if (idIndex != ABSENT) item.setId(cursor.getLong(idIndex));
+        if (serverKeyIndex != ABSENT) item.setServerKey(cursor.getString(serverKeyIndex));
+        if (titleIndex != ABSENT) item.setTitle(cursor.getString(titleIndex));
+        if (contentIndex != ABSENT) item.setContent(cursor.getString(contentIndex));
+        if (imageUrlIndex != ABSENT) item.setImageUrl(cursor.getString(imageUrlIndex));
+        if (imageWidthIndex != ABSENT) item.setImageWidth(cursor.getInt(imageWidthIndex));
+        if (imageHeightIndex != ABSENT) item.setImageHeight(cursor.getInt(imageHeightIndex));
+        if (createdAtIndex != ABSENT) item.setCreatedAt(cursor.getLong(createdAtIndex));
+        if (isFavoriteIndex != ABSENT) item.setIsFavorite(cursor.getInt(isFavoriteIndex));
+
+        // 布局与媒体类型决定视图类型，缺失时也要给出默认值
+        item.setLayoutModeFromValue(layoutModeIndex != ABSENT ? cursor.getInt(layoutModeIndex) : 0);
+
+        if (videoUrlIndex != ABSENT) item.setVideoUrl(cursor.getString(videoUrlIndex));
+        if (videoCoverUrlIndex != ABSENT) item.setVideoCoverUrl(cursor.getString(videoCoverUrlIndex));
+        if (videoDurationIndex != ABSENT) item.setVideoDuration(cursor.getInt(videoDurationIndex));
+        if (lastPlayPositionIndex != ABSENT) item.setLastPlayPosition(cursor.getLong(lastPlayPositionIndex));
+        if (videoWidthIndex != ABSENT) item.setVideoWidth(cursor.getInt(videoWidthIndex));
+        if (videoHeightIndex != ABSENT) item.setVideoHeight(cursor.getInt(videoHeightIndex));
+
+        item.setMediaTypeFromValue(mediaTypeIndex != ABSENT ? cursor.getInt(mediaTypeIndex) : 0);
+    }
+
+    private static int indexOf(String[] columnNames, String column) {
+        for (int i = 0; i < columnNames.length; i++) {
+            if (column.equalsIgnoreCase(columnNames[i])) return i;
+        }
+        return ABSENT;
+    }
+}
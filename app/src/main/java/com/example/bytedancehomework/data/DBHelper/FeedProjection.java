@@ -0,0 +1,37 @@
+package com.example.bytedancehomework.data.DBHelper;
+
+import static com.example.bytedancehomework.data.DBHelper.DatabaseHelper.*;
+
+// 查询投影：每种视图只读取自己需要的列，id/时间/布局/媒体类型始终保留
+public enum FeedProjection {
+    // 全部列
+    full(COLUMN_ID, COLUMN_TITLE, COLUMN_CONTENT,
+            COLUMN_IMAGE_URL, COLUMN_IMAGE_WIDTH, COLUMN_IMAGE_HEIGHT,
+            COLUMN_CREATED_AT, COLUMN_IS_FAVORITE, COLUMN_LAYOUT_MODE,
+            COLUMN_VIDEO_URL, COLUMN_VIDEO_COVER_URL, COLUMN_VIDEO_DURATION,
+            COLUMN_LAST_PLAY_POSITION, COLUMN_VIDEO_WIDTH, COLUMN_VIDEO_HEIGHT,
+            COLUMN_MEDIA_TYPE, COLUMN_SERVER_KEY),
+
+    // 图片卡片：不需要任何视频列
+    image(COLUMN_ID, COLUMN_TITLE, COLUMN_CONTENT,
+            COLUMN_IMAGE_URL, COLUMN_IMAGE_WIDTH, COLUMN_IMAGE_HEIGHT,
+            COLUMN_CREATED_AT, COLUMN_IS_FAVORITE, COLUMN_LAYOUT_MODE,
+            COLUMN_MEDIA_TYPE, COLUMN_SERVER_KEY);
+
+    private final String[] columns;
+    // 同一投影的查询列顺序固定，列下标只需解析一次
+    private final FeedItemMapper mapper;
+
+    FeedProjection(String... columns) {
+        this.columns = columns;
+        this.mapper = new FeedItemMapper(columns);
+    }
+
+    String[] columns() {
+        return columns;
+    }
+
+    public FeedItemMapper getMapper() {
+        return mapper;
+    }
+}
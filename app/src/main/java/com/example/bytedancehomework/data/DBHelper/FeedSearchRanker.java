@@ -0,0 +1,142 @@
+package com.example.bytedancehomework.data.DBHelper;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+// 全文检索的查询构造与相关度排序
+// FTS4 没有内置排序函数，按 matchinfo(fts, 'pcnalx') 返回的统计值在 Java 侧计算 BM25
+public class FeedSearchRanker {
+    public static final String MATCHINFO_FORMAT = "pcnalx";
+
+    // 每个 FTS 列的权重，顺序与建表时列顺序一致：标题命中比正文更相关
+    static final double[] COLUMN_WEIGHTS = {2.0, 1.0};
+
+    // 用户输入最多取前几个词，避免超长输入生成巨大的查询
+    private static final int MAX_TERMS = 8;
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private FeedSearchRanker() {
+    }
+
+    // ==================== 查询构造 ====================
+
+    // 把用户输入转换成 MATCH 表达式：按空白拆词，每个词加引号作为短语（屏蔽 FTS 语法字符），引号内末尾 * 做前缀匹配
+    // * 必须在引号内："kay"* 在 FTS4 中只匹配完整的词 kay，"kay*" 才匹配以 kay 开头的词
+    // 多个词之间是隐式 AND；没有可用的词时返回 null
+    public static String toMatchExpression(String input) {
+        List<String> terms = toTerms(input);
+        if (terms.isEmpty()) return null;
+
+        StringBuilder builder = new StringBuilder();
+        for (String term : terms) {
+            if (builder.length() > 0) builder.append(' ');
+            builder.append('"').append(term).append("*\"");
+        }
+        return builder.toString();
+    }
+
+    private static List<String> toTerms(String input) {
+        List<String> terms = new ArrayList<>();
+        if (input == null) return terms;
+
+        for (String raw : input.trim().split("\\s+")) {
+            String term = raw.replace("\"", "");
+            if (!term.isEmpty()) {
+                terms.add(term);
+            }
+            if (terms.size() == MAX_TERMS) break;
+        }
+        return terms;
+    }
+
+    // ==================== 前缀细化 ====================
+
+    // query 的命中是否一定是 base 命中的子集：base 的每个词都是 query 中某个词的前缀
+    // 词末尾追加字符只会让前缀匹配更严格，多出来的词只会多一个 AND 条件
+    // 按词典分词的文字（中日文、泰文等）追加字符可能改变前面的分词边界，不满足子集关系，一律返回 false
+    public static boolean narrows(String query, String base) {
+        List<String> baseTerms = toTerms(base);
+        if (baseTerms.isEmpty()) return false;
+        List<String> queryTerms = toTerms(query);
+
+        for (String baseTerm : baseTerms) {
+            if (usesDictionarySegmentation(baseTerm)) return false;
+            String prefix = baseTerm.toLowerCase(Locale.ROOT);
+            boolean covered = false;
+            for (String queryTerm : queryTerms) {
+                if (!usesDictionarySegmentation(queryTerm)
+                        && queryTerm.toLowerCase(Locale.ROOT).startsWith(prefix)) {
+                    covered = true;
+                    break;
+                }
+            }
+            if (!covered) return false;
+        }
+        return true;
+    }
+
+    private static boolean usesDictionarySegmentation(String term) {
+        for (int i = 0; i < term.length(); ) {
+            int codePoint = term.codePointAt(i);
+            switch (Character.UnicodeScript.of(codePoint)) {
+                case HAN:
+                case HIRAGANA:
+                case KATAKANA:
+                case THAI:
+                case LAO:
+                case KHMER:
+                case MYANMAR:
+                    return true;
+                default:
+                    i += Character.charCount(codePoint);
+            }
+        }
+        return false;
+    }
+
+    // ==================== 相关度 ====================
+
+    // matchinfo 返回本机字节序的 32 位无符号整数数组
+    public static int[] parseMatchInfo(byte[] blob) {
+        ByteBuffer buffer = ByteBuffer.wrap(blob).order(ByteOrder.nativeOrder());
+        int[] values = new int[blob.length / 4];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = buffer.getInt();
+        }
+        return values;
+    }
+
+    // 'pcnalx' 的布局：p, c, n, a[c], l[c], x[3 * c * p]
+    // x 中每个短语、每列三个值：本行命中次数、所有行命中次数、命中的行数
+    public static double bm25(int[] info, double[] weights) {
+        int phrases = info[0];
+        int columns = info[1];
+        long docCount = info[2] & 0xFFFFFFFFL;
+        int avgOffset = 3;
+        int lengthOffset = avgOffset + columns;
+        int hitsOffset = lengthOffset + columns;
+
+        double score = 0;
+        for (int phrase = 0; phrase < phrases; phrase++) {
+            for (int column = 0; column < columns; column++) {
+                int base = hitsOffset + 3 * (phrase * columns + column);
+                long hits = info[base] & 0xFFFFFFFFL;
+                if (hits == 0) continue;
+                long docsWithHits = info[base + 2] & 0xFFFFFFFFL;
+
+                double avgLength = Math.max(1, info[avgOffset + column] & 0xFFFFFFFFL);
+                double length = info[lengthOffset + column] & 0xFFFFFFFFL;
+                // 取正的 idf 变体，极常见的词也不会得到负分
+                double idf = Math.log(1 + (docCount - docsWithHits + 0.5) / (docsWithHits + 0.5));
+                double tf = hits * (K1 + 1) / (hits + K1 * (1 - B + B * length / avgLength));
+                double weight = column < weights.length ? weights[column] : 1.0;
+                score += weight * idf * tf;
+            }
+        }
+        return score;
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.bytedancehomework.data.DBHelper;
+
+import com.example.bytedancehomework.data.Item.FeedItem;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// 一次增量同步的变化集合，供界面按最小范围刷新
+public class FeedSyncResult {
+    private final List<FeedItem> inserted = new ArrayList<>();
+    private final List<FeedItem> updated = new ArrayList<>();
+    private final List<Long> deletedIds = new ArrayList<>();
+    private int unchangedCount = 0;
+
+    FeedSyncResult() {
+    }
+
+    void addInserted(FeedItem item) { inserted.add(item); }
+    void addUpdated(FeedItem item) { updated.add(item); }
+    void addDeleted(long id) { deletedIds.add(id); }
+    void addUnchanged() { unchangedCount++; }
+
+    public List<FeedItem> getInserted() { return Collections.unmodifiableList(inserted); }
+    public List<FeedItem> getUpdated() { return Collections.unmodifiableList(updated); }
+    public List<Long> getDeletedIds() { return Collections.unmodifiableList(deletedIds); }
+    public int getUnchangedCount() { return unchangedCount; }
+
+    public boolean hasChanges() {
+        return !inserted.isEmpty() || !updated.isEmpty() || !deletedIds.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "FeedSyncResult{" +
+                "inserted=" + inserted.size() +
+                ", updated=" + updated.size() +
+                ", deleted=" + deletedIds.size() +
+                ", unchanged=" + unchangedCount +
+                '}';
+    }
+}
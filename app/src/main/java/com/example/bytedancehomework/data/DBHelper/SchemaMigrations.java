@@ -0,0 +1,197 @@
+package com.example.bytedancehomework.data.DBHelper;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import static com.example.bytedancehomework.data.DBHelper.DatabaseHelper.*;
+
+// 版本化的 schema 迁移登记表：每个版本一步，onUpgrade 按版本顺序执行 (oldVersion, newVersion] 之间的步骤
+// 每一步都可以重复执行（IF NOT EXISTS、缺列才加列），降级后再升级也不会失败；任何一步都不删除表或数据
+// onUpgrade 在打开数据库的事务中执行，这里只做与数据量无关的轻量 DDL
+// 需要遍历已有数据的工作（建索引、回填）登记为 Backfill，打开数据库后由后台分批执行，进度保存在 schema_backfills 表中
+final class SchemaMigrations {
+    private static final String TAG = "SchemaMigrations";
+
+    // 全文索引回填：按 _id 顺序分批为升级前已有的行建立索引
+    // 名字与全文表相同，触发器条件按这个名字查询进度
+    static final String BACKFILL_FTS = TABLE_FEED_ITEMS_FTS;
+    static final String BACKFILL_INDEX_CREATED_AT = INDEX_FEED_ITEMS_CREATED_AT;
+    static final String BACKFILL_INDEX_FAVORITE = INDEX_FEED_ITEMS_FAVORITE;
+    static final String BACKFILL_INDEX_MEDIA_TYPE = INDEX_FEED_ITEMS_MEDIA_TYPE;
+
+    private SchemaMigrations() {
+    }
+
+    // ==================== 登记表 ====================
+
+    interface Step {
+        void apply(SQLiteDatabase db);
+    }
+
+    static final class Migration {
+        final int version;
+        final String description;
+        final Step step;
+
+        Migration(int version, String description, Step step) {
+            this.version = version;
+            this.description = description;
+            this.step = step;
+        }
+    }
+
+    // 按版本号升序排列，第 i 项把数据库从版本 i + 1 升到 i + 2
+    private static final Migration[] MIGRATIONS = {
+            new Migration(2, "添加视频相关字段", db -> {
+                addColumnIfMissing(db, TABLE_FEED_ITEMS, COLUMN_VIDEO_URL, "TEXT");
+                addColumnIfMissing(db, TABLE_FEED_ITEMS, COLUMN_VIDEO_COVER_URL, "TEXT");
+                addColumnIfMissing(db, TABLE_FEED_ITEMS, COLUMN_VIDEO_DURATION, "INTEGER DEFAULT 0");
+                addColumnIfMissing(db, TABLE_FEED_ITEMS, COLUMN_LAST_PLAY_POSITION, "INTEGER DEFAULT 0");
+                addColumnIfMissing(db, TABLE_FEED_ITEMS, COLUMN_VIDEO_WIDTH, "INTEGER DEFAULT 0");
+                addColumnIfMissing(db, TABLE_FEED_ITEMS, COLUMN_VIDEO_HEIGHT, "INTEGER DEFAULT 0");
+                addColumnIfMissing(db, TABLE_FEED_ITEMS, COLUMN_MEDIA_TYPE, "INTEGER DEFAULT 0");
+            }),
+            // 建索引要扫描整表，放到后台；建好之前分页查询照常可用，只是更慢
+            new Migration(3, "添加分页用的复合索引", db ->
+                    enqueueBackfill(db, BACKFILL_INDEX_CREATED_AT, 1)),
+            // 新加的列全为 NULL，唯一索引随即建好，同步依赖它保证 key 唯一
+            new Migration(4, "添加 server_key 列及唯一索引", db -> {
+                addColumnIfMissing(db, TABLE_FEED_ITEMS, COLUMN_SERVER_KEY, "TEXT");
+                db.execSQL(CREATE_INDEX_FEED_ITEMS_SERVER_KEY);
+            }),
+            new Migration(5, "添加曝光事件表", db ->
+                    db.execSQL(CREATE_TABLE_EXPOSURE_EVENTS)),
+            // 建表和触发器立即完成，之后新写入的行由触发器维护；已有的行由后台回填
+            // 降级后再升级时全文表已经存在且索引完整，不再回填，否则同一行会被索引两次
+            new Migration(6, "添加全文索引", db -> {
+                boolean existed = tableExists(db, TABLE_FEED_ITEMS_FTS);
+                createFullTextIndex(db);
+                if (!existed) {
+                    enqueueBackfill(db, BACKFILL_FTS, maxFeedItemId(db));
+                }
+            }),
+            new Migration(7, "添加收藏、媒体类型列表的索引", db -> {
+                enqueueBackfill(db, BACKFILL_INDEX_FAVORITE, 1);
+                enqueueBackfill(db, BACKFILL_INDEX_MEDIA_TYPE, 1);
+            }),
+            // 进度表在每次升级开始时就已创建，这一步让已是版本 7 的数据库也建出进度表
+            new Migration(8, "添加后台迁移进度表", db ->
+                    db.execSQL(CREATE_TABLE_SCHEMA_BACKFILLS)),
+    };
+
+    static void upgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        if (newVersion > MIGRATIONS.length + 1) {
+            throw new IllegalStateException("缺少升级到版本 " + newVersion + " 的迁移步骤");
+        }
+        // 早期版本的步骤也会登记回填，进度表必须先于所有步骤存在
+        db.execSQL(CREATE_TABLE_SCHEMA_BACKFILLS);
+
+        for (int version = oldVersion + 1; version <= newVersion; version++) {
+            Migration migration = MIGRATIONS[version - 2];
+            if (migration.version != version) {
+                throw new IllegalStateException("迁移登记表顺序错误：第 " + (version - 2) + " 项是版本 " + migration.version);
+            }
+            Log.d(TAG, "upgrade: " + (version - 1) + " -> " + version + " " + migration.description);
+            migration.step.apply(db);
+        }
+    }
+
+    // ==================== 后台回填 ====================
+
+    // 打开数据库后在后台分批执行的迁移，处理范围为 (progress, highWater]
+    interface Backfill {
+        // 处理至多 chunkSize 个单位，返回处理到的位置；返回值不小于 highWater 表示已完成
+        // 除 DeferredIndex 外都在调用方的事务中执行，与进度更新一起提交
+        long runChunk(SQLiteDatabase db, long progress, long highWater, int chunkSize);
+    }
+
+    // 只认识本版本登记过的名字；降级前由新版本登记的回填返回 null，原样保留
+    static Backfill backfill(String name) {
+        switch (name) {
+            case BACKFILL_FTS:
+                return SchemaMigrations::indexFullTextChunk;
+            case BACKFILL_INDEX_CREATED_AT:
+                return deferredIndex(CREATE_INDEX_FEED_ITEMS_CREATED_AT);
+            case BACKFILL_INDEX_FAVORITE:
+                return deferredIndex(CREATE_INDEX_FEED_ITEMS_FAVORITE);
+            case BACKFILL_INDEX_MEDIA_TYPE:
+                return deferredIndex(CREATE_INDEX_FEED_ITEMS_MEDIA_TYPE);
+            default:
+                return null;
+        }
+    }
+
+    // 登记一个回填；已存在时保留原有进度，重复执行升级步骤不会从头再来
+    static void enqueueBackfill(SQLiteDatabase db, String name, long highWater) {
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_BACKFILL_NAME, name);
+        values.put(COLUMN_BACKFILL_PROGRESS, 0);
+        values.put(COLUMN_BACKFILL_HIGH_WATER, highWater);
+        db.insertWithOnConflict(TABLE_SCHEMA_BACKFILLS, null, values, SQLiteDatabase.CONFLICT_IGNORE);
+    }
+
+    // 单条 CREATE INDEX 无法拆分，作为一个单位执行；索引建好前查询退回全表扫描
+    private static Backfill deferredIndex(String createIndexSql) {
+        return new DeferredIndex(createIndexSql);
+    }
+
+    // 建索引要扫描整表，但语句本身是原子的，不需要外层事务；调用方据此在事务外执行，见 DatabaseHelper.runBackfillChunk
+    // IF NOT EXISTS 保证建好索引后、记录进度前进程被杀时，重做这一步也不会失败
+    static final class DeferredIndex implements Backfill {
+        private final String createIndexSql;
+
+        DeferredIndex(String createIndexSql) {
+            this.createIndexSql = createIndexSql;
+        }
+
+        @Override
+        public long runChunk(SQLiteDatabase db, long progress, long highWater, int chunkSize) {
+            db.execSQL(createIndexSql);
+            return highWater;
+        }
+    }
+
+    // 取本批的最后一个 _id，把 (progress, end] 之间的行写入全文索引
+    // 这个范围内的行在回填到达之前不受触发器维护（见 DatabaseHelper 中的触发器条件），写入的总是当前文本，不会重复
+    private static long indexFullTextChunk(SQLiteDatabase db, long progress, long highWater, int chunkSize) {
+        String[] range = {String.valueOf(progress), String.valueOf(highWater)};
+        long end;
+        try (Cursor cursor = db.rawQuery("SELECT " + COLUMN_ID + " FROM " + TABLE_FEED_ITEMS +
+                " WHERE " + COLUMN_ID + " > ? AND " + COLUMN_ID + " <= ? ORDER BY " + COLUMN_ID +
+                " LIMIT 1 OFFSET " + (chunkSize - 1), range)) {
+            end = cursor.moveToFirst() ? cursor.getLong(0) : highWater;
+        }
+
+        db.execSQL("INSERT INTO " + TABLE_FEED_ITEMS_FTS + "(docid, " + COLUMN_TITLE + ", " + COLUMN_CONTENT + ") " +
+                        "SELECT " + COLUMN_ID + ", " + COLUMN_TITLE + ", " + COLUMN_CONTENT + " FROM " + TABLE_FEED_ITEMS +
+                        " WHERE " + COLUMN_ID + " > ? AND " + COLUMN_ID + " <= ?",
+                new Object[]{progress, end});
+        return end;
+    }
+
+    // ==================== 工具方法 ====================
+
+    // 重复执行时跳过已有的列，ALTER TABLE ADD COLUMN 本身只改表定义，与行数无关
+    static void addColumnIfMissing(SQLiteDatabase db, String table, String column, String definition) {
+        try (Cursor cursor = db.rawQuery("PRAGMA table_info(" + table + ")", null)) {
+            int nameIndex = cursor.getColumnIndexOrThrow("name");
+            while (cursor.moveToNext()) {
+                if (column.equalsIgnoreCase(cursor.getString(nameIndex))) return;
+            }
+        }
+        db.execSQL("ALTER TABLE " + table + " ADD COLUMN " + column + " " + definition);
+    }
+
+    private static boolean tableExists(SQLiteDatabase db, String table) {
+        return DatabaseUtils.longForQuery(db,
+                "SELECT COUNT(*) FROM sqlite_master WHERE type = 'table' AND name = ?", new String[]{table}) > 0;
+    }
+
+    private static long maxFeedItemId(SQLiteDatabase db) {
+        return DatabaseUtils.longForQuery(db,
+                "SELECT IFNULL(MAX(" + COLUMN_ID + "), 0) FROM " + TABLE_FEED_ITEMS, null);
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.bytedancehomework.data.Item;
+
+// 曝光事件：某条目可见比例达到阈值后持续了多久
+public class ExposureEvent {
+
+    private long id; // 数据库主键，写入前为 0
+    private long itemId;
+    private int threshold; // 可见比例阈值（百分比）：0 表示出现在屏幕上
+    private long startTime; // 达到阈值的时间（毫秒时间戳）
+    private long dwellMs; // 保持在阈值以上的时长（毫秒）
+
+    public ExposureEvent() {
+    }
+
+    public ExposureEvent(long itemId, int threshold, long startTime, long dwellMs) {
+        this.itemId = itemId;
+        this.threshold = threshold;
+        this.startTime = startTime;
+        this.dwellMs = dwellMs;
+    }
+
+    public long getId() { return id; }
+    public long getItemId() { return itemId; }
+    public int getThreshold() { return threshold; }
+    public long getStartTime() { return startTime; }
+    public long getDwellMs() { return dwellMs; }
+
+    public void setId(long id) { this.id = id; }
+    public void setItemId(long itemId) { this.itemId = itemId; }
+    public void setThreshold(int threshold) { this.threshold = threshold; }
+    public void setStartTime(long startTime) { this.startTime = startTime; }
+    public void setDwellMs(long dwellMs) { this.dwellMs = dwellMs; }
+
+    @Override
+    public String toString() {
+        return "ExposureEvent{" +
+                "id=" + id +
+                ", itemId=" + itemId +
+                ", threshold=" + threshold +
+                ", startTime=" + startTime +
+                ", dwellMs=" + dwellMs +
+                '}';
+    }
+}
@@ -3,10 +3,13 @@ package com.example.bytedancehomework.data.Item;
 import com.example.bytedancehomework.Enum.LayoutMode;
 import com.example.bytedancehomework.Enum.MediaType;
 
+import java.util.Objects;
+
 public class FeedItem {
 
     //公共部分
     private long id; // 数据库主键
+    private String serverKey; // 服务端稳定标识，增量同步时用于匹配本地行
     private String title;
     private String content;
 
@@ -63,6 +66,7 @@ public class FeedItem {
     }
     // Getter 方法
     public long getId() { return id; }
+    public String getServerKey() { return serverKey; }
     public String getTitle() { return title; }
     public String getContent() { return content; }
     public String getImageUrl() { return imageUrl; }
@@ -87,6 +91,7 @@ public class FeedItem {
 
     // Setter 方法
     public void setId(long id) { this.id = id; }
+    public void setServerKey(String serverKey) { this.serverKey = serverKey; }
     public void setTitle(String title) { this.title = title; }
     public void setContent(String content) { this.content = content; }
     public void setImageUrl(String imageUrl) { this.imageUrl = imageUrl; }
@@ -126,10 +131,55 @@ public class FeedItem {
         }
     }
 
+    // 复制一份：列表差异比较要求已提交列表中的对象不被原地修改
+    public FeedItem copy() {
+        FeedItem item = new FeedItem();
+        item.id = id;
+        item.serverKey = serverKey;
+        item.title = title;
+        item.content = content;
+        item.imageUrl = imageUrl;
+        item.imageWidth = imageWidth;
+        item.imageHeight = imageHeight;
+        item.videoUrl = videoUrl;
+        item.videoCoverUrl = videoCoverUrl;
+        item.videoDuration = videoDuration;
+        item.lastPlayPosition = lastPlayPosition;
+        item.videoWidth = videoWidth;
+        item.videoHeight = videoHeight;
+        item.createdAt = createdAt;
+        item.isFavorite = isFavorite;
+        item.layoutMode = layoutMode;
+        item.mediaType = mediaType;
+        return item;
+    }
+
+    // 展示内容是否一致（播放进度不影响展示，不参与比较）
+    public boolean contentEquals(FeedItem other) {
+        if (other == null) return false;
+        return id == other.id
+                && imageWidth == other.imageWidth
+                && imageHeight == other.imageHeight
+                && videoDuration == other.videoDuration
+                && videoWidth == other.videoWidth
+                && videoHeight == other.videoHeight
+                && createdAt == other.createdAt
+                && isFavorite == other.isFavorite
+                && layoutMode == other.layoutMode
+                && mediaType == other.mediaType
+                && Objects.equals(serverKey, other.serverKey)
+                && Objects.equals(title, other.title)
+                && Objects.equals(content, other.content)
+                && Objects.equals(imageUrl, other.imageUrl)
+                && Objects.equals(videoUrl, other.videoUrl)
+                && Objects.equals(videoCoverUrl, other.videoCoverUrl);
+    }
+
     @Override
     public String toString() {
         return "FeedItem{" +
                 "id=" + id +
+                ", serverKey='" + serverKey + '\'' +
                 ", title='" + title + '\'' +
                 ", content='" + content + '\'' +
                 ", imageUrl='" + imageUrl + '\'' +
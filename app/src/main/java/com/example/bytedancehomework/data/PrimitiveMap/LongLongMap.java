@@ -0,0 +1,160 @@
+package com.example.bytedancehomework.data.PrimitiveMap;
+
+import java.util.Arrays;
+
+// long -> long 的开放寻址哈希表（线性探测），键值都不装箱，get/put/remove 不分配对象
+// 删除使用后移补位而不是墓碑标记，频繁增删时探测链不会变长；只有扩容时才分配新数组
+// 非线程安全
+public class LongLongMap {
+    private static final int DEFAULT_CAPACITY = 64;
+    // 0 作为空槽标记，键 0 单独存放
+    private static final long FREE_KEY = 0L;
+
+    private long[] keys;
+    private long[] values;
+    private int mask;
+    private int size;
+    private int resizeThreshold;
+
+    private boolean hasFreeKey;
+    private long freeKeyValue;
+
+    public LongLongMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public LongLongMap(int expectedSize) {
+        allocate(PrimitiveMaps.tableSizeFor(expectedSize));
+    }
+
+    public long get(long key, long defaultValue) {
+        if (key == FREE_KEY) return hasFreeKey ? freeKeyValue : defaultValue;
+
+        int index = PrimitiveMaps.hash(key) & mask;
+        while (true) {
+            long current = keys[index];
+            if (current == FREE_KEY) return defaultValue;
+            if (current == key) return values[index];
+            index = (index + 1) & mask;
+        }
+    }
+
+    public boolean containsKey(long key) {
+        if (key == FREE_KEY) return hasFreeKey;
+
+        int index = PrimitiveMaps.hash(key) & mask;
+        while (true) {
+            long current = keys[index];
+            if (current == FREE_KEY) return false;
+            if (current == key) return true;
+            index = (index + 1) & mask;
+        }
+    }
+
+    public void put(long key, long value) {
+        if (key == FREE_KEY) {
+            if (!hasFreeKey) size++;
+            hasFreeKey = true;
+            freeKeyValue = value;
+            return;
+        }
+
+        int index = PrimitiveMaps.hash(key) & mask;
+        while (true) {
+            long current = keys[index];
+            if (current == FREE_KEY) {
+                keys[index] = key;
+                values[index] = value;
+                if (++size > resizeThreshold) rehash(keys.length * 2);
+                return;
+            }
+            if (current == key) {
+                values[index] = value;
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    // 删除并返回原值，不存在时返回 defaultValue
+    public long remove(long key, long defaultValue) {
+        if (key == FREE_KEY) {
+            if (!hasFreeKey) return defaultValue;
+            hasFreeKey = false;
+            size--;
+            return freeKeyValue;
+        }
+
+        int index = PrimitiveMaps.hash(key) & mask;
+        while (true) {
+            long current = keys[index];
+            if (current == FREE_KEY) return defaultValue;
+            if (current == key) {
+                long old = values[index];
+                shiftKeys(index);
+                size--;
+                return old;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, FREE_KEY);
+        hasFreeKey = false;
+        size = 0;
+    }
+
+    // ==================== 内部实现 ====================
+
+    // 删除 index 处的键后，把同一探测链上后面的键前移，保证查找不会提前遇到空槽
+    private void shiftKeys(int index) {
+        int last;
+        while (true) {
+            last = index;
+            index = (index + 1) & mask;
+            while (true) {
+                long current = keys[index];
+                if (current == FREE_KEY) {
+                    keys[last] = FREE_KEY;
+                    return;
+                }
+                int home = PrimitiveMaps.hash(current) & mask;
+                // home 不在 (last, index] 循环区间内时，该键可以移到 last
+                if (last <= index ? (last >= home || home > index) : (last >= home && home > index)) {
+                    break;
+                }
+                index = (index + 1) & mask;
+            }
+            keys[last] = keys[index];
+            values[last] = values[index];
+        }
+    }
+
+    private void rehash(int newCapacity) {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(newCapacity);
+        size = hasFreeKey ? 1 : 0;
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key != FREE_KEY) put(key, oldValues[i]);
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new long[capacity];
+        mask = capacity - 1;
+        resizeThreshold = (int) (capacity * PrimitiveMaps.LOAD_FACTOR);
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.bytedancehomework.data.PrimitiveMap;
+
+// 原始类型哈希表共用的哈希与容量计算
+final class PrimitiveMaps {
+    static final float LOAD_FACTOR = 0.5f;
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private PrimitiveMaps() {
+    }
+
+    // 斐波那契散列，连续的 id 也能均匀分布
+    static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    // 能在负载因子内容纳 expectedSize 个元素的最小 2 的幂
+    static int tableSizeFor(int expectedSize) {
+        long needed = (long) Math.ceil(Math.max(expectedSize, 2) / (double) LOAD_FACTOR);
+        int capacity = Integer.highestOneBit((int) Math.min(needed, MAX_CAPACITY));
+        return capacity < needed ? Math.min(capacity << 1, MAX_CAPACITY) : capacity;
+    }
+}
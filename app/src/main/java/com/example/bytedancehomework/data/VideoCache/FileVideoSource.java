@@ -0,0 +1,54 @@
+package com.example.bytedancehomework.data.VideoCache;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+
+// 本地文件数据源：url 的路径部分映射到 rootDir 下的文件，用作测试时的替身服务器
+public class FileVideoSource implements VideoSource {
+    private final File rootDir;
+    private int openCount = 0;
+
+    public FileVideoSource(File rootDir) {
+        this.rootDir = rootDir;
+    }
+
+    @Override
+    public long getContentLength(String url) throws IOException {
+        return resolve(url).length();
+    }
+
+    @Override
+    public synchronized InputStream openRange(String url, long start, long length) throws IOException {
+        openCount++;
+        try (RandomAccessFile file = new RandomAccessFile(resolve(url), "r")) {
+            long end = Math.min(start + length, file.length());
+            byte[] data = new byte[(int) Math.max(0, end - start)];
+            file.seek(start);
+            file.readFully(data);
+            return new ByteArrayInputStream(data);
+        }
+    }
+
+    // 实际访问数据源的次数，用于验证缓存命中
+    public synchronized int getOpenCount() {
+        return openCount;
+    }
+
+    private File resolve(String url) throws FileNotFoundException {
+        String path = url;
+        int scheme = path.indexOf("://");
+        if (scheme >= 0) {
+            int slash = path.indexOf('/', scheme + 3);
+            path = slash >= 0 ? path.substring(slash + 1) : "";
+        }
+        File file = new File(rootDir, path);
+        if (!file.isFile()) {
+            throw new FileNotFoundException(url);
+        }
+        return file;
+    }
+}
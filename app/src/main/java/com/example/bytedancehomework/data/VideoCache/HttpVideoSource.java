@@ -0,0 +1,72 @@
+package com.example.bytedancehomework.data.VideoCache;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+// 通过 HTTP Range 请求读取远程视频
+public class HttpVideoSource implements VideoSource {
+    private static final int CONNECT_TIMEOUT_MS = 8000;
+    private static final int READ_TIMEOUT_MS = 15000;
+
+    @Override
+    public long getContentLength(String url) throws IOException {
+        HttpURLConnection connection = open(url);
+        try {
+            connection.setRequestMethod("HEAD");
+            checkResponse(connection);
+            return connection.getContentLengthLong();
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    @Override
+    public InputStream openRange(String url, long start, long length) throws IOException {
+        HttpURLConnection connection = open(url);
+        connection.setRequestProperty("Range", "bytes=" + start + "-" + (start + length - 1));
+        int code = checkResponse(connection);
+
+        InputStream in = connection.getInputStream();
+        if (code != HttpURLConnection.HTTP_PARTIAL && start > 0) {
+            // 服务端不支持 Range，只能跳过前面的字节
+            long skipped = 0;
+            while (skipped < start) {
+                long n = in.skip(start - skipped);
+                if (n <= 0) {
+                    connection.disconnect();
+                    throw new IOException("服务端不支持 Range 且无法跳转到 " + start + ": " + url);
+                }
+                skipped += n;
+            }
+        }
+        return new FilterInputStream(in) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    connection.disconnect();
+                }
+            }
+        };
+    }
+
+    private HttpURLConnection open(String url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+        connection.setReadTimeout(READ_TIMEOUT_MS);
+        return connection;
+    }
+
+    private int checkResponse(HttpURLConnection connection) throws IOException {
+        int code = connection.getResponseCode();
+        if (code != HttpURLConnection.HTTP_OK && code != HttpURLConnection.HTTP_PARTIAL) {
+            connection.disconnect();
+            throw new IOException("HTTP " + code + ": " + connection.getURL());
+        }
+        return code;
+    }
+}
@@ -0,0 +1,234 @@
+package com.example.bytedancehomework.data.VideoCache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// 本地 HTTP 代理：只监听 127.0.0.1，播放器请求 proxyUrl(原地址)，代理按 Range 从分段缓存读取数据返回
+// 支持 bytes=a-b、bytes=a-、bytes=-n 三种 Range 形式
+public class VideoCacheProxy {
+    private static final Logger LOGGER = Logger.getLogger("VideoCacheProxy");
+    private static final int MAX_CONNECTIONS = 4;
+    private static final int MAX_HEADER_BYTES = 8 * 1024;
+
+    private final VideoSegmentCache cache;
+    private ServerSocket serverSocket;
+    private ExecutorService connectionExecutor;
+    private Thread acceptThread;
+    private volatile boolean running = false;
+
+    public VideoCacheProxy(VideoSegmentCache cache) {
+        this.cache = cache;
+    }
+
+    // ==================== 启动与停止 ====================
+
+    public synchronized void start() throws IOException {
+        if (running) return;
+
+        serverSocket = new ServerSocket(0, 8, InetAddress.getByName("127.0.0.1"));
+        connectionExecutor = new ThreadPoolExecutor(MAX_CONNECTIONS, MAX_CONNECTIONS,
+                30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "video-proxy-conn");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ((ThreadPoolExecutor) connectionExecutor).allowCoreThreadTimeOut(true);
+        running = true;
+
+        acceptThread = new Thread(this::acceptLoop, "video-proxy-accept");
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+    }
+
+    public synchronized void stop() {
+        running = false;
+        try {
+            if (serverSocket != null) serverSocket.close();
+        } catch (IOException ignored) {
+        }
+        if (connectionExecutor != null) connectionExecutor.shutdownNow();
+        serverSocket = null;
+        connectionExecutor = null;
+        acceptThread = null;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public int getPort() {
+        return serverSocket != null ? serverSocket.getLocalPort() : -1;
+    }
+
+    // 把原始地址转换成经过代理的地址；代理未启动或不是 http(s) 地址时原样返回
+    public String proxyUrl(String url) {
+        if (!running || !isHttpUrl(url)) return url;
+        try {
+            return "http://127.0.0.1:" + getPort() + "/" + URLEncoder.encode(url, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            return url;
+        }
+    }
+
+    // 只有 http(s) 地址能由代理回源，android.resource://、file://、content:// 等交给播放器直接打开
+    public static boolean isHttpUrl(String url) {
+        if (url == null) return false;
+        String lower = url.trim().toLowerCase(Locale.ROOT);
+        return lower.startsWith("http://") || lower.startsWith("https://");
+    }
+
+    // ==================== 请求处理 ====================
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                try {
+                    connectionExecutor.execute(() -> handle(socket));
+                } catch (RejectedExecutionException e) {
+                    closeQuietly(socket);
+                }
+            } catch (IOException e) {
+                if (running) LOGGER.log(Level.WARNING, "accept failed", e);
+            }
+        }
+    }
+
+    private void handle(Socket socket) {
+        try {
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+
+            String requestLine = readLine(in);
+            if (requestLine == null) return;
+            String rangeHeader = null;
+            String line;
+            while ((line = readLine(in)) != null && !line.isEmpty()) {
+                int colon = line.indexOf(':');
+                if (colon > 0 && line.substring(0, colon).trim().equalsIgnoreCase("Range")) {
+                    rangeHeader = line.substring(colon + 1).trim();
+                }
+            }
+
+            String[] parts = requestLine.split(" ");
+            if (parts.length < 2 || parts[1].length() < 2) {
+                writeStatus(out, "400 Bad Request", 0, null);
+                return;
+            }
+            boolean headOnly = "HEAD".equals(parts[0]);
+            String url = URLDecoder.decode(parts[1].substring(1), "UTF-8");
+
+            long contentLength = cache.getContentLength(url);
+            if (contentLength < 0) {
+                writeStatus(out, "502 Bad Gateway", 0, null);
+                return;
+            }
+
+            long[] range = parseRange(rangeHeader, contentLength);
+            if (range == null) {
+                writeStatus(out, "416 Range Not Satisfiable", 0, "bytes */" + contentLength);
+                return;
+            }
+            long start = range[0];
+            long length = range[1] - range[0] + 1;
+            boolean partial = rangeHeader != null;
+
+            writeStatus(out, partial ? "206 Partial Content" : "200 OK", length,
+                    partial ? "bytes " + start + "-" + range[1] + "/" + contentLength : null);
+            if (!headOnly) {
+                cache.readRange(url, start, length, out);
+            }
+            out.flush();
+        } catch (SocketException e) {
+            // 播放器 seek 或释放时会主动断开连接，属于正常情况
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "proxy request failed", e);
+        } finally {
+            closeQuietly(socket);
+        }
+    }
+
+    // 返回 [start, end]（含 end），无法满足时返回 null；没有 Range 头时返回整个文件
+    static long[] parseRange(String header, long contentLength) {
+        if (header == null) {
+            return contentLength > 0 ? new long[]{0, contentLength - 1} : null;
+        }
+        String value = header.toLowerCase(Locale.ROOT);
+        if (!value.startsWith("bytes=") || value.contains(",")) return null;
+        value = value.substring("bytes=".length()).trim();
+
+        int dash = value.indexOf('-');
+        if (dash < 0) return null;
+        try {
+            String first = value.substring(0, dash).trim();
+            String second = value.substring(dash + 1).trim();
+            long start;
+            long end;
+            if (first.isEmpty()) {
+                // bytes=-n：最后 n 个字节
+                long suffix = Long.parseLong(second);
+                start = Math.max(0, contentLength - suffix);
+                end = contentLength - 1;
+            } else {
+                start = Long.parseLong(first);
+                end = second.isEmpty() ? contentLength - 1 : Math.min(Long.parseLong(second), contentLength - 1);
+            }
+            if (start >= contentLength || start > end) return null;
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private void writeStatus(OutputStream out, String status, long contentLength, String contentRange) throws IOException {
+        StringBuilder builder = new StringBuilder();
+        builder.append("HTTP/1.1 ").append(status).append("\r\n");
+        builder.append("Content-Type: video/mp4\r\n");
+        builder.append("Accept-Ranges: bytes\r\n");
+        builder.append("Content-Length: ").append(contentLength).append("\r\n");
+        if (contentRange != null) {
+            builder.append("Content-Range: ").append(contentRange).append("\r\n");
+        }
+        builder.append("Connection: close\r\n\r\n");
+        out.write(builder.toString().getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder builder = new StringBuilder();
+        int c;
+        while ((c = in.read()) != -1) {
+            if (c == '\n') break;
+            if (c != '\r') builder.append((char) c);
+            if (builder.length() > MAX_HEADER_BYTES) throw new IOException("请求头过长");
+        }
+        if (c == -1 && builder.length() == 0) return null;
+        return builder.toString();
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
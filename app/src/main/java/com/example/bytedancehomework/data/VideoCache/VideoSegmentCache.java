@@ -0,0 +1,312 @@
+package com.example.bytedancehomework.data.VideoCache;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// 视频分段磁盘缓存：视频按固定大小切成分段，每个分段一个文件，总大小受字节预算限制，超出时按 LRU 淘汰
+// 读取任意字节区间时只向数据源请求缺失的分段，重播、回滚、自动播放同一视频不再重新下载
+// 纯 Java 实现，不依赖 Android，可在本地单元测试中配合 FileVideoSource 使用
+public class VideoSegmentCache {
+    public static final int DEFAULT_SEGMENT_SIZE = 256 * 1024;
+    // 无法从时长估算码率时按 1 Mbps 估算预取字节数
+    private static final long DEFAULT_BYTES_PER_SECOND = 128 * 1024;
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String LENGTH_SUFFIX = ".len";
+
+    private final File cacheDir;
+    private final VideoSource source;
+    private final long maxBytes;
+    private final int segmentSize;
+
+    // 分段文件名 -> 字节数，按访问顺序排列，头部为最久未使用
+    private final LinkedHashMap<String, Long> segments = new LinkedHashMap<>(64, 0.75f, true);
+    private final Map<String, Long> contentLengths = new HashMap<>();
+    private long totalBytes = 0;
+
+    // 命中统计
+    private long segmentHits = 0;
+    private long segmentMisses = 0;
+    private long bytesFromCache = 0;
+    private long bytesFromSource = 0;
+
+    public VideoSegmentCache(File cacheDir, VideoSource source, long maxBytes) {
+        this(cacheDir, source, maxBytes, DEFAULT_SEGMENT_SIZE);
+    }
+
+    public VideoSegmentCache(File cacheDir, VideoSource source, long maxBytes, int segmentSize) {
+        this.cacheDir = cacheDir;
+        this.source = source;
+        this.maxBytes = maxBytes;
+        this.segmentSize = segmentSize;
+        cacheDir.mkdirs();
+        loadIndex();
+    }
+
+    // ==================== 读取 ====================
+
+    public long getContentLength(String url) throws IOException {
+        String key = keyOf(url);
+        synchronized (this) {
+            Long cached = contentLengths.get(key);
+            if (cached != null) return cached;
+        }
+
+        File lengthFile = new File(cacheDir, key + LENGTH_SUFFIX);
+        long length = readLengthFile(lengthFile);
+        if (length < 0) {
+            length = source.getContentLength(url);
+            if (length >= 0) writeLengthFile(lengthFile, length);
+        }
+        if (length >= 0) {
+            synchronized (this) {
+                contentLengths.put(key, length);
+            }
+        }
+        return length;
+    }
+
+    // 把 [start, start + length) 区间写入 out，按分段读取，缺失的分段从数据源拉取并写入缓存
+    public void readRange(String url, long start, long length, OutputStream out) throws IOException {
+        long contentLength = getContentLength(url);
+        if (contentLength < 0) throw new IOException("未知的视频长度: " + url);
+
+        String key = keyOf(url);
+        long end = Math.min(start + length, contentLength);
+        long position = start;
+        while (position < end) {
+            int index = (int) (position / segmentSize);
+            byte[] segment = getSegment(url, key, index, contentLength);
+
+            int offset = (int) (position - (long) index * segmentSize);
+            int count = (int) Math.min(segment.length - offset, end - position);
+            if (count <= 0) throw new IOException("分段数据不完整: " + url + " #" + index);
+            out.write(segment, offset, count);
+            position += count;
+        }
+    }
+
+    // 预取视频开头的 seconds 秒；已知时长时按平均码率换算字节数，否则按默认码率估算
+    public void prefetch(String url, int seconds, long durationMs) throws IOException {
+        long contentLength = getContentLength(url);
+        if (contentLength <= 0) return;
+
+        long bytes = durationMs > 0
+                ? contentLength * seconds * 1000L / durationMs
+                : DEFAULT_BYTES_PER_SECOND * seconds;
+        bytes = Math.min(Math.max(bytes, segmentSize), contentLength);
+
+        String key = keyOf(url);
+        int lastIndex = (int) ((bytes - 1) / segmentSize);
+        for (int index = 0; index <= lastIndex; index++) {
+            getSegment(url, key, index, contentLength);
+        }
+    }
+
+    public synchronized boolean isCached(String url, int index) {
+        return segments.containsKey(segmentName(keyOf(url), index));
+    }
+
+    // ==================== 统计 ====================
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public synchronized long getSegmentHits() {
+        return segmentHits;
+    }
+
+    public synchronized long getSegmentMisses() {
+        return segmentMisses;
+    }
+
+    public synchronized float getHitRate() {
+        long total = segmentHits + segmentMisses;
+        return total == 0 ? 0f : (float) segmentHits / total;
+    }
+
+    public synchronized float getByteHitRate() {
+        long total = bytesFromCache + bytesFromSource;
+        return total == 0 ? 0f : (float) bytesFromCache / total;
+    }
+
+    public synchronized String report() {
+        return "segments=" + segments.size() + ", bytes=" + totalBytes + "/" + maxBytes +
+                ", hits=" + segmentHits + ", misses=" + segmentMisses +
+                ", hitRate=" + getHitRate() + ", byteHitRate=" + getByteHitRate();
+    }
+
+    // ==================== 分段读写 ====================
+
+    private byte[] getSegment(String url, String key, int index, long contentLength) throws IOException {
+        String name = segmentName(key, index);
+        File file = new File(cacheDir, name);
+
+        boolean indexed;
+        synchronized (this) {
+            indexed = segments.get(name) != null; // get 同时更新访问顺序
+        }
+        if (indexed) {
+            // 读文件不持有锁；期间被淘汰时按未命中处理
+            byte[] data = readFile(file);
+            synchronized (this) {
+                if (data != null) {
+                    segmentHits++;
+                    bytesFromCache += data.length;
+                    return data;
+                }
+                Long size = segments.remove(name);
+                if (size != null) totalBytes -= size;
+            }
+        }
+        synchronized (this) {
+            segmentMisses++;
+        }
+
+        // 拉取数据不持有锁，避免一个慢请求阻塞其他视频的缓存读取
+        long segmentStart = (long) index * segmentSize;
+        int segmentLength = (int) Math.min(segmentSize, contentLength - segmentStart);
+        byte[] data = new byte[segmentLength];
+        try (InputStream in = source.openRange(url, segmentStart, segmentLength)) {
+            int read = 0;
+            while (read < segmentLength) {
+                int n = in.read(data, read, segmentLength - read);
+                if (n < 0) break;
+                read += n;
+            }
+            if (read < segmentLength) {
+                data = Arrays.copyOf(data, read);
+            }
+        }
+
+        synchronized (this) {
+            bytesFromSource += data.length;
+        }
+        // 只缓存完整的分段，残缺数据直接返回给调用方
+        if (data.length == segmentLength) {
+            store(name, file, data);
+        }
+        return data;
+    }
+
+    private void store(String name, File file, byte[] data) {
+        File temp = new File(cacheDir, name + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(data);
+        } catch (IOException e) {
+            temp.delete();
+            return;
+        }
+
+        synchronized (this) {
+            if (!temp.renameTo(file)) {
+                temp.delete();
+                return;
+            }
+            Long previous = segments.put(name, (long) data.length);
+            if (previous != null) totalBytes -= previous;
+            totalBytes += data.length;
+            trimToBudget();
+        }
+    }
+
+    private void trimToBudget() {
+        Iterator<Map.Entry<String, Long>> iterator = segments.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, Long> entry = iterator.next();
+            iterator.remove();
+            totalBytes -= entry.getValue();
+            new File(cacheDir, entry.getKey()).delete();
+        }
+    }
+
+    // 启动时扫描缓存目录重建索引，按修改时间近似恢复 LRU 顺序
+    private void loadIndex() {
+        File[] files = cacheDir.listFiles();
+        if (files == null) return;
+
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File file : files) {
+            String name = file.getName();
+            if (name.endsWith(".tmp")) {
+                file.delete();
+            } else if (name.endsWith(SEGMENT_SUFFIX)) {
+                segments.put(name, file.length());
+                totalBytes += file.length();
+            }
+        }
+        trimToBudget();
+    }
+
+    // ==================== 工具方法 ====================
+
+    private String segmentName(String key, int index) {
+        return key + "_" + index + SEGMENT_SUFFIX;
+    }
+
+    static String keyOf(String url) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(url.getBytes(StandardCharsets.UTF_8));
+            StringBuilder builder = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                builder.append(Character.forDigit((b >> 4) & 0xF, 16));
+                builder.append(Character.forDigit(b & 0xF, 16));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(url.hashCode());
+        }
+    }
+
+    private static byte[] readFile(File file) {
+        long length = file.length();
+        if (length <= 0) return null;
+        byte[] data = new byte[(int) length];
+        try (FileInputStream in = new FileInputStream(file)) {
+            int read = 0;
+            while (read < data.length) {
+                int n = in.read(data, read, data.length - read);
+                if (n < 0) return null;
+                read += n;
+            }
+            return data;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static long readLengthFile(File file) {
+        byte[] data = readFile(file);
+        if (data == null) return -1;
+        try {
+            return Long.parseLong(new String(data, StandardCharsets.UTF_8).trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static void writeLengthFile(File file, long length) {
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(String.valueOf(length).getBytes(StandardCharsets.UTF_8));
+        } catch (IOException ignored) {
+            // 只是少了一次网络请求的优化，写失败不影响播放
+        }
+    }
+}
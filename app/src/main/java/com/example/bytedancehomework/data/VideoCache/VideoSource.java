@@ -0,0 +1,13 @@
+package com.example.bytedancehomework.data.VideoCache;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+// 视频数据源：按字节区间读取原始视频，网络与本地文件各有一个实现
+public interface VideoSource {
+    // 视频总字节数，未知时返回 -1
+    long getContentLength(String url) throws IOException;
+
+    // 读取 [start, start + length) 区间，调用方负责关闭返回的流
+    InputStream openRange(String url, long start, long length) throws IOException;
+}
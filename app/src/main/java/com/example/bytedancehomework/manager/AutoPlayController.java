@@ -0,0 +1,276 @@
+package com.example.bytedancehomework.manager;
+
+import android.graphics.Rect;
+import android.util.Log;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.bytedancehomework.data.Item.FeedItem;
+import com.example.bytedancehomework.ui.Adapter.VideoViewHolder;
+
+import java.util.Arrays;
+
+// 自动播放控制：由滚动事件驱动，只遍历屏幕上的子 View，每帧开销与可见条目数成正比
+// 滚动停止（或拖动中防抖结束）后播放可见面积最大的视频，惯性滑动期间不切换，滑出屏幕的视频立即暂停
+public class AutoPlayController {
+    private static final String TAG = "AutoPlayController";
+
+    // 可见面积达到该比例才开始播放
+    private static final float PLAY_THRESHOLD = 0.6f;
+    // 正在播放的视频可见面积低于该比例时暂停
+    private static final float PAUSE_THRESHOLD = 0.2f;
+    // 拖动过程中的防抖间隔
+    private static final long DEBOUNCE_MS = 150;
+
+    private RecyclerView recyclerView;
+    private VideoPlayManager videoPlayManager;
+    private RecyclerView.OnScrollListener scrollListener;
+    private final Runnable evaluateRunnable = this::evaluate;
+    private boolean isTracking = false;
+    // 被本控制器（而非用户）暂停的视频，滚回屏幕时可以自动恢复
+    private long autoPausedItemId = -1;
+    // 刚播完、后面没有可接续的视频；离开屏幕之前不再被自动选中，否则停在原处会从头重播
+    private long completedItemId = -1;
+
+    // 计算可见比例用的矩形，每次评估复用
+    private final Rect viewportRect = new Rect();
+    private final Rect childRect = new Rect();
+    private final Rect scratchRect = new Rect();
+
+    // 预准备候选的位置缓冲，避免每次分配
+    private int[] candidatePositions = new int[16];
+
+    // ==================== 公共方法 ====================
+
+    public void startTrack(RecyclerView recyclerView, VideoPlayManager videoPlayManager) {
+        isTracking = true;
+        this.recyclerView = recyclerView;
+        this.videoPlayManager = videoPlayManager;
+
+        scrollListener = new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+                if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+                    evaluateNow();
+                } else if (newState == RecyclerView.SCROLL_STATE_SETTLING) {
+                    // 惯性滑动时不切换，等停下来再决定
+                    recyclerView.removeCallbacks(evaluateRunnable);
+                }
+            }
+
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                pauseIfScrolledOut();
+                if (recyclerView.getScrollState() == RecyclerView.SCROLL_STATE_DRAGGING) {
+                    requestEvaluate();
+                }
+            }
+        };
+        recyclerView.addOnScrollListener(scrollListener);
+    }
+
+    public void stopTrack() {
+        if (!isTracking) return;
+
+        isTracking = false;
+        recyclerView.removeCallbacks(evaluateRunnable);
+        recyclerView.removeOnScrollListener(scrollListener);
+        scrollListener = null;
+        recyclerView = null;
+        videoPlayManager = null;
+        completedItemId = -1;
+    }
+
+    // 防抖：在 DEBOUNCE_MS 内没有新的请求时才评估
+    public void requestEvaluate() {
+        if (!isTracking) return;
+        recyclerView.removeCallbacks(evaluateRunnable);
+        recyclerView.postDelayed(evaluateRunnable, DEBOUNCE_MS);
+    }
+
+    // 等待当前布局完成后立即评估，用于数据加载完成、滚动停止等场景
+    public void evaluateNow() {
+        if (!isTracking) return;
+        recyclerView.removeCallbacks(evaluateRunnable);
+        recyclerView.post(evaluateRunnable);
+    }
+
+    // ==================== 播放选择 ====================
+
+    // 选出可见面积最大的视频播放；若就是当前视频则保持不动，没有合适的视频时暂停当前播放
+    private void evaluate() {
+        if (!isTracking) return;
+        if (recyclerView.getScrollState() == RecyclerView.SCROLL_STATE_SETTLING) return;
+
+        FeedItem playing = videoPlayManager.getCurrentPlayingItem();
+        if (playing != null && playing.getId() == completedItemId) {
+            // 用户手动重新播放了它，照常参与选择
+            completedItemId = -1;
+        }
+
+        VideoViewHolder best = null;
+        float bestRatio = PLAY_THRESHOLD;
+        boolean completedVisible = false;
+        for (int i = 0; i < recyclerView.getChildCount(); i++) {
+            View child = recyclerView.getChildAt(i);
+            RecyclerView.ViewHolder holder = recyclerView.getChildViewHolder(child);
+            if (!(holder instanceof VideoViewHolder)) continue;
+
+            FeedItem item = ((VideoViewHolder) holder).getCurrentItem();
+            if (item == null || !item.isVideo()) continue;
+
+            float ratio = visibleRatio(child);
+            if (item.getId() == completedItemId) {
+                completedVisible |= ratio > 0f;
+                continue;
+            }
+            if (ratio >= bestRatio) {
+                best = (VideoViewHolder) holder;
+                bestRatio = ratio;
+            }
+        }
+        // 播完的视频已滑出屏幕，再滑回来时可以重新自动播放
+        if (!completedVisible) {
+            completedItemId = -1;
+        }
+
+        if (best == null) {
+            autoPause(playing);
+            return;
+        }
+        FeedItem target = best.getCurrentItem();
+        if (playing != null && playing.getId() == target.getId() &&
+                (videoPlayManager.isPlaying(target) || autoPausedItemId != target.getId())) {
+            // 已在播放，或是用户手动暂停的，保持不动
+            return;
+        }
+        autoPausedItemId = -1;
+
+        // setupVideoPlayback 内部会先暂停旧视频，完成播放权交接
+        Log.d(TAG, "evaluate: 切换播放 " + target.getId() + "，可见比例 " + bestRatio);
+        best.playVideo();
+    }
+
+    // 当前视频播完后，交给它之后第一个在屏幕上的视频
+    public void playNextAfter(FeedItem item) {
+        if (!isTracking || item == null) return;
+        completedItemId = item.getId();
+
+        int fromPosition = positionOf(item);
+        if (fromPosition == RecyclerView.NO_POSITION) {
+            // 播完的条目已不在屏幕上，按可见面积重新选择
+            evaluateNow();
+            return;
+        }
+
+        VideoViewHolder next = null;
+        int nextPosition = Integer.MAX_VALUE;
+        for (int i = 0; i < recyclerView.getChildCount(); i++) {
+            View child = recyclerView.getChildAt(i);
+            RecyclerView.ViewHolder holder = recyclerView.getChildViewHolder(child);
+            if (!(holder instanceof VideoViewHolder)) continue;
+
+            int position = recyclerView.getChildAdapterPosition(child);
+            FeedItem candidate = ((VideoViewHolder) holder).getCurrentItem();
+            if (position > fromPosition && position < nextPosition &&
+                    candidate != null && candidate.isVideo() && visibleRatio(child) > 0f) {
+                next = (VideoViewHolder) holder;
+                nextPosition = position;
+            }
+        }
+
+        if (next != null) {
+            Log.d(TAG, "playNextAfter: 播放 " + nextPosition);
+            next.playVideo();
+        }
+    }
+
+    // 当前视频播放时，提前准备屏幕上排在它之后的视频，数量受播放器池容量限制
+    public void preloadAfter(FeedItem item) {
+        if (!isTracking || item == null) return;
+
+        int fromPosition = positionOf(item);
+        if (fromPosition == RecyclerView.NO_POSITION) return;
+
+        // 子 View 的顺序不一定与位置一致（如网格布局），先收集位置再排序
+        int count = 0;
+        for (int i = 0; i < recyclerView.getChildCount(); i++) {
+            View child = recyclerView.getChildAt(i);
+            RecyclerView.ViewHolder holder = recyclerView.getChildViewHolder(child);
+            if (!(holder instanceof VideoViewHolder)) continue;
+            int position = recyclerView.getChildAdapterPosition(child);
+            if (position <= fromPosition) continue;
+
+            if (count == candidatePositions.length) {
+                candidatePositions = Arrays.copyOf(candidatePositions, count * 2);
+            }
+            candidatePositions[count++] = position;
+        }
+        Arrays.sort(candidatePositions, 0, count);
+
+        int budget = videoPlayManager.getPoolCapacity() - 1;
+        for (int i = 0; i < count && budget > 0; i++) {
+            RecyclerView.ViewHolder holder = recyclerView.findViewHolderForAdapterPosition(candidatePositions[i]);
+            if (!(holder instanceof VideoViewHolder)) continue;
+            FeedItem candidate = ((VideoViewHolder) holder).getCurrentItem();
+            if (candidate != null && candidate.isVideo()) {
+                videoPlayManager.preload(candidate);
+                budget--;
+            }
+        }
+    }
+
+    // ==================== 滑出暂停 ====================
+
+    // 每次滚动只做一次子 View 遍历：找不到正在播放的条目或其可见比例过低时暂停
+    private void pauseIfScrolledOut() {
+        FeedItem playing = videoPlayManager.getCurrentPlayingItem();
+        if (playing == null || !videoPlayManager.isPlaying(playing)) return;
+
+        for (int i = 0; i < recyclerView.getChildCount(); i++) {
+            View child = recyclerView.getChildAt(i);
+            RecyclerView.ViewHolder holder = recyclerView.getChildViewHolder(child);
+            if (!(holder instanceof VideoViewHolder)) continue;
+
+            FeedItem item = ((VideoViewHolder) holder).getCurrentItem();
+            if (item != null && item.getId() == playing.getId()) {
+                if (visibleRatio(child) < PAUSE_THRESHOLD) {
+                    Log.d(TAG, "pauseIfScrolledOut: 暂停 " + playing.getId());
+                    autoPause(playing);
+                }
+                return;
+            }
+        }
+        autoPause(playing);
+    }
+
+    private void autoPause(FeedItem playing) {
+        if (playing == null || !videoPlayManager.isPlaying(playing)) return;
+        autoPausedItemId = playing.getId();
+        videoPlayManager.pauseCurrentPlayback();
+    }
+
+    // ==================== 工具方法 ====================
+
+    // 子 View 在 RecyclerView 可视区域（去掉 padding）内的面积占比，与曝光统计口径一致
+    private float visibleRatio(View child) {
+        ExposureTracker.viewportOf(recyclerView, viewportRect);
+        return ExposureTracker.visibleAreaRatio(child, viewportRect, childRect, scratchRect);
+    }
+
+    private int positionOf(FeedItem item) {
+        for (int i = 0; i < recyclerView.getChildCount(); i++) {
+            View child = recyclerView.getChildAt(i);
+            RecyclerView.ViewHolder holder = recyclerView.getChildViewHolder(child);
+            if (holder instanceof VideoViewHolder) {
+                FeedItem current = ((VideoViewHolder) holder).getCurrentItem();
+                if (current != null && current.getId() == item.getId()) {
+                    return recyclerView.getChildAdapterPosition(child);
+                }
+            }
+        }
+        return RecyclerView.NO_POSITION;
+    }
+}
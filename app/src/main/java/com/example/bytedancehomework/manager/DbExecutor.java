@@ -0,0 +1,75 @@
+package com.example.bytedancehomework.manager;
+
+import android.os.Process;
+import android.util.Log;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// 数据库 I/O 专用线程池：线程数与队列长度都有上限，空闲线程会被回收
+// 队列已满时拒绝新任务（抛出 RejectedExecutionException），由调用方决定重试或放弃
+public class DbExecutor {
+    private static final String TAG = "DbExecutor";
+    private static final int POOL_SIZE = 2;
+    private static final int QUEUE_CAPACITY = 32;
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private static volatile DbExecutor instance;
+    private final ThreadPoolExecutor executor;
+
+    private DbExecutor() {
+        executor = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+                new DbThreadFactory(),
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    //单例实现
+    public static DbExecutor getInstance() {
+        if (instance == null) {
+            synchronized (DbExecutor.class) {
+                if (instance == null)
+                    instance = new DbExecutor();
+            }
+        }
+        return instance;
+    }
+
+    public Future<?> submit(Runnable task) throws RejectedExecutionException {
+        try {
+            return executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            Log.w(TAG, "submit: 队列已满，拒绝任务 (active=" + executor.getActiveCount() +
+                    ", queued=" + executor.getQueue().size() + ")");
+            throw e;
+        }
+    }
+
+    // 取消尚未开始的任务并将其移出队列，已在执行的任务不受影响
+    public void cancel(Future<?> future) {
+        if (future == null) return;
+        future.cancel(false);
+        executor.purge();
+    }
+
+    private static class DbThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger(0);
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(() -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                runnable.run();
+            }, "feed-db-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
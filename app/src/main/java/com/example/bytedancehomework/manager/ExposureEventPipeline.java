@@ -0,0 +1,149 @@
+package com.example.bytedancehomework.manager;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.bytedancehomework.data.DBHelper.DatabaseHelper;
+import com.example.bytedancehomework.data.Item.ExposureEvent;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// 曝光事件管道：主线程只把事件追加到有界缓冲区，攒够一批或定时到了再在 DbExecutor 上批量写入数据库
+// 写入后把数据库中积压的事件交给上传器，上传成功才删除，进程被杀也不会丢失已落库的事件
+// 背压：同时在途的批次有上限，超出时事件留在缓冲区；缓冲区满时丢弃最旧的事件并计数
+public class ExposureEventPipeline {
+    private static final String TAG = "ExposurePipeline";
+
+    private static final int BATCH_SIZE = 32;
+    private static final long FLUSH_DELAY_MS = 5000;
+    private static final int MAX_BUFFER_SIZE = 512;
+    private static final int MAX_IN_FLIGHT_BATCHES = 2;
+    private static final int UPLOAD_BATCH_SIZE = 100;
+
+    // 上传器在数据库线程上调用，返回 true 表示这批事件已被接收，可以从本地删除
+    public interface ExposureUploader {
+        boolean upload(List<ExposureEvent> events);
+    }
+
+    private final DatabaseHelper dbHelper;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable flushRunnable = this::flush;
+    private final ArrayDeque<ExposureEvent> buffer = new ArrayDeque<>();
+    private final AtomicInteger inFlightBatches = new AtomicInteger();
+    private volatile ExposureUploader uploader;
+    private boolean flushScheduled = false;
+    private long droppedCount = 0;
+
+    public ExposureEventPipeline(DatabaseHelper dbHelper) {
+        this.dbHelper = dbHelper;
+    }
+
+    public void setUploader(ExposureUploader uploader) {
+        this.uploader = uploader;
+    }
+
+    // ==================== 主线程入口 ====================
+
+    // 只做一次入队，写入推迟到后续消息中执行，不占用当前滚动帧
+    public void offer(ExposureEvent event) {
+        buffer.addLast(event);
+        if (buffer.size() > MAX_BUFFER_SIZE) {
+            buffer.pollFirst();
+            droppedCount++;
+        }
+
+        if (buffer.size() >= BATCH_SIZE) {
+            scheduleFlush(0);
+        } else {
+            scheduleFlush(FLUSH_DELAY_MS);
+        }
+    }
+
+    // 立即提交缓冲区中的事件，在生命周期事件中调用
+    public void flush() {
+        handler.removeCallbacks(flushRunnable);
+        flushScheduled = false;
+        if (buffer.isEmpty()) return;
+
+        if (inFlightBatches.get() >= MAX_IN_FLIGHT_BATCHES) {
+            // 数据库写入跟不上，事件留在缓冲区，稍后再试
+            scheduleFlush(FLUSH_DELAY_MS);
+            return;
+        }
+
+        List<ExposureEvent> batch = new ArrayList<>(buffer);
+        buffer.clear();
+        inFlightBatches.incrementAndGet();
+        try {
+            DbExecutor.getInstance().submit(() -> write(batch));
+        } catch (RejectedExecutionException e) {
+            inFlightBatches.decrementAndGet();
+            // 放回缓冲区头部，保持原有顺序
+            for (int i = batch.size() - 1; i >= 0; i--) {
+                buffer.addFirst(batch.get(i));
+            }
+            while (buffer.size() > MAX_BUFFER_SIZE) {
+                buffer.pollFirst();
+                droppedCount++;
+            }
+            scheduleFlush(FLUSH_DELAY_MS);
+        }
+    }
+
+    public int getBufferedCount() {
+        return buffer.size();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount;
+    }
+
+    private void scheduleFlush(long delayMs) {
+        if (delayMs == 0) {
+            handler.removeCallbacks(flushRunnable);
+        } else if (flushScheduled) {
+            return;
+        }
+        flushScheduled = true;
+        handler.postDelayed(flushRunnable, delayMs);
+    }
+
+    // ==================== 后台写入与上传 ====================
+
+    private void write(List<ExposureEvent> batch) {
+        try {
+            int inserted = dbHelper.insertExposureEvents(batch);
+            Log.d(TAG, "write: 写入曝光事件 " + inserted + "/" + batch.size());
+            uploadPending();
+        } finally {
+            inFlightBatches.decrementAndGet();
+        }
+    }
+
+    private synchronized void uploadPending() {
+        ExposureUploader current = uploader;
+        if (current == null) return;
+
+        while (true) {
+            List<ExposureEvent> pending = dbHelper.getPendingExposureEvents(UPLOAD_BATCH_SIZE);
+            if (pending.isEmpty()) return;
+
+            boolean accepted;
+            try {
+                accepted = current.upload(pending);
+            } catch (RuntimeException e) {
+                Log.w(TAG, "uploadPending: 上传失败，下次写入时重试", e);
+                return;
+            }
+            if (!accepted) return;
+
+            dbHelper.deleteExposureEventsUpTo(pending.get(pending.size() - 1).getId());
+            if (pending.size() < UPLOAD_BATCH_SIZE) return;
+        }
+    }
+}
@@ -2,50 +2,79 @@
 package com.example.bytedancehomework.manager;
 
 import android.graphics.Rect;
-import android.util.DisplayMetrics;
+import android.os.SystemClock;
 import android.util.Log;
 import android.view.View;
 
 import androidx.annotation.NonNull;
-import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
-import com.example.bytedancehomework.ui.Adapter.FlexibleAdapter;
+import com.example.bytedancehomework.data.Item.ExposureEvent;
 import com.example.bytedancehomework.data.Item.FeedItem;
+import com.example.bytedancehomework.data.PrimitiveMap.LongByteMap;
+import com.example.bytedancehomework.data.PrimitiveMap.LongLongMap;
+import com.example.bytedancehomework.ui.Adapter.BaseViewHolder;
 
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.Arrays;
 
 public class ExposureTracker {
     // 常量
     private static final long CHECK_INTERVAL = 50;
     private static final String TAG = "Exposure";
 
+    // 各阶段对应的可见比例阈值（百分比）
+    private static final int[] STAGE_THRESHOLDS = {0, 30, 50, 100};
+
     // 成员变量
-    private Map<Long, Integer> itemExposureStage = new HashMap<>();
+    // 原始类型哈希表，滚动过程中读写不装箱、不分配；条目滑出屏幕即移除，大小只与可见条目数有关
+    private final LongByteMap itemExposureStage = new LongByteMap();
+    // (id << 2 | 阶段) -> 进入该阶段的时间（uptime）
+    private final LongLongMap stageEnterTimes = new LongLongMap();
     private long lastCheckTime = 0;
+    private final ExposureEventPipeline eventPipeline;
+
+    // 上一次与本次检查中处于曝光状态的条目 id，用于发现滑出屏幕的条目
+    private long[] visibleIds = new long[32];
+    private long[] nextVisibleIds = new long[32];
+    private int visibleCount = 0;
 
     private RecyclerView recyclerView;
-    private FlexibleAdapter adapter;
+    private RecyclerView.Adapter<?> adapter;
     private RecyclerView.AdapterDataObserver dataObserver;
+    private RecyclerView.OnScrollListener scrollListener;
+    private final Runnable checkRunnable = this::checkAllVisibleItems;
     private boolean isTracking = false;
 
+    // 复用的矩形，检查过程中不分配对象
+    private final Rect viewportRect = new Rect();
+    private final Rect childRect = new Rect();
+    private final Rect scratchRect = new Rect();
+
+    public ExposureTracker() {
+        this(null);
+    }
+
+    // 事件写入 pipeline；为 null 时只输出日志
+    public ExposureTracker(ExposureEventPipeline eventPipeline) {
+        this.eventPipeline = eventPipeline;
+    }
+
     // ==================== 公共方法 ====================
 
-    public void startTrack(RecyclerView recyclerView, FlexibleAdapter adapter) {
+    public void startTrack(RecyclerView recyclerView, RecyclerView.Adapter<?> adapter) {
         isTracking = true;
         this.recyclerView = recyclerView;
         this.adapter = adapter;
 
         registerDataObserver();
         setupScrollListener();
-        recyclerView.post(() -> checkAllVisibleItems());
+        postCheck();
     }
 
     public void stopTrack() {
         if (!isTracking) return;
 
+        endAllExposures();
         isTracking = false;
         cleanupResources();
         clearState();
@@ -53,101 +82,139 @@ public class ExposureTracker {
 
     // ==================== 曝光处理相关方法 ====================
 
-    private void handleExposure(FeedItem item, float ratio) {
-        long id = item.getId();
-        int currentStage = itemExposureStage.getOrDefault(id, -1);
-
-        if (ratio >= 0f && currentStage == -1) {
-            onExposure0(item);
-            itemExposureStage.put(id, 0);
-        } else if (ratio >= 0.3f && currentStage == 0) {
-            onExposure30(item);
-            itemExposureStage.put(id, 1);
-        } else if (ratio >= 0.5f && currentStage == 1) {
-            onExposure50(item);
-            itemExposureStage.put(id, 2);
-        } else if (ratio >= 1f && currentStage == 2) {
-            onExposure100(item);
-            itemExposureStage.put(id, 3);
-        }
+    // 可见比例对应的阶段：-1 不可见，0/1/2/3 分别达到 0%（出现）、30%、50%、100%
+    static int stageOf(float ratio) {
+        if (ratio >= 1f) return 3;
+        if (ratio >= 0.5f) return 2;
+        if (ratio >= 0.3f) return 1;
+        if (ratio > 0f) return 0;
+        return -1;
     }
 
-    private void onExposure0(FeedItem item) {
-        Log.d(TAG, "onExposure0 " + item.getId());
+    // 阶段上升时记录进入各阈值的时间，下降时为每个离开的阈值生成一条带停留时长的事件
+    private void handleExposure(long id, int newStage, long now) {
+        int currentStage = itemExposureStage.get(id, (byte) -1);
+        if (newStage == currentStage) return;
+
+        if (newStage > currentStage) {
+            for (int stage = currentStage + 1; stage <= newStage; stage++) {
+                stageEnterTimes.put(stageKey(id, stage), now);
+            }
+        } else {
+            for (int stage = currentStage; stage > newStage; stage--) {
+                long enterTime = stageEnterTimes.remove(stageKey(id, stage), -1L);
+                if (enterTime >= 0) {
+                    onExposureEnd(id, stage, enterTime, now);
+                }
+            }
+        }
+
+        if (newStage < 0) {
+            itemExposureStage.remove(id, (byte) -1);
+        } else {
+            itemExposureStage.put(id, (byte) newStage);
+        }
     }
 
-    private void onExposure30(FeedItem item) {
-        Log.d(TAG, "onExposure30 " + item.getId());
+    private void onExposureEnd(long id, int stage, long enterTime, long now) {
+        long dwellMs = now - enterTime;
+        if (eventPipeline == null) {
+            Log.d(TAG, "onExposureEnd " + id + " " + STAGE_THRESHOLDS[stage] + "% " + dwellMs + "ms");
+            return;
+        }
+        // 停留开始时间换算为时间戳
+        long startTime = System.currentTimeMillis() - (SystemClock.uptimeMillis() - enterTime);
+        eventPipeline.offer(new ExposureEvent(id, STAGE_THRESHOLDS[stage], startTime, dwellMs));
     }
 
-    private void onExposure50(FeedItem item) {
-        Log.d(TAG, "onExposure50 " + item.getId());
+    // 结束所有进行中的曝光（退到后台、停止追踪时），下次检查会重新开始计时
+    public void endAllExposures() {
+        long now = SystemClock.uptimeMillis();
+        for (int i = 0; i < visibleCount; i++) {
+            handleExposure(visibleIds[i], -1, now);
+        }
+        visibleCount = 0;
+        if (eventPipeline != null) {
+            eventPipeline.flush();
+        }
     }
 
-    private void onExposure100(FeedItem item) {
-        Log.d(TAG, "onExposure100 " + item.getId());
+    private static long stageKey(long id, int stage) {
+        return (id << 2) | stage;
     }
 
     // ==================== 可见性检查相关方法 ====================
 
-    private void checkAllVisibleItems() {
-        if (!isTracking || recyclerView == null || adapter == null) return;
+    // 只遍历 RecyclerView 的子 View，与 LayoutManager 类型无关，每次检查的开销只与可见条目数有关
+    public void checkAllVisibleItems() {
+        if (!isTracking || recyclerView == null) return;
 
-        List<FeedItem> items = adapter.getAllFeedItems();
-        if (items == null || items.isEmpty()) return;
+        viewportOf(recyclerView, viewportRect);
+        if (viewportRect.isEmpty()) return;
 
-        LinearLayoutManager linearLayoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
-        if (linearLayoutManager == null) return;
+        long now = SystemClock.uptimeMillis();
+        int nextCount = 0;
+        for (int i = 0; i < recyclerView.getChildCount(); i++) {
+            View child = recyclerView.getChildAt(i);
+            RecyclerView.ViewHolder holder = recyclerView.getChildViewHolder(child);
+            if (!(holder instanceof BaseViewHolder)) continue;
 
-        int firstVisibleItemPosition = linearLayoutManager.findFirstVisibleItemPosition();
-        int lastVisibleItemPosition = linearLayoutManager.findLastVisibleItemPosition();
+            FeedItem item = ((BaseViewHolder) holder).getCurrentItem();
+            if (item == null) continue;
 
-        if (firstVisibleItemPosition == RecyclerView.NO_POSITION ||
-                lastVisibleItemPosition == RecyclerView.NO_POSITION) {
-            return;
+            int stage = stageOf(calExposureRatio(child));
+            handleExposure(item.getId(), stage, now);
+            if (stage >= 0) {
+                if (nextCount == nextVisibleIds.length) {
+                    nextVisibleIds = Arrays.copyOf(nextVisibleIds, nextCount * 2);
+                }
+                nextVisibleIds[nextCount++] = item.getId();
+            }
         }
 
-        firstVisibleItemPosition = Math.max(0, firstVisibleItemPosition);
-        lastVisibleItemPosition = Math.min(items.size() - 1, lastVisibleItemPosition);
-
-        for (int i = firstVisibleItemPosition; i <= lastVisibleItemPosition; i++) {
-            checkItemVisibility(linearLayoutManager, items, i);
+        // 上次可见、这次不在子 View 中的条目已滑出屏幕
+        Arrays.sort(nextVisibleIds, 0, nextCount);
+        for (int i = 0; i < visibleCount; i++) {
+            if (Arrays.binarySearch(nextVisibleIds, 0, nextCount, visibleIds[i]) < 0) {
+                handleExposure(visibleIds[i], -1, now);
+            }
         }
-    }
 
-    private void checkItemVisibility(LinearLayoutManager layoutManager, List<FeedItem> items, int position) {
-        View itemView = layoutManager.findViewByPosition(position);
-
-        if (itemView != null && position >= 0 && position < items.size()) {
-            FeedItem item = items.get(position);
-            float ratio = calExposureRatio(recyclerView, itemView);
-            handleExposure(item, ratio);
-        } else {
-            Log.e("outOfRange", "checkAllVisibleItems");
-        }
+        long[] swap = visibleIds;
+        visibleIds = nextVisibleIds;
+        nextVisibleIds = swap;
+        visibleCount = nextCount;
     }
 
     // ==================== 工具方法 ====================
 
-    private float calExposureRatio(RecyclerView recyclerView, View itemView) {
-        Rect rect = new Rect();
-        boolean isVisible = itemView.getGlobalVisibleRect(rect);
-        if (!isVisible) return 0f;
-
-        float screenHeight = getScreenHeight(itemView);
-        float visibleTop = Math.max(0, rect.top);
-        float visibleBottom = Math.min(screenHeight, rect.bottom);
-        float visibleHeight = visibleBottom - visibleTop;
-        float totalHeight = itemView.getHeight();
+    private float calExposureRatio(View itemView) {
+        return visibleAreaRatio(itemView, viewportRect, childRect, scratchRect);
+    }
 
-        if (totalHeight == 0f) return 0f;
+    // RecyclerView 去掉 padding 后的可视区域
+    static void viewportOf(RecyclerView recyclerView, Rect viewport) {
+        viewport.set(recyclerView.getPaddingLeft(), recyclerView.getPaddingTop(),
+                recyclerView.getWidth() - recyclerView.getPaddingRight(),
+                recyclerView.getHeight() - recyclerView.getPaddingBottom());
+    }
 
-        return visibleHeight / totalHeight;
+    // 子 View 与可视区域的重叠面积占子 View 面积的比例，同时考虑横向与纵向；曝光统计与自动播放共用
+    // childRect、scratch 由调用方持有并复用，滚动时不分配对象
+    static float visibleAreaRatio(View itemView, Rect viewport, Rect childRect, Rect scratch) {
+        int left = itemView.getLeft() + Math.round(itemView.getTranslationX());
+        int top = itemView.getTop() + Math.round(itemView.getTranslationY());
+        childRect.set(left, top, left + itemView.getWidth(), top + itemView.getHeight());
+        return visibleAreaRatio(childRect, viewport, scratch);
     }
 
-    private float getScreenHeight(View view) {
-        DisplayMetrics metrics = view.getResources().getDisplayMetrics();
-        return metrics.heightPixels;
+    static float visibleAreaRatio(Rect child, Rect viewport, Rect scratch) {
+        long totalArea = (long) child.width() * child.height();
+        if (totalArea <= 0) return 0f;
+
+        scratch.set(child);
+        if (!scratch.intersect(viewport)) return 0f;
+        return (float) ((long) scratch.width() * scratch.height()) / totalArea;
     }
 
     // ==================== 监听器设置相关方法 ====================
@@ -158,33 +225,40 @@ public class ExposureTracker {
         dataObserver = new RecyclerView.AdapterDataObserver() {
             @Override
             public void onItemRangeInserted(int positionStart, int itemCount) {
-                recyclerView.post(() -> checkAllVisibleItems());
+                postCheck();
             }
 
             @Override
             public void onItemRangeRemoved(int positionStart, int itemCount) {
-                recyclerView.post(() -> checkAllVisibleItems());
+                postCheck();
             }
 
             @Override
             public void onItemRangeChanged(int positionStart, int itemCount) {
-                recyclerView.post(() -> checkAllVisibleItems());
+                postCheck();
             }
 
             @Override
             public void onChanged() {
-                recyclerView.post(() -> checkAllVisibleItems());
+                postCheck();
             }
         };
 
         adapter.registerAdapterDataObserver(dataObserver);
     }
 
+    // 数据变化后等布局完成再检查，连续变化只保留一次
+    private void postCheck() {
+        if (recyclerView == null) return;
+        recyclerView.removeCallbacks(checkRunnable);
+        recyclerView.post(checkRunnable);
+    }
+
     private void setupScrollListener() {
-        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+        scrollListener = new RecyclerView.OnScrollListener() {
             @Override
             public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
-                long currentCheckTime = System.currentTimeMillis();
+                long currentCheckTime = SystemClock.uptimeMillis();
                 if (currentCheckTime - lastCheckTime >= CHECK_INTERVAL) {
                     super.onScrolled(recyclerView, dx, dy);
                     checkAllVisibleItems();
@@ -199,7 +273,8 @@ public class ExposureTracker {
                     checkAllVisibleItems();
                 }
             }
-        });
+        };
+        recyclerView.addOnScrollListener(scrollListener);
     }
 
     // ==================== 资源清理方法 ====================
@@ -210,13 +285,20 @@ public class ExposureTracker {
             dataObserver = null;
         }
 
+        // 只移除自己的监听器，不影响适配器预加载、自动播放等其他监听
         if (recyclerView != null) {
-            recyclerView.clearOnScrollListeners();
+            recyclerView.removeCallbacks(checkRunnable);
+            if (scrollListener != null) {
+                recyclerView.removeOnScrollListener(scrollListener);
+                scrollListener = null;
+            }
         }
     }
 
     private void clearState() {
         itemExposureStage.clear();
+        stageEnterTimes.clear();
+        visibleCount = 0;
         recyclerView = null;
         adapter = null;
     }
@@ -0,0 +1,150 @@
+package com.example.bytedancehomework.manager;
+
+import android.graphics.drawable.Drawable;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+
+import androidx.annotation.DrawableRes;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.load.DecodeFormat;
+import com.bumptech.glide.request.RequestOptions;
+import com.example.bytedancehomework.data.Item.FeedItem;
+
+// 条目图片加载：按条目在当前布局中的实际显示尺寸解码，而不是按原图或整屏尺寸
+// 目标尺寸由布局里 ImageView 的宽高约束和数据库中保存的原图宽高算出：
+// - 固定高度、宽度撑满（网格图片、视频封面）：槽宽 × 固定高
+// - 固定高度、宽度自适应（单列图片）：按原图比例算宽，不超过槽宽
+// - 高度自适应（瀑布流）：槽宽 × 按原图比例算出的高
+// 不透明图片用 RGB_565 解码，先加载 1/4 边长的缩略图占位
+public class FeedImageLoader {
+    private static final int THUMBNAIL_DIVISOR = 4;
+
+    private FeedImageLoader() {
+    }
+
+    public static void loadImage(ImageView view, FeedItem item, int slotWidth,
+                                 @DrawableRes int placeholder, @DrawableRes int error) {
+        load(view, item.getImageUrl(), item.getImageWidth(), item.getImageHeight(), slotWidth, placeholder, error);
+    }
+
+    // 封面是视频的一帧，比例与视频相同
+    public static void loadVideoCover(ImageView view, FeedItem item, int slotWidth,
+                                      @DrawableRes int placeholder, @DrawableRes int error) {
+        load(view, item.getVideoCoverUrl(), item.getVideoWidth(), item.getVideoHeight(), slotWidth, placeholder, error);
+    }
+
+    private static void load(ImageView view, String url, int sourceWidth, int sourceHeight, int slotWidth,
+                             @DrawableRes int placeholder, @DrawableRes int error) {
+        if (url == null || url.isEmpty()) {
+            Glide.with(view).clear(view);
+            view.setImageResource(placeholder);
+            return;
+        }
+
+        ViewGroup.LayoutParams params = view.getLayoutParams();
+        int[] size = computeTargetSize(sourceWidth, sourceHeight, availableWidth(view, slotWidth),
+                params != null ? params.width : ViewGroup.LayoutParams.MATCH_PARENT,
+                layoutHeightOf(view));
+
+        RequestOptions options = new RequestOptions()
+                .placeholder(placeholder)
+                .error(error)
+                .format(DecodeFormat.PREFER_RGB_565)
+                .centerCrop();
+        if (size == null) {
+            // 尺寸未知时交给 Glide 等待布局后按视图尺寸解码
+            Glide.with(view).load(url).apply(options).into(view);
+            return;
+        }
+
+        RequestBuilder<Drawable> thumbnail = Glide.with(view)
+                .load(url)
+                .apply(new RequestOptions()
+                        .override(Math.max(1, size[0] / THUMBNAIL_DIVISOR), Math.max(1, size[1] / THUMBNAIL_DIVISOR))
+                        .format(DecodeFormat.PREFER_RGB_565)
+                        .centerCrop());
+
+        Glide.with(view)
+                .load(url)
+                .apply(options.override(size[0], size[1]))
+                .thumbnail(thumbnail)
+                .into(view);
+    }
+
+    // 槽宽减去条目内部的边距；视图已布局过时边距可以直接量出来
+    private static int availableWidth(ImageView view, int slotWidth) {
+        View itemView = findItemRoot(view);
+        int decoration = 0;
+        if (itemView != view && itemView.getWidth() > 0 && view.getWidth() > 0) {
+            decoration = itemView.getWidth() - view.getWidth();
+        }
+        return slotWidth > 0 ? Math.max(1, slotWidth - decoration) : view.getWidth();
+    }
+
+    // 高度撑满父容器时（视频封面铺满固定高度的容器）取父容器的固定高度
+    private static int layoutHeightOf(View view) {
+        ViewGroup.LayoutParams params = view.getLayoutParams();
+        if (params == null) return ViewGroup.LayoutParams.WRAP_CONTENT;
+        if (params.height == ViewGroup.LayoutParams.MATCH_PARENT && view.getParent() instanceof View) {
+            ViewGroup.LayoutParams parentParams = ((View) view.getParent()).getLayoutParams();
+            if (parentParams != null && parentParams.height > 0) {
+                return parentParams.height;
+            }
+        }
+        return params.height;
+    }
+
+    // 条目根视图：向上找到直接挂在 RecyclerView 下的那一层
+    private static View findItemRoot(View view) {
+        View current = view;
+        while (current.getParent() instanceof View) {
+            View parent = (View) current.getParent();
+            if (parent instanceof RecyclerView) {
+                return current;
+            }
+            current = parent;
+        }
+        return current;
+    }
+
+    // ==================== 尺寸计算 ====================
+
+    // 返回 {宽, 高}，无法确定时返回 null；结果不超过原图尺寸，只缩小不放大
+    static int[] computeTargetSize(int sourceWidth, int sourceHeight, int availableWidth,
+                                   int layoutWidth, int layoutHeight) {
+        if (availableWidth <= 0) return null;
+        boolean hasSource = sourceWidth > 0 && sourceHeight > 0;
+
+        int width;
+        int height;
+        if (layoutHeight > 0) {
+            height = layoutHeight;
+            if (layoutWidth > 0) {
+                width = layoutWidth;
+            } else if (layoutWidth == ViewGroup.LayoutParams.WRAP_CONTENT && hasSource) {
+                width = Math.min(availableWidth, (int) ((long) height * sourceWidth / sourceHeight));
+            } else {
+                width = availableWidth;
+            }
+        } else if (hasSource) {
+            width = layoutWidth > 0 ? layoutWidth : availableWidth;
+            height = (int) ((long) width * sourceHeight / sourceWidth);
+        } else {
+            return null;
+        }
+
+        if (hasSource) {
+            // centerCrop 需要原图覆盖目标区域，目标比原图大时按比例缩回原图尺寸
+            float scale = Math.max((float) width / sourceWidth, (float) height / sourceHeight);
+            if (scale > 1f) {
+                width = Math.round(width / scale);
+                height = Math.round(height / scale);
+            }
+        }
+        return new int[]{Math.max(1, width), Math.max(1, height)};
+    }
+}
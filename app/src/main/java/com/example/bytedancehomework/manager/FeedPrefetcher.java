@@ -0,0 +1,105 @@
+package com.example.bytedancehomework.manager;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.Locale;
+
+// 预取策略：距离列表末尾不足 prefetchDistance 项时自动加载下一页
+// 页大小根据滚动速度与数据库取数耗时动态调整：快速滑动时一次取够「取数期间会滑过的条数」，避免滑到空尾部
+public class FeedPrefetcher {
+    public static final int DEFAULT_PREFETCH_DISTANCE = 6;
+    public static final int DEFAULT_MIN_PAGE_SIZE = 10;
+    public static final int DEFAULT_MAX_PAGE_SIZE = 60;
+
+    // 平滑系数与安全余量
+    private static final float SMOOTHING = 0.3f;
+    private static final long SAFETY_MARGIN_MS = 300;
+    private static final long VELOCITY_RESET_MS = 1000;
+
+    private final int prefetchDistance;
+    private final int minPageSize;
+    private final int maxPageSize;
+
+    // 滚动速度（条/秒）与取数耗时（毫秒），均为指数平滑值
+    private float itemsPerSecond = 0f;
+    private float fetchLatencyMs = 0f;
+    private int lastScrollPosition = RecyclerView.NO_POSITION;
+    private long lastScrollTime = 0;
+
+    // 统计
+    private int loadCount = 0;
+    private int tailReachedCount = 0;
+    private int spinnerShownCount = 0;
+
+    public FeedPrefetcher() {
+        this(DEFAULT_PREFETCH_DISTANCE, DEFAULT_MIN_PAGE_SIZE, DEFAULT_MAX_PAGE_SIZE);
+    }
+
+    public FeedPrefetcher(int prefetchDistance, int minPageSize, int maxPageSize) {
+        if (prefetchDistance < 0 || minPageSize <= 0 || maxPageSize < minPageSize) {
+            throw new IllegalArgumentException("invalid prefetch config: distance=" + prefetchDistance +
+                    ", minPageSize=" + minPageSize + ", maxPageSize=" + maxPageSize);
+        }
+        this.prefetchDistance = prefetchDistance;
+        this.minPageSize = minPageSize;
+        this.maxPageSize = maxPageSize;
+    }
+
+    // ==================== 决策方法 ====================
+
+    public boolean shouldPrefetch(int lastVisiblePosition, int itemCount) {
+        return lastVisiblePosition >= itemCount - 1 - prefetchDistance;
+    }
+
+    public int nextPageSize() {
+        float secondsToFetch = (fetchLatencyMs + SAFETY_MARGIN_MS) / 1000f;
+        int needed = (int) Math.ceil(itemsPerSecond * secondsToFetch) + prefetchDistance;
+        return Math.max(minPageSize, Math.min(maxPageSize, needed));
+    }
+
+    // ==================== 采样方法 ====================
+
+    public void onScrolled(int lastVisiblePosition, long nowMs) {
+        if (lastVisiblePosition == RecyclerView.NO_POSITION) return;
+
+        long elapsed = nowMs - lastScrollTime;
+        if (lastScrollPosition != RecyclerView.NO_POSITION && elapsed > 0 && elapsed < VELOCITY_RESET_MS) {
+            float sample = Math.abs(lastVisiblePosition - lastScrollPosition) * 1000f / elapsed;
+            itemsPerSecond += SMOOTHING * (sample - itemsPerSecond);
+        } else if (elapsed >= VELOCITY_RESET_MS) {
+            // 停顿过久，之前的速度不再有参考意义
+            itemsPerSecond = 0f;
+        }
+        lastScrollPosition = lastVisiblePosition;
+        lastScrollTime = nowMs;
+    }
+
+    public void onLoadFinished(long latencyMs) {
+        loadCount++;
+        fetchLatencyMs = loadCount == 1 ? latencyMs : fetchLatencyMs + SMOOTHING * (latencyMs - fetchLatencyMs);
+    }
+
+    // 用户滑到了最后一项；此时若还在加载或尚未开始加载，就会看到加载中的转圈
+    public void onTailReached(boolean spinnerShown) {
+        tailReachedCount++;
+        if (spinnerShown) spinnerShownCount++;
+    }
+
+    // ==================== 统计方法 ====================
+
+    public int getLoadCount() { return loadCount; }
+    public int getTailReachedCount() { return tailReachedCount; }
+    public int getSpinnerShownCount() { return spinnerShownCount; }
+
+    // 到达末尾时看到转圈的比例
+    public float getSpinnerRate() {
+        return tailReachedCount == 0 ? 0f : (float) spinnerShownCount / tailReachedCount;
+    }
+
+    public String report() {
+        return String.format(Locale.US,
+                "loads=%d, tailReached=%d, spinnerShown=%d (%.1f%%), velocity=%.1f items/s, latency=%.0fms, nextPageSize=%d",
+                loadCount, tailReachedCount, spinnerShownCount, getSpinnerRate() * 100,
+                itemsPerSecond, fetchLatencyMs, nextPageSize());
+    }
+}
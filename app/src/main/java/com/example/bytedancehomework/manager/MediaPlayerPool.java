@@ -0,0 +1,225 @@
+package com.example.bytedancehomework.manager;
+
+import android.content.Context;
+import android.media.AudioAttributes;
+import android.media.MediaPlayer;
+import android.net.Uri;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.example.bytedancehomework.data.Item.FeedItem;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// MediaPlayer 池：按视频 id 缓存已准备（或正在准备）的播放器，切换视频时直接复用，不再重新 prepare
+// 池容量即同时存在的 MediaPlayer 上限，超出时按最近最少使用淘汰（正在播放的不会被淘汰）
+// 只在主线程使用，MediaPlayer 的回调也都投递到主线程
+public class MediaPlayerPool {
+    private static final String TAG = "MediaPlayerPool";
+    public static final int DEFAULT_CAPACITY = 2;
+
+    public interface Callback {
+        void onPrepared(PooledPlayer player);
+        void onFirstFrame(PooledPlayer player);
+        void onCompletion(PooledPlayer player);
+        void onError(PooledPlayer player, int what, int extra);
+    }
+
+    // ==================== 池中的播放器 ====================
+
+    public static class PooledPlayer {
+        private final long itemId;
+        private final String url;
+        private final MediaPlayer player;
+        private final long prepareStartTime;
+        private boolean prepared = false;
+
+        private PooledPlayer(long itemId, String url, MediaPlayer player) {
+            this.itemId = itemId;
+            this.url = url;
+            this.player = player;
+            this.prepareStartTime = SystemClock.uptimeMillis();
+        }
+
+        public long getItemId() {
+            return itemId;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public MediaPlayer getPlayer() {
+            return player;
+        }
+
+        public boolean isPrepared() {
+            return prepared;
+        }
+
+        public boolean isPlaying() {
+            return prepared && player.isPlaying();
+        }
+
+        public long getPrepareStartTime() {
+            return prepareStartTime;
+        }
+    }
+
+    // 按访问顺序排列，头部为最久未使用
+    private final LinkedHashMap<Long, PooledPlayer> players = new LinkedHashMap<>(4, 0.75f, true);
+    private int capacity;
+    private Callback callback;
+    // 解析 android.resource://、content:// 等地址需要 Context，只保存 Application 以免泄漏 Activity
+    private Context context;
+
+    public MediaPlayerPool() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public MediaPlayerPool(int capacity) {
+        setCapacity(capacity);
+    }
+
+    public void setCallback(Callback callback) {
+        this.callback = callback;
+    }
+
+    public void setContext(Context context) {
+        this.context = context != null ? context.getApplicationContext() : null;
+    }
+
+    public void setCapacity(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        trimTo(this.capacity, -1);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int size() {
+        return players.size();
+    }
+
+    public PooledPlayer get(long itemId) {
+        return players.get(itemId);
+    }
+
+    // ==================== 获取与预准备 ====================
+
+    // 获取将要播放的视频的播放器，池中没有时新建并开始异步准备；失败返回 null
+    public PooledPlayer obtain(FeedItem item) {
+        PooledPlayer pooled = players.get(item.getId());
+        if (pooled != null && pooled.url.equals(item.getVideoUrl())) {
+            return pooled;
+        }
+        remove(item.getId());
+
+        trimTo(capacity - 1, item.getId());
+        pooled = create(item);
+        if (pooled != null) {
+            players.put(item.getId(), pooled);
+        }
+        return pooled;
+    }
+
+    // 预准备候选视频，不会为此淘汰 activeItemId 对应的播放器；池已满且只剩正在播放的时直接放弃
+    public void preload(FeedItem item, long activeItemId) {
+        if (item == null || item.getVideoUrl() == null || item.getVideoUrl().trim().isEmpty()) return;
+        if (players.containsKey(item.getId())) return;
+        if (capacity <= 1 && players.containsKey(activeItemId)) return;
+
+        trimTo(capacity - 1, activeItemId);
+        if (players.size() >= capacity) return;
+
+        PooledPlayer pooled = create(item);
+        if (pooled != null) {
+            players.put(item.getId(), pooled);
+            Log.d(TAG, "preload: 预准备 " + item.getId() + "，池大小 " + players.size() + "/" + capacity);
+        }
+    }
+
+    // ==================== 释放 ====================
+
+    public void remove(long itemId) {
+        PooledPlayer pooled = players.remove(itemId);
+        if (pooled != null) {
+            pooled.player.release();
+        }
+    }
+
+    public void releaseAll() {
+        for (PooledPlayer pooled : players.values()) {
+            pooled.player.release();
+        }
+        players.clear();
+    }
+
+    // 淘汰最久未使用的播放器直到数量不超过 maxSize，keepItemId 对应的播放器不参与淘汰
+    private void trimTo(int maxSize, long keepItemId) {
+        Iterator<Map.Entry<Long, PooledPlayer>> iterator = players.entrySet().iterator();
+        while (players.size() > Math.max(0, maxSize) && iterator.hasNext()) {
+            Map.Entry<Long, PooledPlayer> entry = iterator.next();
+            if (entry.getKey() == keepItemId) continue;
+            iterator.remove();
+            entry.getValue().player.release();
+            Log.d(TAG, "trimTo: 淘汰播放器 " + entry.getKey());
+        }
+    }
+
+    // ==================== 创建 ====================
+
+    private PooledPlayer create(FeedItem item) {
+        MediaPlayer player = new MediaPlayer();
+        PooledPlayer pooled = new PooledPlayer(item.getId(), item.getVideoUrl(), player);
+
+        player.setAudioAttributes(new AudioAttributes.Builder()
+                .setUsage(AudioAttributes.USAGE_MEDIA)
+                .setContentType(AudioAttributes.CONTENT_TYPE_MOVIE)
+                .build());
+        player.setOnPreparedListener(mp -> {
+            pooled.prepared = true;
+            Log.d(TAG, "onPrepared: " + pooled.itemId + " 准备耗时 " +
+                    (SystemClock.uptimeMillis() - pooled.prepareStartTime) + "ms");
+            if (callback != null) callback.onPrepared(pooled);
+        });
+        player.setOnInfoListener((mp, what, extra) -> {
+            if (what == MediaPlayer.MEDIA_INFO_VIDEO_RENDERING_START && callback != null) {
+                callback.onFirstFrame(pooled);
+            }
+            return false;
+        });
+        player.setOnCompletionListener(mp -> {
+            if (callback != null) callback.onCompletion(pooled);
+        });
+        player.setOnErrorListener((mp, what, extra) -> {
+            // 出错的播放器不可再用，直接移出池
+            if (players.get(pooled.itemId) == pooled) {
+                remove(pooled.itemId);
+            }
+            if (callback != null) callback.onError(pooled, what, extra);
+            return true;
+        });
+
+        try {
+            // 经本地缓存代理读取，重播和回滚不再重新下载
+            // 与 VideoView.setVideoPath 一样按 Uri 打开，内置的 android.resource:// 视频也能播放
+            String url = VideoCacheManager.getInstance().getPlayUrl(item.getVideoUrl());
+            if (context != null) {
+                player.setDataSource(context, Uri.parse(url));
+            } else {
+                player.setDataSource(url);
+            }
+            player.prepareAsync();
+            return pooled;
+        } catch (IOException | IllegalArgumentException | IllegalStateException | SecurityException e) {
+            Log.e(TAG, "create: 创建播放器失败 " + item.getVideoUrl(), e);
+            player.release();
+            return null;
+        }
+    }
+}
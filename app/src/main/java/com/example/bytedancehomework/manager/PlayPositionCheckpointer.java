@@ -0,0 +1,116 @@
+package com.example.bytedancehomework.manager;
+
+import android.database.SQLException;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.bytedancehomework.data.DBHelper.DatabaseHelper;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+// 播放进度写入合并：进度先缓存在内存中（同一视频只保留最新值），
+// 定时或在生命周期事件时批量写入数据库，主线程不再直接做数据库 I/O
+public class PlayPositionCheckpointer {
+    private static final String TAG = "PlayPositionCheckpoint";
+    public static final long DEFAULT_FLUSH_DELAY_MS = 2000;
+
+    private final DatabaseHelper dbHelper;
+    private final long flushDelayMs;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable flushRunnable = this::flush;
+
+    // itemId -> 最新播放位置
+    private final Map<Long, Long> pending = new HashMap<>();
+    private boolean flushScheduled = false;
+    // 同一时刻只有一批在写：DbExecutor 有多个线程，两批同时提交时旧进度可能晚于新进度落库把它覆盖
+    private boolean writing = false;
+    // 写入期间又要求刷新，等这一批写完后立即再刷新一次
+    private boolean flushAfterWrite = false;
+
+    public PlayPositionCheckpointer(DatabaseHelper dbHelper) {
+        this(dbHelper, DEFAULT_FLUSH_DELAY_MS);
+    }
+
+    public PlayPositionCheckpointer(DatabaseHelper dbHelper, long flushDelayMs) {
+        this.dbHelper = dbHelper;
+        this.flushDelayMs = flushDelayMs;
+    }
+
+    // 记录进度，同一 id 的重复写入直接覆盖，不会产生额外的数据库操作
+    public void record(long itemId, long position) {
+        synchronized (pending) {
+            pending.put(itemId, position);
+            if (flushScheduled) return;
+            flushScheduled = true;
+        }
+        handler.postDelayed(flushRunnable, flushDelayMs);
+    }
+
+    // 立即把缓存的进度提交到后台线程写入，生命周期事件（暂停、退出）时调用
+    // 上一批还在写时不另起一批，新进度留在缓存中合并，等上一批写完再提交
+    public void flush() {
+        handler.removeCallbacks(flushRunnable);
+
+        Map<Long, Long> batch;
+        synchronized (pending) {
+            flushScheduled = false;
+            if (pending.isEmpty()) return;
+            if (writing) {
+                flushAfterWrite = true;
+                return;
+            }
+            batch = new HashMap<>(pending);
+            pending.clear();
+            writing = true;
+        }
+
+        try {
+            DbExecutor.getInstance().submit(() -> write(batch));
+        } catch (RejectedExecutionException e) {
+            // 队列已满时放回缓存，等下一次刷新
+            synchronized (pending) {
+                writing = false;
+            }
+            requeue(batch);
+        }
+    }
+
+    private void write(Map<Long, Long> batch) {
+        try {
+            int count = dbHelper.updateVideoPlayPositions(batch);
+            Log.d(TAG, "write: 批量写入播放进度 " + count + "/" + batch.size());
+        } catch (SQLException e) {
+            Log.e(TAG, "write: 写入播放进度失败，稍后重试", e);
+            synchronized (pending) {
+                writing = false;
+            }
+            requeue(batch);
+            return;
+        }
+
+        synchronized (pending) {
+            writing = false;
+            if (!flushAfterWrite) return;
+            flushAfterWrite = false;
+        }
+        handler.post(flushRunnable);
+    }
+
+    // 把未写入的一批放回缓存并安排下一次刷新；期间更新的进度优先
+    private void requeue(Map<Long, Long> batch) {
+        synchronized (pending) {
+            for (Map.Entry<Long, Long> entry : batch.entrySet()) {
+                if (!pending.containsKey(entry.getKey())) {
+                    pending.put(entry.getKey(), entry.getValue());
+                }
+            }
+            flushAfterWrite = false;
+            if (flushScheduled) return;
+            flushScheduled = true;
+        }
+        handler.postDelayed(flushRunnable, flushDelayMs);
+    }
+}
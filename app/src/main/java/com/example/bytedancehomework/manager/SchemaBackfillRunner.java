@@ -0,0 +1,77 @@
+package com.example.bytedancehomework.manager;
+
+import android.database.SQLException;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.bytedancehomework.data.DBHelper.DatabaseHelper;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+// 数据库升级后的后台回填：每次只向 DbExecutor 提交一批，完成后隔一小段时间再提交下一批
+// 分页加载、曝光写入等前台任务可以插在两批之间执行，不会被整张表的迁移挡住
+public class SchemaBackfillRunner {
+    private static final String TAG = "SchemaBackfill";
+
+    private static final long CHUNK_INTERVAL_MS = 50;
+    private static final long RETRY_DELAY_MS = 5000;
+
+    private final DatabaseHelper dbHelper;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable chunkRunnable = this::submitChunk;
+    private Future<?> pendingChunk;
+    private boolean running = false;
+    private int chunkCount = 0;
+
+    public SchemaBackfillRunner(DatabaseHelper dbHelper) {
+        this.dbHelper = dbHelper;
+    }
+
+    // 首屏内容展示后调用，没有待完成的回填时第一批就会结束
+    public void start() {
+        if (running) return;
+        running = true;
+        handler.post(chunkRunnable);
+    }
+
+    // 停止调度后续批次；正在执行的一批会完整提交，下次启动时从进度表继续
+    public void stop() {
+        running = false;
+        handler.removeCallbacks(chunkRunnable);
+        DbExecutor.getInstance().cancel(pendingChunk);
+        pendingChunk = null;
+    }
+
+    private void submitChunk() {
+        if (!running) return;
+        try {
+            pendingChunk = DbExecutor.getInstance().submit(() -> {
+                boolean hasMore;
+                try {
+                    hasMore = dbHelper.runBackfillChunk();
+                } catch (SQLException e) {
+                    // 磁盘满、数据库被锁等暂时性错误，进度已回滚到上一批，稍后重试
+                    Log.e(TAG, "runBackfillChunk: ", e);
+                    handler.postDelayed(chunkRunnable, RETRY_DELAY_MS);
+                    return;
+                }
+                handler.post(() -> onChunkFinished(hasMore));
+            });
+        } catch (RejectedExecutionException e) {
+            handler.postDelayed(chunkRunnable, RETRY_DELAY_MS);
+        }
+    }
+
+    private void onChunkFinished(boolean hasMore) {
+        pendingChunk = null;
+        chunkCount++;
+        if (hasMore) {
+            handler.postDelayed(chunkRunnable, CHUNK_INTERVAL_MS);
+        } else {
+            running = false;
+            Log.d(TAG, "onChunkFinished: 后台迁移完成，共 " + chunkCount + " 批");
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.example.bytedancehomework.manager;
+
+import android.os.CancellationSignal;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.OperationCanceledException;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.example.bytedancehomework.data.DBHelper.DatabaseHelper;
+import com.example.bytedancehomework.data.DBHelper.FeedSearchRanker;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+// 边输入边搜索：主线程只做去抖和查缓存，检索在 DbExecutor 上执行，结果回到主线程交给监听者
+// - 去抖：输入停顿 DEBOUNCE_MS 后才检索，连续按键只产生一次查询
+// - 取消：新查询开始前取消上一次，未开始的移出队列，已在执行的通过 CancellationSignal 中断
+// - 前缀细化：新查询是缓存中某次查询的细化（例如在词尾继续输入）时，只在那次的命中里复核
+// - LRU 缓存：最近的查询结果按 MATCH 表达式缓存，退格回到之前的输入时直接命中，不经过去抖
+public class SearchController {
+    private static final String TAG = "SearchController";
+
+    private static final long DEBOUNCE_MS = 250;
+    private static final int CACHE_SIZE = 32;
+    // 上一次命中太多时拼出的 IN 列表比重新检索更慢，不做细化
+    private static final int MAX_REFINE_CANDIDATES = 1000;
+
+    // 回调都在主线程
+    public interface Listener {
+        // query 为去掉首尾空白的输入，rankedIds 按相关度排好序
+        void onSearchResults(String query, long[] rankedIds);
+
+        // 输入被清空，没有可检索的词
+        void onSearchCleared();
+    }
+
+    private final DatabaseHelper dbHelper;
+    private final Listener listener;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable debounceRunnable = this::runPendingQuery;
+
+    // 只在主线程访问，key 为 MATCH 表达式，同义的输入（多余空白、引号）共用一项
+    private final LinkedHashMap<String, CachedResult> cache =
+            new LinkedHashMap<String, CachedResult>(CACHE_SIZE, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CachedResult> eldest) {
+                    return size() > CACHE_SIZE;
+                }
+            };
+
+    private String pendingQuery;
+    // 当前展示的查询，相同的结果不重复通知
+    private String shownKey;
+    private Future<?> inFlight;
+    private CancellationSignal inFlightSignal;
+    // 每次发起或取消查询都加一，晚到的旧结果按代数丢弃
+    private int generation = 0;
+
+    private int cacheHits = 0;
+    private int refinedQueries = 0;
+    private int fullQueries = 0;
+
+    public SearchController(DatabaseHelper dbHelper, Listener listener) {
+        this.dbHelper = dbHelper;
+        this.listener = listener;
+    }
+
+    // ==================== 主线程入口 ====================
+
+    // 输入框每次变化时调用：缓存命中立即展示，否则等输入停顿后再检索
+    public void onQueryChanged(CharSequence text) {
+        handleQuery(text, DEBOUNCE_MS);
+    }
+
+    // 点击搜索或键盘搜索键：跳过去抖立即检索
+    public void submit(CharSequence text) {
+        handleQuery(text, 0);
+    }
+
+    // 数据变化（刷新、新增、清空）后缓存中的结果可能已过期
+    public void invalidate() {
+        cache.clear();
+        shownKey = null;
+    }
+
+    public void release() {
+        cancelPending();
+        cache.clear();
+    }
+
+    public String report() {
+        return "cacheHits=" + cacheHits + ", refined=" + refinedQueries + ", full=" + fullQueries +
+                ", cached=" + cache.size();
+    }
+
+    private void handleQuery(CharSequence text, long delayMs) {
+        String query = text != null ? text.toString().trim() : "";
+        String key = FeedSearchRanker.toMatchExpression(query);
+        cancelPending();
+
+        if (key == null) {
+            shownKey = null;
+            listener.onSearchCleared();
+            return;
+        }
+
+        CachedResult cached = cache.get(key);
+        if (cached != null) {
+            cacheHits++;
+            deliver(key, query, cached.ids);
+            return;
+        }
+
+        pendingQuery = query;
+        if (delayMs > 0) {
+            handler.postDelayed(debounceRunnable, delayMs);
+        } else {
+            runPendingQuery();
+        }
+    }
+
+    // 去抖到期：选出可用于细化的缓存结果，在数据库线程上检索
+    private void runPendingQuery() {
+        String query = pendingQuery;
+        pendingQuery = null;
+        if (query == null) return;
+        String key = FeedSearchRanker.toMatchExpression(query);
+
+        long[] candidates = findRefinementBase(query);
+
+        int queryGeneration = ++generation;
+        CancellationSignal signal = new CancellationSignal();
+        inFlightSignal = signal;
+        try {
+            inFlight = DbExecutor.getInstance().submit(() -> {
+                long startTime = SystemClock.uptimeMillis();
+                long[] ids;
+                try {
+                    ids = dbHelper.searchFeedItemIds(query, candidates, signal);
+                } catch (OperationCanceledException e) {
+                    return;
+                }
+                Log.d(TAG, "search '" + query + "' " + ids.length + " hits in " +
+                        (SystemClock.uptimeMillis() - startTime) + "ms" +
+                        (candidates != null ? " (refined from " + candidates.length + ")" : ""));
+                handler.post(() -> {
+                    if (queryGeneration != generation) return;
+                    inFlight = null;
+                    inFlightSignal = null;
+                    onQueryFinished(key, query, ids);
+                });
+            });
+            if (candidates != null) refinedQueries++;
+            else fullQueries++;
+        } catch (RejectedExecutionException e) {
+            // 数据库线程忙，稍后重试同一次输入
+            inFlightSignal = null;
+            pendingQuery = query;
+            handler.postDelayed(debounceRunnable, DEBOUNCE_MS);
+        }
+    }
+
+    private void onQueryFinished(String key, String query, long[] ids) {
+        cache.put(key, new CachedResult(query, ids));
+        deliver(key, query, ids);
+    }
+
+    private void deliver(String key, String query, long[] ids) {
+        if (key.equals(shownKey)) return;
+        shownKey = key;
+        listener.onSearchResults(query, ids);
+    }
+
+    // 在缓存中找新查询所细化的那次查询，取命中最少的一份；没有可用的返回 null
+    // 空结果不作为细化基础：输入到一半的词、缓存之后新写入的行都可能让它过时，细化只会一直得到空结果
+    private long[] findRefinementBase(String query) {
+        long[] best = null;
+        // 只遍历不访问，不改变 LRU 顺序
+        for (CachedResult cached : cache.values()) {
+            if (cached.ids.length == 0 || cached.ids.length > MAX_REFINE_CANDIDATES) continue;
+            if (best != null && cached.ids.length >= best.length) continue;
+            if (FeedSearchRanker.narrows(query, cached.query)) {
+                best = cached.ids;
+            }
+        }
+        return best;
+    }
+
+    // 取消去抖中和正在执行的查询
+    private void cancelPending() {
+        handler.removeCallbacks(debounceRunnable);
+        pendingQuery = null;
+        generation++;
+        if (inFlightSignal != null) {
+            inFlightSignal.cancel();
+            inFlightSignal = null;
+        }
+        DbExecutor.getInstance().cancel(inFlight);
+        inFlight = null;
+    }
+
+    private static final class CachedResult {
+        final String query;
+        final long[] ids;
+
+        CachedResult(String query, long[] ids) {
+            this.query = query;
+            this.ids = ids;
+        }
+    }
+}
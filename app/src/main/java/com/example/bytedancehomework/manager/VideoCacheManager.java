@@ -0,0 +1,113 @@
+package com.example.bytedancehomework.manager;
+
+import android.content.Context;
+import android.os.Process;
+import android.util.Log;
+
+import com.example.bytedancehomework.data.Item.FeedItem;
+import com.example.bytedancehomework.data.VideoCache.HttpVideoSource;
+import com.example.bytedancehomework.data.VideoCache.VideoCacheProxy;
+import com.example.bytedancehomework.data.VideoCache.VideoSegmentCache;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// 视频缓存入口：磁盘分段缓存 + 本地代理，播放器通过 getPlayUrl 拿到代理地址
+// 缓存目录扫描和代理启动都在后台完成，就绪前 getPlayUrl 返回原地址，不影响播放
+public class VideoCacheManager {
+    private static final String TAG = "VideoCacheManager";
+    private static final String CACHE_DIR_NAME = "video-cache";
+    private static final long MAX_CACHE_BYTES = 200L * 1024 * 1024;
+    // 每个候选视频预取开头的秒数
+    private static final int PREFETCH_SECONDS = 3;
+    private static final int PREFETCH_QUEUE_CAPACITY = 8;
+
+    private static volatile VideoCacheManager instance;
+    private final ThreadPoolExecutor executor;
+    private volatile VideoSegmentCache cache;
+    private volatile VideoCacheProxy proxy;
+
+    private VideoCacheManager() {
+        // 单线程按顺序预取，队列满时丢弃最早的请求，越靠近当前位置的视频越优先
+        executor = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(PREFETCH_QUEUE_CAPACITY),
+                r -> {
+                    Thread thread = new Thread(() -> {
+                        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                        r.run();
+                    }, "video-cache");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.DiscardOldestPolicy());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    //单例实现
+    public static VideoCacheManager getInstance() {
+        if (instance == null) {
+            synchronized (VideoCacheManager.class) {
+                if (instance == null)
+                    instance = new VideoCacheManager();
+            }
+        }
+        return instance;
+    }
+
+    public void init(Context context) {
+        if (cache != null) return;
+        File cacheDir = new File(context.getApplicationContext().getCacheDir(), CACHE_DIR_NAME);
+        executor.execute(() -> {
+            if (cache != null) return;
+            VideoSegmentCache segmentCache = new VideoSegmentCache(cacheDir, new HttpVideoSource(), MAX_CACHE_BYTES);
+            VideoCacheProxy cacheProxy = new VideoCacheProxy(segmentCache);
+            try {
+                cacheProxy.start();
+            } catch (IOException e) {
+                Log.e(TAG, "init: 本地代理启动失败，直接播放原地址", e);
+                return;
+            }
+            cache = segmentCache;
+            proxy = cacheProxy;
+            Log.d(TAG, "init: 代理端口 " + cacheProxy.getPort() + "，" + segmentCache.report());
+        });
+    }
+
+    // 播放器使用的地址：代理就绪时走本地缓存，否则返回原地址
+    public String getPlayUrl(String url) {
+        VideoCacheProxy current = proxy;
+        return current != null ? current.proxyUrl(url) : url;
+    }
+
+    // 后台预取视频开头几秒，下次播放时首段数据直接来自磁盘
+    public void prefetch(FeedItem item) {
+        if (item == null || !item.isVideo()) return;
+        String url = item.getVideoUrl();
+        // 本地资源不需要预取，也无法通过网络回源
+        if (!VideoCacheProxy.isHttpUrl(url)) return;
+
+        long durationMs = item.getVideoDuration();
+        executor.execute(() -> {
+            VideoSegmentCache current = cache;
+            if (current == null) return;
+            try {
+                current.prefetch(url, PREFETCH_SECONDS, durationMs);
+            } catch (IOException e) {
+                Log.w(TAG, "prefetch: 预取失败 " + url + ": " + e.getMessage());
+            }
+        });
+    }
+
+    public float getHitRate() {
+        VideoSegmentCache current = cache;
+        return current != null ? current.getHitRate() : 0f;
+    }
+
+    public String report() {
+        VideoSegmentCache current = cache;
+        return current != null ? current.report() : "not ready";
+    }
+}
@@ -1,16 +1,21 @@
 package com.example.bytedancehomework.manager;
 
+import android.content.Context;
+import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
+import android.view.SurfaceHolder;
 import android.widget.VideoView;
 
+import androidx.annotation.NonNull;
+
 import com.example.bytedancehomework.data.DBHelper.DatabaseHelper;
 import com.example.bytedancehomework.data.Item.FeedItem;
 
-import java.util.logging.Handler;
-import java.util.logging.LogRecord;
-
-public class VideoPlayManager {
+// 播放器由 MediaPlayerPool 统一管理，VideoView 只作为显示用的 Surface（不再调用 setVideoPath）
+// 准备好的 MediaPlayer 在列表项之间复用，下一个候选视频可以在当前视频播放时提前准备
+public class VideoPlayManager implements MediaPlayerPool.Callback {
 
     public interface PlaybackStateListener
     {
@@ -25,12 +30,62 @@ public class VideoPlayManager {
     private PlaybackStateListener playbackStateListener;
     private VideoView currentVideoView;
     private FeedItem currentPlayingItem;
+    private MediaPlayerPool.PooledPlayer currentPlayer;
     private DatabaseHelper dbHelper;
+    private PlayPositionCheckpointer positionCheckpointer;
+    private final MediaPlayerPool playerPool = new MediaPlayerPool();
     private Runnable timeoutRunnable;
     private boolean isPrepared = false;
+    private boolean surfaceAttached = false;
+    private boolean pendingStart = false;
     private final String TAG = "VideoPlayManager";
 
-    private VideoPlayManager() {}
+    // 首帧耗时统计：从请求播放到 MEDIA_INFO_VIDEO_RENDERING_START
+    private long playRequestTime;
+    private boolean firstFrameReported = false;
+    private long lastTimeToFirstFrameMs = -1;
+    private long totalTimeToFirstFrameMs = 0;
+    private int firstFrameCount = 0;
+
+    // 播放过程中定期记录进度，进程被杀时最多丢失一个周期
+    private static final long CHECKPOINT_INTERVAL_MS = 5000;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable checkpointRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (currentPlayer != null && currentPlayer.isPlaying()) {
+                savePlayPosition();
+                mainHandler.postDelayed(this, CHECKPOINT_INTERVAL_MS);
+            }
+        }
+    };
+
+    // 当前 VideoView 的 Surface 生命周期：创建后挂到播放器上，销毁前先解绑
+    private final SurfaceHolder.Callback surfaceCallback = new SurfaceHolder.Callback() {
+        @Override
+        public void surfaceCreated(@NonNull SurfaceHolder holder) {
+            if (currentVideoView != null && currentVideoView.getHolder() == holder) {
+                attachDisplay(holder);
+                startWhenReady();
+            }
+        }
+
+        @Override
+        public void surfaceChanged(@NonNull SurfaceHolder holder, int format, int width, int height) {
+        }
+
+        @Override
+        public void surfaceDestroyed(@NonNull SurfaceHolder holder) {
+            if (currentVideoView != null && currentVideoView.getHolder() == holder) {
+                pausePlayback();
+                detachDisplay();
+            }
+        }
+    };
+
+    private VideoPlayManager() {
+        playerPool.setCallback(this);
+    }
 
     //单例实现
     public static VideoPlayManager getInstance()
@@ -45,21 +100,39 @@ public class VideoPlayManager {
         }
         return instance;
     }
+    // 播放器池打开视频地址时需要 Context
+    public void init(Context context)
+    {
+        playerPool.setContext(context);
+    }
+
     public void setDbHelper(DatabaseHelper dbHelper)
     {
         this.dbHelper=dbHelper;
+        this.positionCheckpointer = dbHelper != null ? new PlayPositionCheckpointer(dbHelper) : null;
     }
     public void setPlaybackStateListener(PlaybackStateListener listener)
     {
         this.playbackStateListener = listener;
     }
 
+    // 池容量即同时存在的 MediaPlayer 上限（含正在播放的一个），用于控制内存占用
+    public void setPoolCapacity(int capacity)
+    {
+        playerPool.setCapacity(capacity);
+    }
+
+    public int getPoolCapacity()
+    {
+        return playerPool.getCapacity();
+    }
+
     public boolean isPlaying(FeedItem item)
     {
         return currentPlayingItem != null &&
                 currentPlayingItem.getId() == item.getId() &&
-                currentVideoView != null &&
-                currentVideoView.isPlaying();
+                currentPlayer != null &&
+                currentPlayer.isPlaying();
     }
 
     public FeedItem getCurrentPlayingItem()
@@ -69,99 +142,82 @@ public class VideoPlayManager {
 
     public void pauseCurrentPlayback()
     {
-        if(currentVideoView!=null&&currentVideoView.isPlaying())
+        if(currentPlayer!=null&&currentPlayer.isPlaying())
             pausePlayback();
     }
 
+    // ==================== 预准备 ====================
+
+    // 提前准备即将播放的视频，切换到它时无需再等待 prepare
+    public void preload(FeedItem item)
+    {
+        if(item==null||!item.isVideo())
+            return;
+        if(currentPlayingItem!=null&&currentPlayingItem.getId()==item.getId())
+            return;
+        playerPool.preload(item, currentPlayingItem != null ? currentPlayingItem.getId() : -1);
+    }
+
+    // ==================== 播放控制 ====================
+
     public void setupVideoPlayback(FeedItem item,VideoView videoView)
     {
         pauseCurrentPlayback();
+        detachSurface();
 
         currentPlayingItem=item;
         currentVideoView=videoView;
         isPrepared=false;
+        pendingStart=true;
+        playRequestTime=SystemClock.uptimeMillis();
+        firstFrameReported=false;
+
+        Log.d(TAG, "setupVideoPlayback: 视频URL = " + item.getVideoUrl());
 
-        if (videoView != null) {
-            try {
-                // 尝试停止并释放底层MediaPlayer
-                videoView.stopPlayback();
-                videoView.setVideoURI(null);  // 先清空URI
-                videoView.clearFocus();
-            } catch (Exception e) {
-                Log.e(TAG, "重置VideoView状态时出错", e);
+        // 验证URL是否有效
+        String videoUrl = item.getVideoUrl();
+        if (videoUrl == null || videoUrl.trim().isEmpty()) {
+            Log.e(TAG, "视频URL为空");
+            if (playbackStateListener != null) {
+                playbackStateListener.onPlaybackError(item, "视频地址为空");
             }
+            resetPlaybackState();
+            return;
         }
 
-        startTimeoutCheck(3000);
-
-        try {
-            clearListeners();
-
-            Log.d(TAG, "setupVideoPlayback: 视频URL = " + item.getVideoUrl());
-
-            // 验证URL是否有效
-            String videoUrl = item.getVideoUrl();
-            if (videoUrl == null || videoUrl.trim().isEmpty()) {
-                Log.e(TAG, "视频URL为空");
-                if (playbackStateListener != null) {
-                    playbackStateListener.onPlaybackError(item, "视频地址为空");
-                }
-                return;
+        currentPlayer = playerPool.obtain(item);
+        if (currentPlayer == null) {
+            if (playbackStateListener != null) {
+                playbackStateListener.onPlaybackError(item, "创建播放器失败");
             }
+            resetPlaybackState();
+            return;
+        }
 
-            currentVideoView.post(() -> {
-                try {
-                    currentVideoView.setVideoPath(videoUrl);
-                    Log.d(TAG, "setupVideoPlayback: 设置播放路径完成");
-                } catch (Exception e) {
-                    Log.e(TAG, "设置视频路径失败", e);
-                    if (playbackStateListener != null) {
-                        playbackStateListener.onPlaybackError(item, "设置视频路径失败: " + e.getMessage());
-                    }
-                }
-            });
-
-            Log.d(TAG, "setupVideoPlayback: 设置播放路径完成");
-
-            currentVideoView.setOnPreparedListener(mp->{
-                Log.d(TAG, "setupVideoPlayback: 准备完成");
-                isPrepared=true;
-                cancleTimeoutCheck();
+        attachSurface(videoView);
 
-                if (item.getLastPlayPosition() > 0) {
-                    currentVideoView.seekTo((int) item.getLastPlayPosition());
-                }
-
-                startPlayback();
-            });
+        if (currentPlayer.isPrepared()) {
+            // 池中已准备好，直接开始
+            Log.d(TAG, "setupVideoPlayback: 命中已准备的播放器");
+            isPrepared = true;
+            startWhenReady();
+        } else {
+            startTimeoutCheck(3000);
+        }
+    }
 
-            currentVideoView.setOnErrorListener((mp, what, extra) -> {
-                Log.e(TAG, "setupVideoPlayback: 播放错误，what=" + what + ", extra=" + extra);
-                cancleTimeoutCheck(); // 错误时也取消超时检测
-                String errorMsg = "播放错误，错误码: " + what + ", " + extra;
-                if (playbackStateListener != null) {
-                    playbackStateListener.onPlaybackError(item, errorMsg);
-                }
-                resetPlaybackState(); // 重置状态
-                return true;
-            });
-
-            // 统一在 VideoPlayManager 中设置完成监听器
-            currentVideoView.setOnCompletionListener(mp -> {
-                FeedItem completedItem =currentPlayingItem;
-                stopPlayback();
-                // 通知监听器播放完成，由监听器处理UI更新
-                if (playbackStateListener != null) {
-                    playbackStateListener.onPlaybackCompleted(completedItem);
-                }
-            });
+    // 已准备且 Surface 就绪时才真正开始播放
+    private void startWhenReady()
+    {
+        if(!pendingStart||!isPrepared||!surfaceAttached||currentPlayer==null)
+            return;
+        pendingStart=false;
 
-        } catch (Exception e) {
-            if (playbackStateListener != null) {
-                playbackStateListener.onPlaybackError(item, e.getMessage());
-            }
-            resetPlaybackState();
+        long lastPosition = currentPlayingItem.getLastPlayPosition();
+        if (lastPosition > 0 && Math.abs(currentPlayer.getPlayer().getCurrentPosition() - lastPosition) > 500) {
+            currentPlayer.getPlayer().seekTo((int) lastPosition);
         }
+        startPlayback();
     }
 
     private void startTimeoutCheck(int timeoutMillis) {
@@ -177,38 +233,35 @@ public class VideoPlayManager {
             }
         };
 
-        currentVideoView.postDelayed(timeoutRunnable,timeoutMillis);
+        mainHandler.postDelayed(timeoutRunnable,timeoutMillis);
     }
 
     private void onPrepareTimeout() {
-        pauseCurrentPlayback();
+        FeedItem timeoutItem = currentPlayingItem;
+        if(timeoutItem!=null)
+            playerPool.remove(timeoutItem.getId());
 
         if(playbackStateListener!=null)
-            playbackStateListener.onPlaybackError(currentPlayingItem,"onPrepareTimeout");
+            playbackStateListener.onPlaybackError(timeoutItem,"onPrepareTimeout");
 
         resetPlaybackState();
     }
 
     private void cancleTimeoutCheck() {
-        Log.d(TAG, "cancleTimeoutCheck: 取消超时检测");
-        if(currentVideoView!=null&&timeoutRunnable!=null)
+        if(timeoutRunnable!=null)
         {
-            currentVideoView.removeCallbacks(timeoutRunnable);
+            Log.d(TAG, "cancleTimeoutCheck: 取消超时检测");
+            mainHandler.removeCallbacks(timeoutRunnable);
             timeoutRunnable=null;
         }
     }
 
-    private void clearListeners() {
-        currentVideoView.setOnPreparedListener(null);
-        currentVideoView.setOnCompletionListener(null);
-        currentVideoView.setOnErrorListener(null);
-    }
-
     public void startPlayback()
     {
-        if(currentVideoView!=null) {
+        if(currentPlayer!=null&&currentPlayer.isPrepared()) {
             Log.d(TAG, "startPlayback: 开始播放");
-            currentVideoView.start();
+            currentPlayer.getPlayer().start();
+            startCheckpoints();
             if(playbackStateListener!=null&&currentPlayingItem!=null)
             {
                 playbackStateListener.onPlaybackStarted(currentPlayingItem);
@@ -218,24 +271,30 @@ public class VideoPlayManager {
 
     public void pausePlayback()
     {
-        if(currentVideoView!=null&&currentVideoView.isPlaying())
+        if(currentPlayer!=null&&currentPlayer.isPlaying())
         {
-            currentVideoView.pause();
+            currentPlayer.getPlayer().pause();
+            stopCheckpoints();
             savePlayPosition();
             if (playbackStateListener != null && currentPlayingItem != null) {
                 playbackStateListener.onPlaybackPaused(currentPlayingItem,
-                        currentVideoView.getCurrentPosition());
+                        currentPlayer.getPlayer().getCurrentPosition());
             }
         }
     }
 
+    // 停止只解绑 Surface，播放器保留在池中，回到该视频时可直接续播
     public void stopPlayback()
     {
-        if(currentVideoView!=null)
+        if(currentPlayer!=null)
         {
+            stopCheckpoints();
             savePlayPosition();
-            currentVideoView.stopPlayback();
+            if(currentPlayer.isPlaying())
+                currentPlayer.getPlayer().pause();
+            detachSurface();
             FeedItem stoppedItem = currentPlayingItem;
+            currentPlayer=null;
             currentVideoView=null;
             currentPlayingItem=null;
 
@@ -245,26 +304,143 @@ public class VideoPlayManager {
         }
     }
 
+    // 只写入内存缓冲，由 PlayPositionCheckpointer 合并后在后台批量落库
     private void savePlayPosition() {
-        if(currentVideoView!=null&&currentPlayingItem!=null&&dbHelper!=null)
+        if(currentPlayer!=null&&currentPlayer.isPrepared()&&currentPlayingItem!=null&&positionCheckpointer!=null)
         {
-            int position =currentVideoView.getCurrentPosition();
+            int position =currentPlayer.getPlayer().getCurrentPosition();
             currentPlayingItem.setLastPlayPosition(position);
-            dbHelper.updateVideoPlayPosition(currentPlayingItem.getId(),position);
+            positionCheckpointer.record(currentPlayingItem.getId(),position);
+        }
+    }
+
+    private void startCheckpoints() {
+        mainHandler.removeCallbacks(checkpointRunnable);
+        mainHandler.postDelayed(checkpointRunnable, CHECKPOINT_INTERVAL_MS);
+    }
+
+    private void stopCheckpoints() {
+        mainHandler.removeCallbacks(checkpointRunnable);
+    }
+
+    // 立即提交缓冲中的播放进度，在 onPause/onStop 等生命周期事件中调用
+    public void flushPlayPositions() {
+        if (positionCheckpointer != null) {
+            positionCheckpointer.flush();
+        }
+    }
+
+    // ==================== Surface 绑定 ====================
+
+    private void attachSurface(VideoView videoView) {
+        if (videoView == null) return;
+        SurfaceHolder holder = videoView.getHolder();
+        holder.addCallback(surfaceCallback);
+        if (holder.getSurface() != null && holder.getSurface().isValid()) {
+            attachDisplay(holder);
+        }
+    }
+
+    private void detachSurface() {
+        if (currentVideoView != null) {
+            currentVideoView.getHolder().removeCallback(surfaceCallback);
+        }
+        detachDisplay();
+    }
+
+    private void attachDisplay(SurfaceHolder holder) {
+        if (currentPlayer == null) return;
+        currentPlayer.getPlayer().setDisplay(holder);
+        currentPlayer.getPlayer().setScreenOnWhilePlaying(true);
+        surfaceAttached = true;
+    }
+
+    private void detachDisplay() {
+        if (currentPlayer != null && surfaceAttached) {
+            currentPlayer.getPlayer().setDisplay(null);
         }
+        surfaceAttached = false;
+    }
+
+    // ==================== 播放器池回调 ====================
+
+    @Override
+    public void onPrepared(MediaPlayerPool.PooledPlayer player) {
+        if (player != currentPlayer) return;
+        Log.d(TAG, "onPrepared: 准备完成");
+        isPrepared = true;
+        cancleTimeoutCheck();
+        startWhenReady();
+    }
+
+    @Override
+    public void onFirstFrame(MediaPlayerPool.PooledPlayer player) {
+        if (player != currentPlayer || firstFrameReported) return;
+        firstFrameReported = true;
+        lastTimeToFirstFrameMs = SystemClock.uptimeMillis() - playRequestTime;
+        totalTimeToFirstFrameMs += lastTimeToFirstFrameMs;
+        firstFrameCount++;
+        Log.i(TAG, "onFirstFrame: 首帧耗时 " + lastTimeToFirstFrameMs + "ms，平均 " +
+                getAverageTimeToFirstFrameMs() + "ms（" + firstFrameCount + " 次）");
     }
 
+    @Override
+    public void onCompletion(MediaPlayerPool.PooledPlayer player) {
+        if (player != currentPlayer) return;
+        FeedItem completedItem =currentPlayingItem;
+        stopPlayback();
+        // 播放完的播放器不再保留，把位置让给后续候选
+        playerPool.remove(player.getItemId());
+        // 通知监听器播放完成，由监听器处理UI更新
+        if (playbackStateListener != null) {
+            playbackStateListener.onPlaybackCompleted(completedItem);
+        }
+    }
+
+    @Override
+    public void onError(MediaPlayerPool.PooledPlayer player, int what, int extra) {
+        Log.e(TAG, "onError: 播放错误，what=" + what + ", extra=" + extra);
+        if (player != currentPlayer) return;
+        cancleTimeoutCheck(); // 错误时也取消超时检测
+        String errorMsg = "播放错误，错误码: " + what + ", " + extra;
+        if (playbackStateListener != null) {
+            playbackStateListener.onPlaybackError(currentPlayingItem, errorMsg);
+        }
+        resetPlaybackState(); // 重置状态
+    }
+
+    // ==================== 首帧统计 ====================
+
+    public long getLastTimeToFirstFrameMs() {
+        return lastTimeToFirstFrameMs;
+    }
+
+    public long getAverageTimeToFirstFrameMs() {
+        return firstFrameCount == 0 ? -1 : totalTimeToFirstFrameMs / firstFrameCount;
+    }
+
+    // ==================== 重置与释放 ====================
+
     private void resetPlaybackState() {
         cancleTimeoutCheck();
+        stopCheckpoints();
+        if (currentVideoView != null) {
+            currentVideoView.getHolder().removeCallback(surfaceCallback);
+        }
+        surfaceAttached = false;
 
+        currentPlayer = null;
         currentPlayingItem = null;
         currentVideoView = null;
         isPrepared = false;
+        pendingStart = false;
     }
 
     public void release()
     {
         stopPlayback();
         resetPlaybackState();
+        flushPlayPositions();
+        playerPool.releaseAll();
     }
 }
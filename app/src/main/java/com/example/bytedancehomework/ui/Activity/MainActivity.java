@@ -3,11 +3,17 @@ package com.example.bytedancehomework.ui.Activity;
 
 import android.content.res.Resources;
 import android.os.Bundle;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.util.Log;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
+import android.view.inputmethod.EditorInfo;
 import android.widget.Button;
+import android.widget.EditText;
 import android.widget.ImageButton;
 import android.widget.PopupMenu;
 import android.widget.ProgressBar;
@@ -19,6 +25,7 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.GridLayoutManager;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
+import androidx.recyclerview.widget.StaggeredGridLayoutManager;
 import androidx.swiperefreshlayout.widget.SwipeRefreshLayout;
 
 import com.example.bytedancehomework.ui.Adapter.FlexibleAdapter;
@@ -26,18 +33,27 @@ import com.example.bytedancehomework.data.DBHelper.DatabaseHelper;
 import com.example.bytedancehomework.Enum.LayoutMode;
 import com.example.bytedancehomework.data.Item.FeedItem;
 import com.example.bytedancehomework.R;
+import com.example.bytedancehomework.manager.AutoPlayController;
+import com.example.bytedancehomework.manager.DbExecutor;
+import com.example.bytedancehomework.manager.ExposureEventPipeline;
 import com.example.bytedancehomework.manager.ExposureTracker;
+import com.example.bytedancehomework.manager.SchemaBackfillRunner;
+import com.example.bytedancehomework.manager.SearchController;
+import com.example.bytedancehomework.manager.VideoCacheManager;
 import com.example.bytedancehomework.manager.VideoPlayManager;
 import com.example.bytedancehomework.ui.Adapter.VideoViewHolder;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 
 public class MainActivity extends AppCompatActivity
         implements FlexibleAdapter.OnItemClickListener,
         FlexibleAdapter.OnLoadMoreListener,
         FlexibleAdapter.OnShowLoadMoreButtonListener,
-        VideoPlayManager.PlaybackStateListener {
+        FlexibleAdapter.OnDataChangedListener,
+        VideoPlayManager.PlaybackStateListener,
+        SearchController.Listener {
 
     private String TAG = "MainActivity";
     // UI组件
@@ -45,21 +61,30 @@ public class MainActivity extends AppCompatActivity
     private SwipeRefreshLayout swipeRefreshLayout;
     private ProgressBar progressBarLoadMore;
     private Button lordMoreButton;
+    private EditText searchInput;
 
     // 业务组件
     private FlexibleAdapter adapter;
     private DatabaseHelper dbHelper;
     private ExposureTracker exposureTracker;
+    private AutoPlayController autoPlayController;
     private VideoPlayManager videoPlayManager;
+    private SearchController searchController;
+    private SchemaBackfillRunner schemaBackfillRunner;
 
-    private int currentAutoPlayPosition=0;
+    // 启动耗时统计
+    private long startupBeginTime;
+    private boolean firstContentReported = false;
 
     // ==================== 生命周期方法 ====================
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        startupBeginTime = SystemClock.uptimeMillis();
         super.onCreate(savedInstanceState);
+        Trace.beginSection("Startup#inflate");
         setContentView(R.layout.activity_main);
+        Trace.endSection();
 
         initializeComponents();
         setupUI();
@@ -70,8 +95,29 @@ public class MainActivity extends AppCompatActivity
     @Override
     protected void onPause() {
         super.onPause();
-        if(videoPlayManager!=null)
+        if(videoPlayManager!=null) {
             videoPlayManager.pausePlayback();
+            videoPlayManager.flushPlayPositions();
+        }
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        // 回到前台后重新开始计算曝光停留
+        if (exposureTracker != null && recyclerView != null) {
+            recyclerView.post(exposureTracker::checkAllVisibleItems);
+        }
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        if(videoPlayManager!=null)
+            videoPlayManager.flushPlayPositions();
+        // 不可见期间不计入停留时长，结束当前曝光并落库
+        if (exposureTracker != null)
+            exposureTracker.endAllExposures();
     }
 
     @Override
@@ -84,9 +130,11 @@ public class MainActivity extends AppCompatActivity
 
     private void initializeComponents() {
         progressBarLoadMore = findViewById(R.id.progressBarLoadMore);
-        dbHelper = new DatabaseHelper(this);
+        dbHelper = DatabaseHelper.getInstance(this);
         videoPlayManager = VideoPlayManager.getInstance();
         adapter = new FlexibleAdapter(this, new ArrayList<>(), LayoutMode.single, dbHelper,videoPlayManager);
+        searchController = new SearchController(dbHelper, this);
+        schemaBackfillRunner = new SchemaBackfillRunner(dbHelper);
     }
 
     private void setupUI() {
@@ -94,22 +142,80 @@ public class MainActivity extends AppCompatActivity
         setupRecyclerView();
         setupSwipeRefreshLayout();
         setupMenuButton();
+        setupSearchBar();
         setupLoadMoreButton();
         setupExposureTracker();
+        setupAutoPlayController();
     }
 
+    // 分阶段启动：主线程只负责展示骨架，打开数据库、判空、写入样例都在后台完成，第一页就绪后再上屏
     private void initializeData() {
-        List<FeedItem> dbItems = dbHelper.getAllFeedItems();
-        if (dbItems.size() == 0) {
-            addSampleData();
+        showStartupSkeleton();
+
+        try {
+            DbExecutor.getInstance().submit(this::prepareDatabase);
+        } catch (RejectedExecutionException e) {
+            Log.e(TAG, "initializeData: 后台任务被拒绝，直接加载第一页", e);
+            adapter.refreshData();
         }
-        adapter.refreshData();
     }
 
     public void initVideoPlayManager()
     {
+        videoPlayManager.init(this);
         videoPlayManager.setDbHelper(dbHelper);
         videoPlayManager.setPlaybackStateListener(this);
+        VideoCacheManager.getInstance().init(this);
+    }
+
+    // ==================== 启动流程方法 ====================
+
+    private void showStartupSkeleton() {
+        Trace.beginSection("Startup#skeleton");
+        swipeRefreshLayout.setRefreshing(true);
+        Trace.endSection();
+    }
+
+    // 运行在数据库线程
+    private void prepareDatabase() {
+        Trace.beginSection("Startup#openDatabase");
+        try {
+            // 首次打开会建表或升级，顺带预热连接
+            dbHelper.getWritableDatabase();
+        } finally {
+            Trace.endSection();
+        }
+
+        Trace.beginSection("Startup#seedIfEmpty");
+        try {
+            // 只查询是否存在数据，不再为判空物化整张表
+            if (!dbHelper.hasFeedItems()) {
+                addSampleData();
+            }
+        } finally {
+            Trace.endSection();
+        }
+
+        Log.d(TAG, "prepareDatabase: 数据库就绪 " + (SystemClock.uptimeMillis() - startupBeginTime) + "ms");
+        runOnUiThread(() -> {
+            if (isFinishing() || isDestroyed()) return;
+            Trace.beginSection("Startup#requestFirstPage");
+            adapter.refreshData();
+            Trace.endSection();
+        });
+    }
+
+    // 第一页上屏，记录首屏内容耗时
+    private void reportFirstContent() {
+        if (firstContentReported) return;
+        firstContentReported = true;
+
+        long timeToFirstContent = SystemClock.uptimeMillis() - startupBeginTime;
+        Log.i(TAG, "time to first content: " + timeToFirstContent + "ms");
+        reportFullyDrawn();
+
+        // 升级留下的回填（全文索引、列表索引）在首屏之后分批执行，不与启动争抢数据库
+        schemaBackfillRunner.start();
     }
 
     // ==================== UI设置方法 ====================
@@ -118,6 +224,7 @@ public class MainActivity extends AppCompatActivity
         adapter.setOnItemClickListener(this);
         adapter.setOnLoadMoreListener(this);
         adapter.setOnShowLoadMoreButtonListener(this);
+        adapter.setOnDataChangedListener(this);
     }
 
     private void setupRecyclerView() {
@@ -136,6 +243,40 @@ public class MainActivity extends AppCompatActivity
         menuButton.setOnClickListener(this::showPopupMenu);
     }
 
+    // 搜索栏：边输入边检索（去抖、缓存由 SearchController 处理），点击搜索或键盘上的搜索键立即检索
+    // 返回键清空输入，输入清空后回到完整列表
+    private void setupSearchBar() {
+        searchInput = findViewById(R.id.editTextSerachInput);
+        Button searchButton = findViewById(R.id.buttonSearchAction);
+        Button backButton = findViewById(R.id.buttonSearchBack);
+
+        searchButton.setOnClickListener(v -> searchController.submit(searchInput.getText()));
+        searchInput.setImeOptions(EditorInfo.IME_ACTION_SEARCH);
+        searchInput.setSingleLine(true);
+        searchInput.setOnEditorActionListener((v, actionId, event) -> {
+            if (actionId == EditorInfo.IME_ACTION_SEARCH) {
+                searchController.submit(searchInput.getText());
+                return true;
+            }
+            return false;
+        });
+        searchInput.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                searchController.onQueryChanged(s);
+            }
+        });
+        backButton.setOnClickListener(v -> searchInput.setText(""));
+    }
+
     private void setupLoadMoreButton() {
         lordMoreButton = findViewById(R.id.buttonLoadMore);
         lordMoreButton.setOnClickListener(v -> {
@@ -147,24 +288,43 @@ public class MainActivity extends AppCompatActivity
     }
 
     private void setupExposureTracker() {
-        exposureTracker = new ExposureTracker();
+        exposureTracker = new ExposureTracker(new ExposureEventPipeline(dbHelper));
         exposureTracker.startTrack(recyclerView, adapter);
     }
 
+    private void setupAutoPlayController() {
+        autoPlayController = new AutoPlayController();
+        autoPlayController.startTrack(recyclerView, videoPlayManager);
+    }
+
     // ==================== 布局模式方法 ====================
 
     private void switchToSingleMode() {
         LinearLayoutManager layoutManager = new LinearLayoutManager(this);
-        recyclerView.setLayoutManager(layoutManager);
+        applyLayoutManager(layoutManager);
         adapter.switchLayoutMode(LayoutMode.single);
     }
 
     private void switchToGridMode() {
         GridLayoutManager layoutManager = new GridLayoutManager(this, 2);
-        recyclerView.setLayoutManager(layoutManager);
+        applyLayoutManager(layoutManager);
         adapter.switchLayoutMode(LayoutMode.grid);
     }
 
+    // 瀑布流：条目高度在绑定时按保存的宽高比预留，图片到达后不重新布局、不换列
+    private void switchToStaggeredMode() {
+        StaggeredGridLayoutManager layoutManager =
+                new StaggeredGridLayoutManager(2, StaggeredGridLayoutManager.VERTICAL);
+        applyLayoutManager(layoutManager);
+        adapter.switchLayoutMode(LayoutMode.staggered);
+    }
+
+    // 先按新布局调整复用池大小，再切换，旧布局回收的 ViewHolder 能全部留给新布局使用
+    private void applyLayoutManager(RecyclerView.LayoutManager layoutManager) {
+        adapter.tuneViewPool(layoutManager);
+        recyclerView.setLayoutManager(layoutManager);
+    }
+
     private void setupMixedLayout() {
         GridLayoutManager layoutManager = new GridLayoutManager(this, 2);
 
@@ -180,7 +340,7 @@ public class MainActivity extends AppCompatActivity
                 return 1;
             }
         });
-        recyclerView.setLayoutManager(layoutManager);
+        applyLayoutManager(layoutManager);
     }
 
     // ==================== 数据操作方法 ====================
@@ -213,15 +373,13 @@ public class MainActivity extends AppCompatActivity
                 "android.resource://" + getPackageName()+'/'+R.drawable.video_cover,
                 1280, 720, 90000, LayoutMode.grid));
 
-        for (FeedItem item : sampleItems) {
-            dbHelper.insertFeedItem(item);
-        }
+        dbHelper.insertFeedItems(sampleItems);
     }
 
+    // 写入完成后适配器自己刷新列表并通过 onDataChanged 作废搜索缓存
     private void addNewSampleItem() {
         adapter.addNewSampleItem();
         Toast.makeText(this, "已添加新项目", Toast.LENGTH_SHORT).show();
-        adapter.refreshData();
     }
 
     private void clearAllData() {
@@ -232,6 +390,7 @@ public class MainActivity extends AppCompatActivity
     private void refreshData() {
         swipeRefreshLayout.setRefreshing(true);
         lordMoreButton.setVisibility(View.GONE);
+        searchController.invalidate();
         adapter.refreshData();
     }
 
@@ -259,7 +418,7 @@ public class MainActivity extends AppCompatActivity
             switchToGridMode();
             return true;
         } else if (id == R.id.menu_staggered_item) {
-            Toast.makeText(this, "该功能暂未开放", Toast.LENGTH_SHORT).show();
+            switchToStaggeredMode();
             return true;
         } else if (id == 100) {
             addNewSampleItem();
@@ -289,7 +448,7 @@ public class MainActivity extends AppCompatActivity
             if(adapter!=null&&newLayoutMode!=null)
             {
                 adapter.updateLayoutMode(position,newLayoutMode);
-                Log.d(TAG, "onItemClick: "+position+" 的LayoutMode由"+oldLayoutMode+"改为"+item.getLayoutMode());
+                Log.d(TAG, "onItemClick: "+position+" 的LayoutMode由"+oldLayoutMode+"改为"+newLayoutMode);
             }
         }
     }
@@ -314,13 +473,15 @@ public class MainActivity extends AppCompatActivity
         swipeRefreshLayout.setRefreshing(false);
         progressBarLoadMore.setVisibility(View.GONE);
         Log.d("MainActivity", "加载完成，新增 " + newItems.size() + " 条数据");
+        reportFirstContent();
+
+        // 新一页中的视频在后台预取开头几秒
+        for (FeedItem item : newItems) {
+            if (item.isVideo()) VideoCacheManager.getInstance().prefetch(item);
+        }
 
         // 数据加载完成后，等待 RecyclerView 布局完成再自动播放
-        recyclerView.post(() -> {
-            if (adapter.getItemCount() > 0) {
-                autoPlayVideo();
-            }
-        });
+        autoPlayController.evaluateNow();
     }
 
     @Override
@@ -346,10 +507,33 @@ public class MainActivity extends AppCompatActivity
         });
     }
 
+    // 增删、清空、同步后缓存的检索结果可能缺少新行或包含已删除、已改动的行
+    @Override
+    public void onDataChanged() {
+        searchController.invalidate();
+    }
+
+    // ==================== 搜索监听器实现 ====================
+
+    @Override
+    public void onSearchResults(String query, long[] rankedIds) {
+        lordMoreButton.setVisibility(View.GONE);
+        adapter.showSearchResults(query, rankedIds);
+    }
+
+    @Override
+    public void onSearchCleared() {
+        if (adapter.isSearching()) {
+            swipeRefreshLayout.setRefreshing(true);
+            adapter.exitSearch();
+        }
+    }
+
     // ==================== 视频监听器实现 ====================
     @Override
     public void onPlaybackStarted(FeedItem item) {
         Log.d("MainActivity", "视频开始播放: " + item.getTitle());
+        autoPlayController.preloadAfter(item);
     }
 
     @Override
@@ -378,9 +562,8 @@ public class MainActivity extends AppCompatActivity
                 Toast.makeText(this, "播放完成: " + item.getTitle(), Toast.LENGTH_SHORT).show();
                 Log.d("MainActivity", "播放完成");
 
-                recyclerView.postDelayed(() -> {
-                    autoPlayNextVideo(item);
-                }, 300); // 300ms 延迟
+                // 下一个视频已在播放器池中预准备，无需再延迟
+                autoPlayController.playNextAfter(item);
             } else {
                 Toast.makeText(this, "播放完成", Toast.LENGTH_SHORT).show();
                 Log.w("MainActivity", "onPlaybackCompleted: item is null");
@@ -408,59 +591,6 @@ public class MainActivity extends AppCompatActivity
         });
     }
 
-    private void autoPlayVideo()
-    {
-        String TAG="MainActivity";
-        Log.d("MainActivity", "autoPlayVideo: 进入");
-        for(int i=currentAutoPlayPosition;i<adapter.getItemCount();i++)
-        {
-//            Log.d(TAG, "autoPlayVideo: "+i);
-            RecyclerView.ViewHolder viewHolder = recyclerView.findViewHolderForAdapterPosition(i);
-            if(viewHolder!=null)
-            {
-                FeedItem nextItem=adapter.getItemAt(i);
-//                Log.d("MainActivity", "autoPlayVideo: viewHolder非空");
-                if(nextItem!=null&&nextItem.isVideo())
-                {
-//                    Log.d("MainActivity", "autoPlayVideo: "+i+"为videoViewHolder");
-                    if(viewHolder instanceof VideoViewHolder)
-                    {
-                        ((VideoViewHolder) viewHolder).playVideo();
-                        currentAutoPlayPosition=i;
-                        Log.d("MainActivity", "autoPlayVideo: 播放 "+currentAutoPlayPosition);
-                        break;
-                    }
-                }
-            }
-        }
-    }
-
-    private void autoPlayNextVideo(FeedItem item) {
-        Log.d("MainActivity", "进入autoPlayNextVideo");
-        int currentPosition = adapter.getPosition(item);
-        if(currentPosition==-1) return;
-
-        for(int i=currentPosition+1;i<adapter.getItemCount();i++)
-        {
-            View nextView = recyclerView.getLayoutManager().findViewByPosition(i);
-            if(nextView!=null)
-            {
-                FeedItem nextItem=adapter.getItemAt(i);
-                if(nextItem!=null&&nextItem.isVideo())
-                {
-                    RecyclerView.ViewHolder viewHolder=recyclerView.findViewHolderForAdapterPosition(i);
-                    if(viewHolder instanceof VideoViewHolder)
-                    {
-                        ((VideoViewHolder) viewHolder).playVideo();
-                        currentAutoPlayPosition=i;
-                        Log.d("MainActivity", "播放autoPlayNextVideo "+currentAutoPlayPosition);
-                        break;
-                    }
-                }
-            }
-        }
-    }
-
     // ==================== 资源清理方法 ====================
 
     private void cleanupResources() {
@@ -468,13 +598,25 @@ public class MainActivity extends AppCompatActivity
             exposureTracker.stopTrack();
         }
 
-        if (dbHelper != null) {
-            dbHelper.close();
+        if (autoPlayController != null) {
+            autoPlayController.stopTrack();
+        }
+
+        if (schemaBackfillRunner != null) {
+            schemaBackfillRunner.stop();
         }
 
+        if (searchController != null) {
+            searchController.release();
+            Log.d(TAG, "cleanupResources: 搜索 " + searchController.report());
+        }
+
+        // dbHelper 为进程级单例长连接，不随 Activity 关闭
+
         if(videoPlayManager!=null)
         {
             videoPlayManager.release();
         }
+        Log.d(TAG, "cleanupResources: 视频缓存 " + VideoCacheManager.getInstance().report());
     }
 }
\ No newline at end of file
@@ -12,12 +12,25 @@ import com.bumptech.glide.request.RequestOptions;
 import com.example.bytedancehomework.R;
 import com.example.bytedancehomework.data.Item.FeedItem;
 
+import java.util.List;
+
 public abstract class BaseViewHolder extends RecyclerView.ViewHolder {
+    // 条目在当前布局中占的宽度（像素），绑定前由适配器设置，0 表示未知；图片按它计算解码尺寸
+    protected int slotWidth = 0;
 
     public BaseViewHolder(@NonNull View itemView) {
         super(itemView);
     }
 
+    public void setSlotWidth(int slotWidth) {
+        this.slotWidth = slotWidth;
+    }
+
     public abstract void bind(FeedItem item);
+
+    // 局部刷新，默认退化为完整绑定
+    public void bindPayload(FeedItem item, List<Object> payloads) {
+        bind(item);
+    }
     public abstract FeedItem getCurrentItem();
 }
@@ -0,0 +1,53 @@
+package com.example.bytedancehomework.ui.Adapter;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.DiffUtil;
+
+import com.example.bytedancehomework.data.Item.FeedItem;
+
+import java.util.List;
+
+// 列表差异比较：按数据库 id 判断是否同一项，按展示内容判断是否需要重新绑定
+// 只有收藏或布局模式变化时返回 payload，ViewHolder 可以只做局部刷新
+public class FeedItemDiffCallback extends DiffUtil.ItemCallback<FeedItem> {
+    public static final Object PAYLOAD_FAVORITE = "payload_favorite";
+    public static final Object PAYLOAD_LAYOUT_MODE = "payload_layout_mode";
+
+    // payload 是否全部为可局部刷新的类型
+    public static boolean isPartialOnly(List<Object> payloads) {
+        for (Object payload : payloads) {
+            if (payload != PAYLOAD_FAVORITE && payload != PAYLOAD_LAYOUT_MODE) return false;
+        }
+        return !payloads.isEmpty();
+    }
+
+    @Override
+    public boolean areItemsTheSame(@NonNull FeedItem oldItem, @NonNull FeedItem newItem) {
+        return oldItem.getId() == newItem.getId();
+    }
+
+    @Override
+    public boolean areContentsTheSame(@NonNull FeedItem oldItem, @NonNull FeedItem newItem) {
+        return oldItem.contentEquals(newItem);
+    }
+
+    @Nullable
+    @Override
+    public Object getChangePayload(@NonNull FeedItem oldItem, @NonNull FeedItem newItem) {
+        FeedItem probe = newItem.copy();
+
+        probe.setIsFavorite(oldItem.getIsFavorite());
+        if (oldItem.getIsFavorite() != newItem.getIsFavorite() && oldItem.contentEquals(probe)) {
+            return PAYLOAD_FAVORITE;
+        }
+
+        probe.setIsFavorite(newItem.getIsFavorite());
+        probe.setLayoutMode(oldItem.getLayoutMode());
+        if (oldItem.getLayoutMode() != newItem.getLayoutMode() && oldItem.contentEquals(probe)) {
+            return PAYLOAD_LAYOUT_MODE;
+        }
+
+        return null;
+    }
+}
@@ -2,6 +2,9 @@
 package com.example.bytedancehomework.ui.Adapter;
 
 import android.app.Activity;
+import android.database.SQLException;
+import android.os.SystemClock;
+import android.util.DisplayMetrics;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -10,19 +13,30 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.GridLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
+import androidx.recyclerview.widget.StaggeredGridLayoutManager;
 
 import com.bumptech.glide.Glide;
 import com.bumptech.glide.request.RequestOptions;
 import com.example.bytedancehomework.Enum.MediaType;
 import com.example.bytedancehomework.data.DBHelper.DatabaseHelper;
+import com.example.bytedancehomework.data.DBHelper.FeedSyncResult;
 import com.example.bytedancehomework.Enum.LayoutMode;
 import com.example.bytedancehomework.data.Item.FeedItem;
+import com.example.bytedancehomework.data.PrimitiveMap.LongLongMap;
 import com.example.bytedancehomework.R;
+import com.example.bytedancehomework.manager.DbExecutor;
+import com.example.bytedancehomework.manager.FeedPrefetcher;
 import com.example.bytedancehomework.manager.VideoPlayManager;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 
 public class FlexibleAdapter extends RecyclerView.Adapter<BaseViewHolder> {
     // 常量
@@ -32,24 +46,57 @@ public class FlexibleAdapter extends RecyclerView.Adapter<BaseViewHolder> {
     private static final int VIEW_TYPE_GRID_VIDEO = 3;
     private static final int VIEW_TYPE_STAGGERED_IMAGE = 4;
     private static final int VIEW_TYPE_STAGGERED_VIDEO = 5;
-
-    private final int PAGE_SIZE=5;
+    private static final int[] VIEW_TYPES = {
+            VIEW_TYPE_SINGLE_IMAGE, VIEW_TYPE_SINGLE_VIDEO, VIEW_TYPE_GRID_IMAGE,
+            VIEW_TYPE_GRID_VIDEO, VIEW_TYPE_STAGGERED_IMAGE, VIEW_TYPE_STAGGERED_VIDEO
+    };
+
+    // 复用池估算：条目最矮约 150dp；各布局模式中最多 2 列，预加载按最多列数准备，切换模式时不用现场 inflate
+    private static final int MIN_ROW_HEIGHT_DP = 150;
+    private static final int MAX_SPAN_COUNT = 2;
+
+    private final FeedPrefetcher prefetcher;
+    private final RecyclerView.OnScrollListener prefetchScrollListener = new RecyclerView.OnScrollListener() {
+        @Override
+        public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+            onFeedScrolled(recyclerView);
+        }
+    };
 
     // 成员变量
+    // items 为最近一次提交给 differ 的列表快照，提交后不再修改；界面当前展示的列表以 differ 为准
     private List<FeedItem> items;
+    private final AsyncListDiffer<FeedItem> differ;
+    // id -> 位置索引，对应 differ 已提交（界面正在展示）的列表，只在主线程读写
+    private final LongLongMap positionIndex = new LongLongMap();
+    private List<FeedItem> indexedItems;
     private DatabaseHelper dbHelper;
     private LayoutMode layoutMode;
     private Activity activity;
     private VideoPlayManager videoPlayManager;
+    private RecyclerView recyclerView;
+    private ViewHolderPreInflater preInflater;
 
-    private int currentPage = 0;
     private boolean isLoading = false;
     private boolean hasMore = true;
+    // 上一次记入到达末尾时的条目数；条目数不变时重复绑定最后一项（payload 局部刷新、重新布局）不再计数
+    private int tailReachedItemCount = -1;
+    private final Runnable tailReachedRunnable = this::onTailReached;
+
+    // 搜索状态：searchQuery 非空时列表展示检索结果，翻页沿已排好序的命中 id 继续读取，不再重复检索
+    private String searchQuery;
+    private long[] searchIds;
+    private int searchOffset = 0;
+
+    // 加载代数：刷新或清空时递增，旧代的加载结果到达后直接丢弃
+    private int loadGeneration = 0;
+    private Future<?> pendingLoad;
 
     // 监听器
     private OnItemClickListener itemClickListener;
     private OnLoadMoreListener loadMoreListener;
     private OnShowLoadMoreButtonListener showLoadMoreButtonListener;
+    private OnDataChangedListener dataChangedListener;
 
     // ==================== 接口定义 ====================
 
@@ -64,6 +111,11 @@ public class FlexibleAdapter extends RecyclerView.Adapter<BaseViewHolder> {
         void onLoadError(String error);
     }
 
+    // 新增、删除、清空、同步改变了数据库中的内容，依赖旧数据的缓存（如搜索结果）需要作废
+    public interface OnDataChangedListener {
+        void onDataChanged();
+    }
+
     public interface OnShowLoadMoreButtonListener {
         void onShouldShowLoadMoreButton();
         void onShouldHideLoadMoreButton();
@@ -72,8 +124,17 @@ public class FlexibleAdapter extends RecyclerView.Adapter<BaseViewHolder> {
     // ==================== 构造方法 ====================
 
     public FlexibleAdapter(Activity activity, List<FeedItem> items, LayoutMode layoutMode, DatabaseHelper dbHelper,VideoPlayManager videoPlayManager) {
+        this(activity, items, layoutMode, dbHelper, videoPlayManager, new FeedPrefetcher());
+    }
+
+    public FlexibleAdapter(Activity activity, List<FeedItem> items, LayoutMode layoutMode, DatabaseHelper dbHelper,
+                           VideoPlayManager videoPlayManager, FeedPrefetcher prefetcher) {
         this.activity = activity;
-        this.items = items;
+        this.prefetcher = prefetcher;
+        this.differ = new AsyncListDiffer<>(this, new FeedItemDiffCallback());
+        // 稳定 id 必须在绑定到 RecyclerView 之前设置
+        setHasStableIds(true);
+        submitItems(new ArrayList<>(items), null);
         this.layoutMode = layoutMode;
         this.dbHelper = dbHelper;
         this.videoPlayManager=videoPlayManager;
@@ -93,11 +154,44 @@ public class FlexibleAdapter extends RecyclerView.Adapter<BaseViewHolder> {
         this.showLoadMoreButtonListener = listener;
     }
 
+    public void setOnDataChangedListener(OnDataChangedListener listener) {
+        this.dataChangedListener = listener;
+    }
+
     // ==================== RecyclerView.Adapter方法 ====================
 
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        recyclerView.addOnScrollListener(prefetchScrollListener);
+        this.recyclerView = recyclerView;
+        this.preInflater = new ViewHolderPreInflater(recyclerView);
+        tuneViewPool(recyclerView.getLayoutManager());
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        recyclerView.removeOnScrollListener(prefetchScrollListener);
+        recyclerView.removeCallbacks(tailReachedRunnable);
+        if (preInflater != null) {
+            Log.d("FlexibleAdapter", "inflate: " + preInflater.report());
+            preInflater.stop();
+            preInflater = null;
+        }
+        this.recyclerView = null;
+        super.onDetachedFromRecyclerView(recyclerView);
+    }
+
     @Override
     public int getItemViewType(int position) {
-        FeedItem item = items.get(position);
+        return viewTypeOf(currentItems().get(position), layoutMode == LayoutMode.staggered);
+    }
+
+    // 瀑布流模式下所有条目使用按比例预留高度的瀑布流布局
+    private static int viewTypeOf(FeedItem item, boolean staggered) {
+        if (staggered) {
+            return item.getMediaType() == MediaType.image ? VIEW_TYPE_STAGGERED_IMAGE : VIEW_TYPE_STAGGERED_VIDEO;
+        }
 
         // 组合 layoutMode 和 mediaType 生成唯一的视图类型
         if (item.getMediaType() == MediaType.image) {
@@ -122,59 +216,95 @@ public class FlexibleAdapter extends RecyclerView.Adapter<BaseViewHolder> {
         return VIEW_TYPE_SINGLE_IMAGE; // 默认
     }
 
+    // 优先使用空闲时预加载好的视图，没有时才在主线程 inflate
     @NonNull
     @Override
     public BaseViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
-        LayoutInflater inflater = LayoutInflater.from(parent.getContext());
+        View view = preInflater != null ? preInflater.take(viewType) : null;
+        if (view == null) {
+            view = LayoutInflater.from(parent.getContext()).inflate(layoutResOf(viewType), parent, false);
+        }
 
         switch (viewType) {
-            case VIEW_TYPE_SINGLE_IMAGE:
-                View singleImageView = inflater.inflate(R.layout.layout_feed_item_single, parent, false);
-                return new ImageViewHolder(singleImageView);
-
             case VIEW_TYPE_SINGLE_VIDEO:
-                View singleVideoView = inflater.inflate(R.layout.layout_video_feed_item_single, parent, false);
-                return new VideoViewHolder(singleVideoView, videoPlayManager);
+            case VIEW_TYPE_GRID_VIDEO:
+            case VIEW_TYPE_STAGGERED_VIDEO:
+                return new VideoViewHolder(view, videoPlayManager);
 
-            case VIEW_TYPE_GRID_IMAGE:
-                View gridImageView = inflater.inflate(R.layout.layout_feed_item_grid, parent, false);
-                return new ImageViewHolder(gridImageView);
+            default:
+                return new ImageViewHolder(view);
+        }
+    }
 
+    private static int layoutResOf(int viewType) {
+        switch (viewType) {
+            case VIEW_TYPE_SINGLE_VIDEO:
+                return R.layout.layout_video_feed_item_single;
+            case VIEW_TYPE_GRID_IMAGE:
+                return R.layout.layout_feed_item_grid;
             case VIEW_TYPE_GRID_VIDEO:
-                View gridVideoView = inflater.inflate(R.layout.layout_video_feed_item_grid, parent, false);
-                return new VideoViewHolder(gridVideoView, videoPlayManager);
-
+                return R.layout.layout_video_feed_item_grid;
             case VIEW_TYPE_STAGGERED_IMAGE:
-                View staggeredImageView = inflater.inflate(R.layout.layout_feed_item_staggered, parent, false);
-                return new ImageViewHolder(staggeredImageView);
-
+                return R.layout.layout_feed_item_staggered;
+            case VIEW_TYPE_STAGGERED_VIDEO:
+                return R.layout.layout_video_feed_item_staggered;
+            case VIEW_TYPE_SINGLE_IMAGE:
             default:
-                View defaultView = inflater.inflate(R.layout.layout_feed_item_single, parent, false);
-                return new ImageViewHolder(defaultView);
+                return R.layout.layout_feed_item_single;
         }
     }
 
     @Override
     public void onBindViewHolder(@NonNull BaseViewHolder holder, int position) {
-        FeedItem item = items.get(position);
+        FeedItem item = currentItems().get(position);
+        holder.setSlotWidth(slotWidthOf(position));
         holder.bind(item);
 
-        setupLoadMoreButtonVisibility(position);
+        checkTailReached(position);
+        setupItemClickListeners(holder, item);
+    }
+
+    // 带 payload 的局部刷新：收藏、布局模式变化时不重新加载图片和文本
+    @Override
+    public void onBindViewHolder(@NonNull BaseViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+            return;
+        }
+
+        FeedItem item = currentItems().get(position);
+        holder.setSlotWidth(slotWidthOf(position));
+        holder.bindPayload(item, payloads);
+
+        checkTailReached(position);
         setupItemClickListeners(holder, item);
     }
 
     @Override
     public int getItemCount() {
-        return items.size();
+        return currentItems().size();
+    }
+
+    // 数据库主键作为稳定 id，列表变化时 RecyclerView 可以按 id 复用原有的 ViewHolder
+    @Override
+    public long getItemId(int position) {
+        return currentItems().get(position).getId();
     }
 
     // ==================== 数据操作方法 ====================
 
+    // 以下写操作都在数据库线程执行，写入成功后回到主线程更新列表，见 submitWrite
     public void addItem(FeedItem item) {
-        long id = dbHelper.insertFeedItem(item);
-        item.setId(id);
-        items.add(0, item);
-        notifyItemInserted(0);
+        submitWrite("addItem", () -> {
+            item.setId(dbHelper.insertFeedItem(item));
+            return item.getId() != -1;
+        }, () -> {
+            List<FeedItem> newItems = new ArrayList<>(items.size() + 1);
+            newItems.add(item);
+            newItems.addAll(items);
+            submitItems(newItems, null);
+            notifyDataChanged();
+        });
     }
 
     public void addNewSampleItem() {
@@ -194,34 +324,61 @@ public class FlexibleAdapter extends RecyclerView.Adapter<BaseViewHolder> {
                 "android.resource://" + activity.getPackageName()+'/'+R.drawable.video_cover,
                 1280, 720, 90000, LayoutMode.grid));
 
-        for (FeedItem item : sampleItems) {
-            dbHelper.insertFeedItem(item);
-
-        }
+        // 新数据按时间排序插入的位置不确定，写完后重新加载第一页
+        submitWrite("addNewSampleItem", () -> dbHelper.insertFeedItems(sampleItems) > 0, () -> {
+            notifyDataChanged();
+            refreshData();
+        });
     }
 
     public void delItem(int position) {
-        FeedItem item = items.get(position);
-        dbHelper.deleteFeedItem(item.getId());
-
-        items.remove(position);
-        notifyItemRemoved(position);
+        long id = currentItems().get(position).getId();
+        submitWrite("delItem", () -> dbHelper.deleteFeedItem(id) > 0, () -> {
+            List<FeedItem> newItems = new ArrayList<>(items);
+            int index = indexOfId(newItems, id);
+            if (index == -1) return;
+            newItems.remove(index);
+            submitItems(newItems, null);
+            notifyDataChanged();
+        });
     }
 
     public void delData() {
-        dbHelper.deleteData();
-        items.clear();
-        notifyDataSetChanged();
+        cancelPendingLoad();
+        submitWrite("delData", () -> {
+            dbHelper.deleteData();
+            return true;
+        }, () -> {
+            // 清空期间发起的加载可能读到了旧数据，一并作废
+            cancelPendingLoad();
+            submitItems(new ArrayList<>(), null);
+            notifyDataChanged();
+        });
     }
 
+    // 增量同步后只刷新变化的行，未变化的行不重新绑定
+    // 同步在数据库线程执行，结果回到主线程后应用到当时的列表上
     public void updateData(List<FeedItem> newItems) {
-        dbHelper.updateAll(newItems);
-        items = (ArrayList<FeedItem>) newItems;
-        notifyDataSetChanged();
+        try {
+            DbExecutor.getInstance().submit(() -> {
+                FeedSyncResult result = dbHelper.syncFeedItems(newItems);
+                activity.runOnUiThread(() -> {
+                    if (result == null) {
+                        Log.e("FlexibleAdapter", "updateData: 同步失败");
+                        return;
+                    }
+                    Log.d("FlexibleAdapter", "updateData: " + result);
+                    submitItems(applySyncResult(result), null);
+                    notifyDataChanged();
+                });
+            });
+        } catch (RejectedExecutionException e) {
+            Log.e("FlexibleAdapter", "updateData: 数据库线程繁忙，同步未执行");
+        }
     }
 
     public void updateItem(int position, FeedItem newItem) {
-        if (position < 0 || position >= items.size()) {
+        if (position < 0 || position >= getItemCount()) {
             Log.e("FlexibleAdapter", "updateItem: 位置越界 - " + position);
             return;
         }
@@ -231,18 +388,14 @@ public class FlexibleAdapter extends RecyclerView.Adapter<BaseViewHolder> {
             return;
         }
 
-        int rowsAffected = dbHelper.updateFeedItem(newItem);
-        if (rowsAffected > 0) {
-            items.set(position, newItem);
-            notifyItemChanged(position);
-        } else {
-            Log.e("FlexibleAdapter", "updateItem: 数据库更新失败");
-        }
+        long id = currentItems().get(position).getId();
+        submitWrite("updateItem", () -> dbHelper.updateFeedItem(newItem) > 0,
+                () -> replaceItem(id, newItem));
     }
 
     public void updateLayoutMode(int position,LayoutMode layoutMode)
     {
-        if (position < 0 || position >= items.size()) {
+        if (position < 0 || position >= getItemCount()) {
             Log.e("FlexibleAdapter", "updateLayoutMode: 位置越界 - " + position);
             return;
         }
@@ -252,13 +405,42 @@ public class FlexibleAdapter extends RecyclerView.Adapter<BaseViewHolder> {
             return;
         }
 
-        long id = items.get(position).getId();
-        int rowsAffected = dbHelper.updateLayoutMode(id,layoutMode);
-        if (rowsAffected > 0) {
-            items.get(position).setLayoutMode(layoutMode);
-            notifyItemChanged(position);
-        } else {
-            Log.e("FlexibleAdapter", "updateItem: 数据库更新失败");
+        long id = currentItems().get(position).getId();
+        submitWrite("updateLayoutMode", () -> dbHelper.updateLayoutMode(id, layoutMode) > 0, () -> {
+            int index = indexOfId(items, id);
+            if (index == -1) return;
+            // 已提交的对象不能原地修改，否则 differ 比较不出变化；以写完时的列表为准，期间的其他修改不丢
+            FeedItem updated = items.get(index).copy();
+            updated.setLayoutMode(layoutMode);
+            replaceItem(id, updated);
+        });
+    }
+
+    private interface DbWrite {
+        // 返回是否写入成功
+        boolean run();
+    }
+
+    // 在数据库线程写库，成功后在主线程执行 onWritten
+    // 后台迁移建索引时唯一的写连接会被整个建索引过程占用，写操作若在主线程执行会一直卡到索引建完
+    private void submitWrite(String action, DbWrite write, Runnable onWritten) {
+        try {
+            DbExecutor.getInstance().submit(() -> {
+                boolean written;
+                try {
+                    written = write.run();
+                } catch (SQLException e) {
+                    Log.e("FlexibleAdapter", action + ": 数据库写入失败", e);
+                    return;
+                }
+                if (!written) {
+                    Log.e("FlexibleAdapter", action + ": 数据库更新失败");
+                    return;
+                }
+                activity.runOnUiThread(onWritten);
+            });
+        } catch (RejectedExecutionException e) {
+            Log.e("FlexibleAdapter", action + ": 数据库线程繁忙，未执行");
         }
     }
 
@@ -267,56 +449,239 @@ public class FlexibleAdapter extends RecyclerView.Adapter<BaseViewHolder> {
     public void loadNextPage() {
         if (isLoading || !hasMore) return;
 
-        isLoading = true;
+        // 以当前列表最后一条作为游标，插入/删除不会导致下一页错位
+        FeedItem lastItem = items.isEmpty() ? null : items.get(items.size() - 1);
+        loadPage(lastItem, false);
+    }
 
-        if (loadMoreListener != null) {
+    public void refreshData() {
+        cancelPendingLoad();
+        hasMore = true;
+        // 搜索中刷新时重新检索，数据可能已变化
+        searchIds = null;
+
+        // 不先清空列表：第一页加载完成后整体替换，由 differ 计算出最小变化
+        loadPage(null, true);
+    }
+
+    // 同一时刻只有一个加载在进行，重复的翻页请求被 isLoading 合并
+    // 预取在用户看到末尾之前静默进行，只有刷新或用户已滑到末尾时才显示加载中
+    private void loadPage(FeedItem lastItem, boolean replace) {
+        isLoading = true;
+        int generation = loadGeneration;
+        int pageSize = prefetcher.nextPageSize();
+        long startTime = SystemClock.uptimeMillis();
+        // 搜索状态在主线程读取后传给后台任务
+        String query = searchQuery;
+        long[] rankedIds = searchIds;
+        int offset = replace ? 0 : searchOffset;
+
+        if (replace && loadMoreListener != null) {
             loadMoreListener.onLoadMoreStarted();
         }
 
-        new Thread(() -> {
-            try {
-                List<FeedItem> newItems = dbHelper.getFeedItemsByPage(currentPage, PAGE_SIZE);
-                handleLoadResult(newItems);
-            } catch (Exception e) {
-                handleLoadError(e);
-            }
-        }).start();
+        try {
+            pendingLoad = DbExecutor.getInstance().submit(() -> {
+                try {
+                    if (query != null) {
+                        loadSearchPage(query, rankedIds, offset, replace, pageSize, generation, startTime);
+                        return;
+                    }
+                    List<FeedItem> newItems = dbHelper.getFeedItemsAfter(lastItem, pageSize);
+                    prefetcher.onLoadFinished(SystemClock.uptimeMillis() - startTime);
+                    // 不满一页说明已读到末尾
+                    handleLoadResult(newItems, replace, newItems.size() >= pageSize, generation, null);
+                } catch (Exception e) {
+                    handleLoadError(e, generation);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            handleLoadError(e, generation);
+        }
     }
 
-    public void refreshData() {
-        currentPage = 0;
+    // 运行在数据库线程：首页检索并排序全部命中（已有排好序的 id 时跳过），之后的页按偏移读取同一份 id 列表
+    // 检索之后删除的行读不到，一页可能不满甚至为空；是否还有下一页只看 id 列表是否读完，不看读到的行数
+    private void loadSearchPage(String query, long[] rankedIds, int offset, boolean replace,
+                                int pageSize, int generation, long startTime) {
+        long[] ids = rankedIds != null ? rankedIds : dbHelper.searchFeedItemIds(query);
+        int end = offset;
+        List<FeedItem> newItems = new ArrayList<>();
+        // 整页都已被删除时接着读下一段，不把空页交给界面
+        while (newItems.isEmpty() && end < ids.length) {
+            newItems = dbHelper.getFeedItemsByIds(ids, end, pageSize);
+            end = Math.min(ids.length, end + pageSize);
+        }
+        int searchEnd = end;
+        prefetcher.onLoadFinished(SystemClock.uptimeMillis() - startTime);
+        handleLoadResult(newItems, replace, searchEnd < ids.length, generation, () -> {
+            searchIds = ids;
+            searchOffset = searchEnd;
+        });
+    }
+
+    // 作废正在进行的加载：未开始的直接取消，已开始的结果按代数丢弃
+    private void cancelPendingLoad() {
+        loadGeneration++;
+        DbExecutor.getInstance().cancel(pendingLoad);
+        pendingLoad = null;
         isLoading = false;
+    }
+
+    // ==================== 搜索方法 ====================
+
+    // 用全文索引检索标题和正文，结果按相关度排序后分页展示；空查询等同于退出搜索
+    public void search(String query) {
+        showSearchResults(query, null);
+    }
+
+    // 展示已检索好的结果（例如 SearchController 的缓存），rankedIds 为 null 时由适配器自己检索
+    public void showSearchResults(String query, long[] rankedIds) {
+        String trimmed = query != null ? query.trim() : "";
+        if (trimmed.isEmpty()) {
+            exitSearch();
+            return;
+        }
+
+        cancelPendingLoad();
+        searchQuery = trimmed;
+        searchIds = rankedIds;
+        searchOffset = 0;
+        hasMore = true;
+        loadPage(null, true);
+    }
+
+    // 回到按时间排序的完整列表
+    public void exitSearch() {
+        if (searchQuery == null) return;
+
+        cancelPendingLoad();
+        searchQuery = null;
+        searchIds = null;
+        searchOffset = 0;
         hasMore = true;
+        loadPage(null, true);
+    }
+
+    public boolean isSearching() {
+        return searchQuery != null;
+    }
 
-        items.clear();
-        notifyDataSetChanged();
-        loadNextPage();
+    public String getSearchQuery() {
+        return searchQuery;
     }
 
     // ==================== 布局模式方法 ====================
 
     public void switchLayoutMode(LayoutMode layoutMode) {
         if (layoutMode != this.layoutMode) {
+            boolean viewTypeChanged = layoutMode == LayoutMode.staggered || this.layoutMode == LayoutMode.staggered;
             this.layoutMode = layoutMode;
-            notifyDataSetChanged();
+            if (viewTypeChanged) {
+                // 进出瀑布流时视图类型改变，需要完整绑定到新布局
+                notifyItemRangeChanged(0, getItemCount());
+            } else {
+                // 视图类型不变，只需局部刷新
+                notifyItemRangeChanged(0, getItemCount(), FeedItemDiffCallback.PAYLOAD_LAYOUT_MODE);
+            }
+            updatePreInflateTargets();
         }
     }
 
+    // ==================== 复用池方法 ====================
+
+    // 在 setLayoutManager 之前调用：切换瞬间旧布局的条目全部回收进池，池要同时容纳新旧布局一屏的条目，
+    // 否则多出的 ViewHolder 被丢弃，新布局又要重新 inflate
+    public void tuneViewPool(RecyclerView.LayoutManager nextLayoutManager) {
+        if (recyclerView == null) return;
+
+        int spanCount = Math.max(spanCountOf(nextLayoutManager), spanCountOf(recyclerView.getLayoutManager()));
+        int poolSize = (visibleRows() + 1) * spanCount;
+        RecyclerView.RecycledViewPool pool = recyclerView.getRecycledViewPool();
+        for (int viewType : VIEW_TYPES) {
+            pool.setMaxRecycledViews(viewType, poolSize);
+        }
+        updatePreInflateTargets();
+    }
+
+    // 预加载目标：列表开头两屏（按最多列数计）中各视图类型的条目数，覆盖首屏、首次滑动和模式切换
+    // 瀑布流与其他模式的视图类型不同，另一侧再准备一屏
+    private void updatePreInflateTargets() {
+        if (preInflater == null) return;
+
+        List<FeedItem> current = currentItems();
+        int screen = (visibleRows() + 1) * MAX_SPAN_COUNT;
+        int window = Math.min(current.size(), 2 * screen);
+        boolean staggered = layoutMode == LayoutMode.staggered;
+        int[] counts = new int[VIEW_TYPES.length];
+        for (int i = 0; i < window; i++) {
+            counts[viewTypeOf(current.get(i), staggered)]++;
+        }
+        for (int i = 0, end = Math.min(current.size(), screen); i < end; i++) {
+            int other = viewTypeOf(current.get(i), !staggered);
+            if (other != viewTypeOf(current.get(i), staggered)) {
+                counts[other]++;
+            }
+        }
+        for (int viewType : VIEW_TYPES) {
+            preInflater.setTarget(viewType, layoutResOf(viewType), counts[viewType]);
+        }
+    }
+
+    private int visibleRows() {
+        DisplayMetrics metrics = activity.getResources().getDisplayMetrics();
+        int height = recyclerView != null && recyclerView.getHeight() > 0
+                ? recyclerView.getHeight() : metrics.heightPixels;
+        int rowHeight = Math.max(1, Math.round(MIN_ROW_HEIGHT_DP * metrics.density));
+        return (height + rowHeight - 1) / rowHeight;
+    }
+
+    // 条目在当前布局中占的宽度：列表宽度按所占列数等分
+    private int slotWidthOf(int position) {
+        if (recyclerView == null) return 0;
+        int width = recyclerView.getWidth() > 0
+                ? recyclerView.getWidth() : activity.getResources().getDisplayMetrics().widthPixels;
+        width -= recyclerView.getPaddingLeft() + recyclerView.getPaddingRight();
+
+        RecyclerView.LayoutManager layoutManager = recyclerView.getLayoutManager();
+        if (layoutManager instanceof GridLayoutManager) {
+            GridLayoutManager grid = (GridLayoutManager) layoutManager;
+            int spanSize = grid.getSpanSizeLookup().getSpanSize(position);
+            return width * spanSize / grid.getSpanCount();
+        }
+        if (layoutManager instanceof StaggeredGridLayoutManager) {
+            return width / ((StaggeredGridLayoutManager) layoutManager).getSpanCount();
+        }
+        return width;
+    }
+
+    private static int spanCountOf(RecyclerView.LayoutManager layoutManager) {
+        if (layoutManager instanceof GridLayoutManager) {
+            return ((GridLayoutManager) layoutManager).getSpanCount();
+        }
+        if (layoutManager instanceof StaggeredGridLayoutManager) {
+            return ((StaggeredGridLayoutManager) layoutManager).getSpanCount();
+        }
+        return 1;
+    }
+
     // ==================== 获取方法 ====================
 
     public List<FeedItem> getAllFeedItems() {
-        return items;
+        return currentItems();
     }
 
     public FeedItem getItemAt(int position) {
-        if (position >= 0 && position < items.size()) {
-            return items.get(position);
+        List<FeedItem> current = currentItems();
+        if (position >= 0 && position < current.size()) {
+            return current.get(position);
         }
         return null;
     }
 
+    // 列表中的对象会被替换为副本，按 id 而不是对象本身查找；走位置索引，O(1)
     public int getPosition(FeedItem item) {
-        return items.indexOf(item);
+        return (int) positionIndex.get(item.getId(), RecyclerView.NO_POSITION);
     }
 
     public LayoutMode getLayoutMode() {
@@ -331,21 +696,51 @@ public class FlexibleAdapter extends RecyclerView.Adapter<BaseViewHolder> {
         return hasMore;
     }
 
+    public FeedPrefetcher getPrefetcher() {
+        return prefetcher;
+    }
+
     // ==================== 私有方法 ====================
 
-    private void setupLoadMoreButtonVisibility(int position) {
-        if (position >= getItemCount() - 2 && hasMore && !isLoading && showLoadMoreButtonListener != null) {
-            activity.runOnUiThread(() -> {
-                Log.d("Adapter", "onBindViewHolder: 显示加载更多按钮");
-                showLoadMoreButtonListener.onShouldShowLoadMoreButton();
-            });
+    private void onFeedScrolled(RecyclerView recyclerView) {
+        int childCount = recyclerView.getChildCount();
+        if (childCount == 0) return;
+
+        // 取屏幕上最大的适配器位置，适用于任意 LayoutManager
+        int lastVisiblePosition = RecyclerView.NO_POSITION;
+        for (int i = 0; i < childCount; i++) {
+            int position = recyclerView.getChildAdapterPosition(recyclerView.getChildAt(i));
+            lastVisiblePosition = Math.max(lastVisiblePosition, position);
         }
+        prefetcher.onScrolled(lastVisiblePosition, SystemClock.uptimeMillis());
 
-        if (position < getItemCount() - 2 && showLoadMoreButtonListener != null) {
-            activity.runOnUiThread(() -> {
-                Log.d("Adapter", "onBindViewHolder: 隐藏加载更多按钮");
-                showLoadMoreButtonListener.onShouldHideLoadMoreButton();
-            });
+        if (lastVisiblePosition != RecyclerView.NO_POSITION && hasMore && !isLoading
+                && prefetcher.shouldPrefetch(lastVisiblePosition, getItemCount())) {
+            loadNextPage();
+        }
+    }
+
+    // 绑定最后一项说明用户已看到列表末尾：还有更多数据却没预取到时会看到加载中，记入统计
+    // 每次到达末尾只记一次，条目数变化（加载了新页、增删）后才重新计数
+    private void checkTailReached(int position) {
+        int itemCount = getItemCount();
+        if (position != itemCount - 1 || itemCount == tailReachedItemCount) return;
+        tailReachedItemCount = itemCount;
+
+        prefetcher.onTailReached(hasMore);
+        if (!hasMore || recyclerView == null) return;
+        // 正处于绑定/布局过程中，加载和回调推迟到这一帧之后，不在布局中途修改列表
+        recyclerView.removeCallbacks(tailReachedRunnable);
+        recyclerView.post(tailReachedRunnable);
+    }
+
+    private void onTailReached() {
+        if (!hasMore) return;
+        if (!isLoading) {
+            loadNextPage();
+        }
+        if (isLoading && loadMoreListener != null) {
+            loadMoreListener.onLoadMoreStarted();
         }
     }
 
@@ -364,27 +759,145 @@ public class FlexibleAdapter extends RecyclerView.Adapter<BaseViewHolder> {
         });
     }
 
-    private void handleLoadResult(List<FeedItem> newItems) {
+    private List<FeedItem> currentItems() {
+        return differ.getCurrentList();
+    }
+
+    // 提交新列表，差异在后台线程计算，完成后只派发最小的插入/删除/移动/变化范围
+    private void submitItems(List<FeedItem> newItems, Runnable commitCallback) {
+        submitItems(newItems, null, 0, commitCallback);
+    }
+
+    // base 非空表示 newItems 与 base 的前 reindexFrom 项位置和 id 都相同，提交时只需补上之后的索引
+    private void submitItems(List<FeedItem> newItems, List<FeedItem> base, int reindexFrom, Runnable commitCallback) {
+        items = newItems;
+        // 提交回调只在这份列表真正生效时执行；被后续提交覆盖的列表不会回调
+        differ.submitList(newItems, () -> {
+            onItemsCommitted(newItems, base, reindexFrom);
+            if (commitCallback != null) {
+                commitCallback.run();
+            }
+        });
+    }
+
+    // 翻页追加、原位替换只更新变化的部分；其余情况（插入、删除、同步）整体重建
+    private void onItemsCommitted(List<FeedItem> committed, List<FeedItem> base, int reindexFrom) {
+        int from = reindexFrom;
+        if (base == null || base != indexedItems) {
+            positionIndex.clear();
+            from = 0;
+        }
+        for (int i = from; i < committed.size(); i++) {
+            positionIndex.put(committed.get(i).getId(), i);
+        }
+        indexedItems = committed;
+
+        // 替换整页（首屏、刷新）后开头的内容变了，重新计算预加载目标
+        if (from == 0) {
+            updatePreInflateTargets();
+        }
+    }
+
+    private void replaceItem(long id, FeedItem newItem) {
+        List<FeedItem> newItems = new ArrayList<>(items);
+        int index = indexOfId(newItems, id);
+        if (index == -1) return;
+        newItems.set(index, newItem);
+        // id 不变，位置也不变，索引无需更新
+        submitItems(newItems, items, newItems.size(), null);
+    }
+
+    private void notifyDataChanged() {
+        if (dataChangedListener != null) {
+            dataChangedListener.onDataChanged();
+        }
+    }
+
+    // 把同步结果应用到当前列表的副本上
+    private List<FeedItem> applySyncResult(FeedSyncResult result) {
+        List<FeedItem> newItems = new ArrayList<>(items);
+
+        Set<Long> deletedIds = new HashSet<>(result.getDeletedIds());
+        for (int i = newItems.size() - 1; i >= 0; i--) {
+            if (deletedIds.contains(newItems.get(i).getId())) {
+                newItems.remove(i);
+            }
+        }
+
+        // 更新：只替换已加载的行
+        for (FeedItem item : result.getUpdated()) {
+            int position = indexOfId(newItems, item.getId());
+            if (position != -1) {
+                newItems.set(position, item);
+            }
+        }
+
+        // 新增：按 created_at DESC, _id DESC 插入到对应位置；落在已加载范围之后的交给分页加载
+        // 搜索结果按相关度排序，新数据是否命中由下次检索决定，不插入
+        if (searchQuery != null) return newItems;
+        for (FeedItem item : result.getInserted()) {
+            // 同步期间刷新过的列表可能已读到这一行
+            if (indexOfId(newItems, item.getId()) != -1) continue;
+            int position = findInsertPosition(newItems, item);
+            if (position == newItems.size() && hasMore) continue;
+            newItems.add(position, item);
+        }
+        return newItems;
+    }
+
+    private static int indexOfId(List<FeedItem> list, long id) {
+        for (int i = 0; i < list.size(); i++) {
+            if (list.get(i).getId() == id) return i;
+        }
+        return -1;
+    }
+
+    private static int findInsertPosition(List<FeedItem> list, FeedItem item) {
+        for (int i = 0; i < list.size(); i++) {
+            FeedItem current = list.get(i);
+            if (item.getCreatedAt() > current.getCreatedAt()
+                    || (item.getCreatedAt() == current.getCreatedAt() && item.getId() > current.getId())) {
+                return i;
+            }
+        }
+        return list.size();
+    }
+
+    // moreAvailable 由加载方判断：普通分页看是否读满一页，搜索看命中的 id 是否已读完
+    // onAccepted 在确认结果未过期后、合并列表前于主线程执行，用于更新与这次加载相关的状态
+    private void handleLoadResult(List<FeedItem> newItems, boolean replace, boolean moreAvailable, int generation,
+                                  Runnable onAccepted) {
         activity.runOnUiThread(() -> {
+            if (generation != loadGeneration) {
+                Log.d("FlexibleAdapter", "handleLoadResult: 丢弃过期的加载结果");
+                return;
+            }
+            pendingLoad = null;
+            if (onAccepted != null) {
+                onAccepted.run();
+            }
             try {
-                if (newItems != null && !newItems.isEmpty()) {
-                    if (newItems.size() < PAGE_SIZE) {
-                        hasMore = false;
-                    }
-
-                    int startPosition = items.size();
-                    items.addAll(newItems);
-                    notifyItemRangeInserted(startPosition, newItems.size());
-                    currentPage++;
-                } else {
-                    hasMore = false;
+                List<FeedItem> base = items;
+                List<FeedItem> merged = replace ? new ArrayList<>() : new ArrayList<>(base);
+                hasMore = moreAvailable;
+                if (newItems != null) {
+                    merged.addAll(newItems);
                 }
 
                 isLoading = false;
 
-                if (loadMoreListener != null) {
-                    loadMoreListener.onLoadComplete(newItems != null ? newItems : new ArrayList<>());
-                }
+                List<FeedItem> loaded = newItems != null ? newItems : new ArrayList<>();
+                // 差异派发完成后再通知，保证监听器拿到的是已展示的列表
+                Log.d("FlexibleAdapter", "prefetch: " + prefetcher.report());
+                // 追加一页时旧条目位置不变，只索引新加的部分
+                submitItems(merged, replace ? null : base, base.size(), () -> {
+                    if (showLoadMoreButtonListener != null) {
+                        showLoadMoreButtonListener.onShouldHideLoadMoreButton();
+                    }
+                    if (loadMoreListener != null) {
+                        loadMoreListener.onLoadComplete(loaded);
+                    }
+                });
             } catch (Exception e) {
                 isLoading = false;
                 Log.e("FlexibleAdapter", "UI update error: " + e.getMessage());
@@ -392,12 +905,18 @@ public class FlexibleAdapter extends RecyclerView.Adapter<BaseViewHolder> {
         });
     }
 
-    private void handleLoadError(Exception e) {
+    private void handleLoadError(Exception e, int generation) {
         activity.runOnUiThread(() -> {
+            if (generation != loadGeneration) return;
+            pendingLoad = null;
             isLoading = false;
             if (loadMoreListener != null) {
                 loadMoreListener.onLoadError(e.getMessage());
             }
+            // 自动加载失败后显示「加载更多」按钮供手动重试
+            if (showLoadMoreButtonListener != null) {
+                showLoadMoreButtonListener.onShouldShowLoadMoreButton();
+            }
             Log.e("FlexibleAdapter", "loadNextPage error: " + e.getMessage());
         });
     }
@@ -6,16 +6,22 @@ import android.widget.TextView;
 
 import androidx.annotation.NonNull;
 
-import com.bumptech.glide.Glide;
-import com.bumptech.glide.request.RequestOptions;
 import com.example.bytedancehomework.R;
 import com.example.bytedancehomework.data.Item.FeedItem;
+import com.example.bytedancehomework.manager.FeedImageLoader;
+import com.example.bytedancehomework.ui.Widget.AspectRatioImageView;
+
+import java.util.List;
 
 public class ImageViewHolder extends BaseViewHolder {
+    // 宽高未知的旧数据在瀑布流中按正方形显示
+    private static final float DEFAULT_ASPECT_RATIO = 1f;
+
     ImageView imageView;
     TextView textTitle;
     TextView textContent;
     FeedItem currentItem;
+    private int loadedSlotWidth = 0;
     public ImageViewHolder(@NonNull View itemView) {
         super(itemView);
         imageView = itemView.findViewById(R.id.imageView);
@@ -29,19 +35,32 @@ public class ImageViewHolder extends BaseViewHolder {
         textTitle.setText(item.getTitle());
         textContent.setText(item.getContent());
 
-        if (item.getImageUrl() != null && !item.getImageUrl().isEmpty()) {
-            Glide.with(itemView.getContext())
-                    .load(item.getImageUrl())
-                    .apply(new RequestOptions()
-                            .placeholder(R.drawable.placeholder_image)
-                            .error(R.drawable.error_image)
-                            .centerCrop())
-                    .into(imageView);
-        } else {
-            imageView.setImageResource(R.drawable.placeholder_image);
+        // 瀑布流布局：绑定时按保存的宽高预留最终高度，图片到达后不再改变条目尺寸
+        if (imageView instanceof AspectRatioImageView) {
+            ((AspectRatioImageView) imageView).setAspectRatio(
+                    item.getImageWidth(), item.getImageHeight(), DEFAULT_ASPECT_RATIO);
+        }
+        loadImage(item);
+    }
+
+    // 收藏、布局模式变化不影响文本，只更新当前数据；切换布局后条目宽度变了才按新尺寸重新解码图片
+    @Override
+    public void bindPayload(FeedItem item, List<Object> payloads) {
+        if (!FeedItemDiffCallback.isPartialOnly(payloads)) {
+            bind(item);
+            return;
+        }
+        currentItem = item;
+        if (slotWidth != loadedSlotWidth) {
+            loadImage(item);
         }
     }
 
+    private void loadImage(FeedItem item) {
+        loadedSlotWidth = slotWidth;
+        FeedImageLoader.loadImage(imageView, item, slotWidth, R.drawable.placeholder_image, R.drawable.error_image);
+    }
+
     public FeedItem getCurrentItem()
     {
         return currentItem;
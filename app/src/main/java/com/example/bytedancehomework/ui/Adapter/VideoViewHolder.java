@@ -7,13 +7,20 @@ import android.widget.VideoView;
 
 import androidx.annotation.NonNull;
 
-import com.bumptech.glide.Glide;
-import com.bumptech.glide.request.RequestOptions;
 import com.example.bytedancehomework.R;
 import com.example.bytedancehomework.data.Item.FeedItem;
+import com.example.bytedancehomework.manager.FeedImageLoader;
 import com.example.bytedancehomework.manager.VideoPlayManager;
+import com.example.bytedancehomework.ui.Widget.AspectRatioFrameLayout;
+import com.example.bytedancehomework.ui.Widget.AspectRatioImageView;
+
+import java.util.List;
 
 public class VideoViewHolder extends BaseViewHolder {
+    // 宽高未知的旧数据在瀑布流中按 16:9 显示
+    private static final float DEFAULT_ASPECT_RATIO = 9f / 16f;
+
+    private AspectRatioFrameLayout videoContainer; // 只有瀑布流布局有
     private VideoView videoView;
     private ImageView videoCoverView;
     private ImageView playIcon;
@@ -21,12 +28,14 @@ public class VideoViewHolder extends BaseViewHolder {
     private TextView textContent;
     private FeedItem currentItem;
     private VideoPlayManager videoPlayManager;
+    private int loadedSlotWidth = 0;
 
 
     public VideoViewHolder(@NonNull View itemView,VideoPlayManager videoPlayManager) {
         super(itemView);
         this.videoPlayManager = videoPlayManager;
 
+        videoContainer = itemView.findViewById(R.id.videoContainer);
         videoView = itemView.findViewById(R.id.videoView);
         videoCoverView = itemView.findViewById(R.id.videoCoverView);
         playIcon = itemView.findViewById(R.id.playIcon);
@@ -42,17 +51,15 @@ public class VideoViewHolder extends BaseViewHolder {
         textTitle.setText(item.getTitle());
         textContent.setText(item.getContent());
 
-        if (item.getVideoCoverUrl() != null && !item.getVideoCoverUrl().isEmpty()) {
-            Glide.with(itemView.getContext())
-                    .load(item.getVideoCoverUrl())
-                    .apply(new RequestOptions()
-                            .placeholder(R.drawable.video_placeholder)
-                            .error(R.drawable.video_error)
-                            .centerCrop())
-                    .into(videoCoverView);
-        } else {
-            videoCoverView.setImageResource(R.drawable.video_placeholder);
+        // 瀑布流布局：绑定时按视频宽高预留最终高度，封面到达、开始播放后都不再改变条目尺寸
+        if (videoContainer != null) {
+            videoContainer.setAspectRatio(item.getVideoWidth(), item.getVideoHeight(), DEFAULT_ASPECT_RATIO);
         }
+        if (videoCoverView instanceof AspectRatioImageView) {
+            ((AspectRatioImageView) videoCoverView).setAspectRatio(
+                    item.getVideoWidth(), item.getVideoHeight(), DEFAULT_ASPECT_RATIO);
+        }
+        loadCover(item);
 
         if (videoPlayManager.isPlaying(item)) {
             hidePlayState();
@@ -60,6 +67,29 @@ public class VideoViewHolder extends BaseViewHolder {
             showPlayState();
         }
     }
+    // 收藏、布局模式变化只更新当前数据和播放状态；切换布局后条目宽度变了才按新尺寸重新解码封面
+    @Override
+    public void bindPayload(FeedItem item, List<Object> payloads) {
+        if (!FeedItemDiffCallback.isPartialOnly(payloads)) {
+            bind(item);
+            return;
+        }
+        this.currentItem = item;
+        if (slotWidth != loadedSlotWidth) {
+            loadCover(item);
+        }
+        if (videoPlayManager.isPlaying(item)) {
+            hidePlayState();
+        } else {
+            showPlayState();
+        }
+    }
+
+    private void loadCover(FeedItem item) {
+        loadedSlotWidth = slotWidth;
+        FeedImageLoader.loadVideoCover(videoCoverView, item, slotWidth, R.drawable.video_placeholder, R.drawable.video_error);
+    }
+
     private void setupVideoClickListeners() {
         videoView.setOnClickListener(v->{
             handleClick();
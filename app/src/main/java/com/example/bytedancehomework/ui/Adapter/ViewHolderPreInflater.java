@@ -0,0 +1,138 @@
+package com.example.bytedancehomework.ui.Adapter;
+
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.util.Log;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.annotation.LayoutRes;
+import androidx.asynclayoutinflater.view.AsyncLayoutInflater;
+
+import java.util.ArrayDeque;
+
+// 条目视图预加载：主线程空闲时用 AsyncLayoutInflater 在后台线程提前 inflate，onCreateViewHolder 优先取用
+// 每种视图类型有一个目标数量，已创建的 ViewHolder 加上备用视图达到目标后停止
+// 后台 inflate 失败的布局（例如构造时需要 Looper 的 View）由 AsyncLayoutInflater 退回主线程，但仍发生在空闲时而不是滑动中
+// 只在主线程使用
+class ViewHolderPreInflater implements MessageQueue.IdleHandler {
+    private static final String TAG = "PreInflater";
+    // 同时在后台 inflate 的视图数上限，一次空闲不把后台队列塞满
+    private static final int MAX_IN_FLIGHT = 2;
+
+    private final ViewGroup parent;
+    private final AsyncLayoutInflater asyncInflater;
+    private final MessageQueue queue = Looper.getMainLooper().getQueue();
+
+    // 按视图类型记录：布局资源、目标数量、已创建数、后台进行中的数量、备用视图
+    private final SparseIntArray layoutRes = new SparseIntArray();
+    private final SparseIntArray targets = new SparseIntArray();
+    private final SparseIntArray created = new SparseIntArray();
+    private final SparseIntArray inFlight = new SparseIntArray();
+    private final SparseArray<ArrayDeque<View>> stash = new SparseArray<>();
+
+    private int inFlightTotal = 0;
+    private boolean idleScheduled = false;
+    private boolean stopped = false;
+
+    // 统计
+    private int preInflatedCount = 0;
+    private int syncInflateCount = 0;
+
+    ViewHolderPreInflater(ViewGroup parent) {
+        this.parent = parent;
+        this.asyncInflater = new AsyncLayoutInflater(parent.getContext());
+    }
+
+    // ==================== 目标设置 ====================
+
+    void setTarget(int viewType, @LayoutRes int layout, int count) {
+        layoutRes.put(viewType, layout);
+        targets.put(viewType, count);
+        scheduleIdle();
+    }
+
+    // 每创建一个 ViewHolder 调用一次：有备用视图则取走，否则返回 null 由调用方同步 inflate
+    View take(int viewType) {
+        created.put(viewType, created.get(viewType) + 1);
+
+        ArrayDeque<View> views = stash.get(viewType);
+        View view = views != null ? views.pollFirst() : null;
+        if (view == null) {
+            syncInflateCount++;
+        }
+        return view;
+    }
+
+    void stop() {
+        stopped = true;
+        if (idleScheduled) {
+            queue.removeIdleHandler(this);
+            idleScheduled = false;
+        }
+        stash.clear();
+    }
+
+    String report() {
+        return "preInflated=" + preInflatedCount + ", syncInflated=" + syncInflateCount;
+    }
+
+    // ==================== 空闲时 inflate ====================
+
+    @Override
+    public boolean queueIdle() {
+        if (stopped) {
+            idleScheduled = false;
+            return false;
+        }
+
+        boolean remaining = false;
+        for (int i = 0; i < targets.size(); i++) {
+            int viewType = targets.keyAt(i);
+            while (inFlightTotal < MAX_IN_FLIGHT && missing(viewType) > 0) {
+                requestInflate(viewType);
+            }
+            remaining |= missing(viewType) > 0;
+        }
+
+        // 还有缺口时保留，等本批 inflate 完成、队列再次空闲时继续
+        idleScheduled = remaining;
+        return remaining;
+    }
+
+    private int missing(int viewType) {
+        ArrayDeque<View> views = stash.get(viewType);
+        int have = created.get(viewType) + inFlight.get(viewType) + (views != null ? views.size() : 0);
+        return targets.get(viewType) - have;
+    }
+
+    private void requestInflate(int viewType) {
+        inFlight.put(viewType, inFlight.get(viewType) + 1);
+        inFlightTotal++;
+        asyncInflater.inflate(layoutRes.get(viewType), parent, (view, resid, p) -> onInflated(viewType, view));
+    }
+
+    private void onInflated(int viewType, View view) {
+        inFlight.put(viewType, inFlight.get(viewType) - 1);
+        inFlightTotal--;
+        if (stopped) return;
+
+        ArrayDeque<View> views = stash.get(viewType);
+        if (views == null) {
+            views = new ArrayDeque<>();
+            stash.put(viewType, views);
+        }
+        views.addLast(view);
+        preInflatedCount++;
+        Log.v(TAG, "onInflated: type=" + viewType + ", stash=" + views.size());
+        scheduleIdle();
+    }
+
+    private void scheduleIdle() {
+        if (stopped || idleScheduled) return;
+        idleScheduled = true;
+        queue.addIdleHandler(this);
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.bytedancehomework.ui.Widget;
+
+import android.content.Context;
+import android.util.AttributeSet;
+import android.widget.FrameLayout;
+
+import androidx.annotation.Nullable;
+
+// 按宽高比决定高度的容器，用于瀑布流视频：封面和 VideoView 铺满容器，视频开始播放时容器高度不变
+public class AspectRatioFrameLayout extends FrameLayout {
+    // 高/宽，0 表示未设置，按普通 FrameLayout 测量
+    private float aspectRatio = 0f;
+
+    public AspectRatioFrameLayout(Context context) {
+        super(context);
+    }
+
+    public AspectRatioFrameLayout(Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+    }
+
+    public AspectRatioFrameLayout(Context context, @Nullable AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+    }
+
+    public void setAspectRatio(int width, int height, float defaultRatio) {
+        setAspectRatio(ratioOf(width, height, defaultRatio));
+    }
+
+    public void setAspectRatio(float aspectRatio) {
+        if (this.aspectRatio == aspectRatio) return;
+        this.aspectRatio = aspectRatio;
+        requestLayout();
+    }
+
+    public float getAspectRatio() {
+        return aspectRatio;
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        if (aspectRatio <= 0f) {
+            super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+            return;
+        }
+        // 高度由宽度算出后以 EXACTLY 传给子视图，子视图内容变化不会改变容器尺寸
+        int width = MeasureSpec.getSize(widthMeasureSpec);
+        int height = Math.round(width * aspectRatio);
+        super.onMeasure(MeasureSpec.makeMeasureSpec(width, MeasureSpec.EXACTLY),
+                MeasureSpec.makeMeasureSpec(height, MeasureSpec.EXACTLY));
+    }
+
+    static float ratioOf(int width, int height, float defaultRatio) {
+        if (width <= 0 || height <= 0) return defaultRatio;
+        return (float) height / width;
+    }
+}
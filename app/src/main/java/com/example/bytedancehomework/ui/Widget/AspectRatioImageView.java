@@ -0,0 +1,74 @@
+package com.example.bytedancehomework.ui.Widget;
+
+import android.content.Context;
+import android.graphics.drawable.Drawable;
+import android.util.AttributeSet;
+
+import androidx.annotation.Nullable;
+import androidx.appcompat.widget.AppCompatImageView;
+
+// 按宽高比决定高度的 ImageView：高度 = 宽度 × 高/宽，图片加载前就占好最终高度
+// 比例确定后尺寸与图片无关，换图（占位图 -> 缩略图 -> 原图）时不再请求重新布局，瀑布流不会因图片到达而重排
+public class AspectRatioImageView extends AppCompatImageView {
+    // 高/宽，0 表示未设置，按普通 ImageView 测量
+    private float aspectRatio = 0f;
+    private boolean blockLayout = false;
+
+    public AspectRatioImageView(Context context) {
+        super(context);
+    }
+
+    public AspectRatioImageView(Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+    }
+
+    public AspectRatioImageView(Context context, @Nullable AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+    }
+
+    // 宽高未知（旧数据为 0）时使用 defaultRatio
+    public void setAspectRatio(int width, int height, float defaultRatio) {
+        setAspectRatio(AspectRatioFrameLayout.ratioOf(width, height, defaultRatio));
+    }
+
+    public void setAspectRatio(float aspectRatio) {
+        if (this.aspectRatio == aspectRatio) return;
+        this.aspectRatio = aspectRatio;
+        requestLayout();
+    }
+
+    public float getAspectRatio() {
+        return aspectRatio;
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        if (aspectRatio <= 0f) {
+            super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+            return;
+        }
+        int width = MeasureSpec.getSize(widthMeasureSpec);
+        setMeasuredDimension(width, Math.round(width * aspectRatio));
+    }
+
+    @Override
+    public void setImageDrawable(@Nullable Drawable drawable) {
+        // 比例已定时图片尺寸不影响测量结果，屏蔽 ImageView 因图片尺寸变化发出的 requestLayout
+        blockLayout = aspectRatio > 0f;
+        try {
+            super.setImageDrawable(drawable);
+        } finally {
+            blockLayout = false;
+        }
+    }
+
+    @Override
+    public void requestLayout() {
+        if (blockLayout) {
+            // 仍需重绘新图片
+            invalidate();
+            return;
+        }
+        super.requestLayout();
+    }
+}
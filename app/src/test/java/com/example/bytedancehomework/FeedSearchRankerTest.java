@@ -0,0 +1,98 @@
+package com.example.bytedancehomework;
+
+import com.example.bytedancehomework.data.DBHelper.FeedSearchRanker;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.*;
+
+/**
+ * 全文检索的查询构造与 BM25 排序，不依赖数据库。
+ */
+public class FeedSearchRankerTest {
+    private static final double[] WEIGHTS = {2.0, 1.0};
+
+    @Test
+    public void matchExpression_quotesTermsAndAddsPrefix() {
+        // 前缀 * 在引号内，写在引号外时只匹配完整的词
+        assertEquals("\"kayak*\"", FeedSearchRanker.toMatchExpression("  kayak "));
+        assertEquals("\"mountain*\" \"sunrise*\"", FeedSearchRanker.toMatchExpression("mountain\tsunrise"));
+        // FTS 语法字符被包在短语里，引号直接去掉
+        assertEquals("\"a-b*\" \"OR*\" \"c*\"", FeedSearchRanker.toMatchExpression("a-b OR \"c\""));
+        assertNull(FeedSearchRanker.toMatchExpression("   "));
+        assertNull(FeedSearchRanker.toMatchExpression("\"\""));
+        assertNull(FeedSearchRanker.toMatchExpression(null));
+    }
+
+    @Test
+    public void narrows_onlyWhenEveryBaseTermIsExtended() {
+        assertTrue(FeedSearchRanker.narrows("kayak", "kay"));
+        assertTrue(FeedSearchRanker.narrows("Kayak", "kay"));
+        assertTrue(FeedSearchRanker.narrows("kay", "kay "));
+        // 多一个词只是多一个 AND 条件，顺序无关
+        assertTrue(FeedSearchRanker.narrows("sunrise kay", "kay"));
+        assertTrue(FeedSearchRanker.narrows("mountain sunrise", "sun moun"));
+
+        // 退格、改词都不是细化
+        assertFalse(FeedSearchRanker.narrows("ka", "kay"));
+        assertFalse(FeedSearchRanker.narrows("kite", "kay"));
+        assertFalse(FeedSearchRanker.narrows("kayak", "kay river"));
+        assertFalse(FeedSearchRanker.narrows("kayak", "   "));
+
+        // 中文按词典分词，追加字符可能改变前面的切分，不做细化
+        assertFalse(FeedSearchRanker.narrows("研究生命", "研究生"));
+        assertFalse(FeedSearchRanker.narrows("kay 北京", "kay 北"));
+        assertTrue(FeedSearchRanker.narrows("kayak 北京", "kay"));
+    }
+
+    @Test
+    public void parseMatchInfo_readsNativeOrder() {
+        ByteBuffer buffer = ByteBuffer.allocate(12).order(ByteOrder.nativeOrder());
+        buffer.putInt(1).putInt(2).putInt(100000);
+        assertArrayEquals(new int[]{1, 2, 100000}, FeedSearchRanker.parseMatchInfo(buffer.array()));
+    }
+
+    @Test
+    public void bm25_titleHitOutranksContentHit() {
+        // 1 个短语、2 列、1000 行，平均长度 标题 4 / 正文 20，同样 10 行命中
+        int[] titleHit = matchInfo(1000, new int[]{4, 20}, new int[]{4, 20}, new int[]{1, 0}, 10);
+        int[] contentHit = matchInfo(1000, new int[]{4, 20}, new int[]{4, 20}, new int[]{0, 1}, 10);
+        assertTrue(FeedSearchRanker.bm25(titleHit, WEIGHTS) > FeedSearchRanker.bm25(contentHit, WEIGHTS));
+    }
+
+    @Test
+    public void bm25_rareTermAndShortFieldScoreHigher() {
+        int[] rare = matchInfo(1000, new int[]{4, 20}, new int[]{4, 20}, new int[]{0, 1}, 2);
+        int[] common = matchInfo(1000, new int[]{4, 20}, new int[]{4, 20}, new int[]{0, 1}, 900);
+        assertTrue(FeedSearchRanker.bm25(rare, WEIGHTS) > FeedSearchRanker.bm25(common, WEIGHTS));
+
+        int[] shortField = matchInfo(1000, new int[]{4, 20}, new int[]{4, 5}, new int[]{0, 1}, 10);
+        int[] longField = matchInfo(1000, new int[]{4, 20}, new int[]{4, 80}, new int[]{0, 1}, 10);
+        assertTrue(FeedSearchRanker.bm25(shortField, WEIGHTS) > FeedSearchRanker.bm25(longField, WEIGHTS));
+
+        // 几乎每行都有的词也不会得到负分
+        int[] everywhere = matchInfo(1000, new int[]{4, 20}, new int[]{4, 20}, new int[]{0, 1}, 1000);
+        assertTrue(FeedSearchRanker.bm25(everywhere, WEIGHTS) > 0);
+    }
+
+    // 构造单短语的 'pcnalx'：每列 x 为 本行命中、所有行命中、命中行数
+    private static int[] matchInfo(int docs, int[] avg, int[] length, int[] hits, int docsWithHits) {
+        int columns = avg.length;
+        int[] info = new int[3 + 2 * columns + 3 * columns];
+        info[0] = 1;
+        info[1] = columns;
+        info[2] = docs;
+        for (int c = 0; c < columns; c++) {
+            info[3 + c] = avg[c];
+            info[3 + columns + c] = length[c];
+            int base = 3 + 2 * columns + 3 * c;
+            info[base] = hits[c];
+            info[base + 1] = hits[c] > 0 ? docsWithHits : 0;
+            info[base + 2] = hits[c] > 0 ? docsWithHits : 0;
+        }
+        return info;
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.bytedancehomework;
+
+import com.example.bytedancehomework.data.PrimitiveMap.LongByteMap;
+import com.example.bytedancehomework.data.PrimitiveMap.LongLongMap;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * 原始类型哈希表：与 HashMap 对照的正确性、稳态零分配，以及简单的吞吐对比。
+ */
+public class LongByteMapTest {
+    private static final int VISIBLE = 50;
+    private static final int WARMUP_ROUNDS = 20_000;
+    private static final int MEASURE_ROUNDS = 200_000;
+
+    @Test
+    public void randomOperationsMatchHashMap() {
+        Random random = new Random(7);
+        LongByteMap map = new LongByteMap(4);
+        Map<Long, Byte> expected = new HashMap<>();
+
+        for (int i = 0; i < 200_000; i++) {
+            // 小范围键，频繁命中删除后补位的路径；包含 0 和负数
+            long key = random.nextInt(512) - 64;
+            switch (random.nextInt(3)) {
+                case 0:
+                    byte value = (byte) random.nextInt(4);
+                    map.put(key, value);
+                    expected.put(key, value);
+                    break;
+                case 1:
+                    Byte removed = expected.remove(key);
+                    assertEquals(removed != null ? removed : (byte) -1, map.remove(key, (byte) -1));
+                    break;
+                default:
+                    Byte stored = expected.get(key);
+                    assertEquals(stored != null ? stored : (byte) -1, map.get(key, (byte) -1));
+                    assertEquals(stored != null, map.containsKey(key));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+    }
+
+    @Test
+    public void longValuesSurviveGrowth() {
+        LongLongMap map = new LongLongMap(2);
+        for (long id = 1; id <= 10_000; id++) {
+            map.put(id << 2 | 3, id * 1000);
+        }
+        assertEquals(10_000, map.size());
+        for (long id = 1; id <= 10_000; id++) {
+            assertEquals(id * 1000, map.remove(id << 2 | 3, -1L));
+        }
+        assertTrue(map.isEmpty());
+        assertEquals(-1L, map.get(4L, -1L));
+    }
+
+    // 模拟滚动：可见窗口不断后移，新条目进入、旧条目移除，稳态下不应分配任何对象
+    @Test
+    public void scrollSimulation_allocatesNothing() {
+        com.sun.management.ThreadMXBean threads = allocationBean();
+        Assume.assumeTrue(threads != null);
+
+        LongByteMap stages = new LongByteMap();
+        LongLongMap enterTimes = new LongLongMap();
+        simulateScroll(stages, enterTimes, WARMUP_ROUNDS);
+
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        simulateScroll(stages, enterTimes, MEASURE_ROUNDS);
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        assertEquals(VISIBLE, stages.size());
+        // 允许测量本身的少量开销，但不能随操作次数增长
+        assertTrue("allocated " + allocated + " bytes", allocated < 1024);
+    }
+
+    @Test
+    public void benchmark_primitiveVsBoxed() {
+        LongByteMap primitive = new LongByteMap();
+        LongLongMap primitiveTimes = new LongLongMap();
+        Map<Long, Integer> boxed = new HashMap<>();
+        Map<Long, Long> boxedTimes = new HashMap<>();
+
+        simulateScroll(primitive, primitiveTimes, WARMUP_ROUNDS);
+        simulateScrollBoxed(boxed, boxedTimes, WARMUP_ROUNDS);
+
+        long start = System.nanoTime();
+        simulateScroll(primitive, primitiveTimes, MEASURE_ROUNDS);
+        double primitiveNs = (System.nanoTime() - start) / (double) MEASURE_ROUNDS;
+
+        start = System.nanoTime();
+        simulateScrollBoxed(boxed, boxedTimes, MEASURE_ROUNDS);
+        double boxedNs = (System.nanoTime() - start) / (double) MEASURE_ROUNDS;
+
+        System.out.println("exposure bookkeeping per round: LongByteMap=" + primitiveNs +
+                "ns, HashMap=" + boxedNs + "ns");
+        assertEquals(boxed.size(), primitive.size());
+    }
+
+    // ==================== 工具方法 ====================
+
+    // 每轮：窗口后移一位，新条目进入阶段 0，离开的条目删除，窗口内条目各读一次
+    private long round = 0;
+
+    private void simulateScroll(LongByteMap stages, LongLongMap enterTimes, int rounds) {
+        for (int i = 0; i < rounds; i++, round++) {
+            long entering = round + VISIBLE;
+            long leaving = round;
+            stages.put(entering, (byte) 0);
+            enterTimes.put(entering << 2, round);
+            stages.remove(leaving, (byte) -1);
+            enterTimes.remove(leaving << 2, -1L);
+            for (long id = leaving + 1; id <= entering; id += 7) {
+                stages.put(id, (byte) Math.min(3, stages.get(id, (byte) -1) + 1));
+            }
+        }
+    }
+
+    private long boxedRound = 0;
+
+    private void simulateScrollBoxed(Map<Long, Integer> stages, Map<Long, Long> enterTimes, int rounds) {
+        for (int i = 0; i < rounds; i++, boxedRound++) {
+            long entering = boxedRound + VISIBLE;
+            long leaving = boxedRound;
+            stages.put(entering, 0);
+            enterTimes.put(entering << 2, boxedRound);
+            stages.remove(leaving);
+            enterTimes.remove(leaving << 2);
+            for (long id = leaving + 1; id <= entering; id += 7) {
+                stages.put(id, Math.min(3, stages.getOrDefault(id, -1) + 1));
+            }
+        }
+    }
+
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        try {
+            java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (bean instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+                if (threads.isThreadAllocatedMemorySupported()) {
+                    threads.setThreadAllocatedMemoryEnabled(true);
+                    return threads;
+                }
+            }
+        } catch (LinkageError | UnsupportedOperationException ignored) {
+        }
+        return null;
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.bytedancehomework;
+
+import com.example.bytedancehomework.data.VideoCache.FileVideoSource;
+import com.example.bytedancehomework.data.VideoCache.VideoCacheProxy;
+import com.example.bytedancehomework.data.VideoCache.VideoSegmentCache;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * 视频分段缓存测试，用本地文件作为替身服务器。
+ */
+public class VideoSegmentCacheTest {
+    private static final String URL = "http://videos.example.com/clip.mp4";
+    private static final int SEGMENT_SIZE = 1024;
+    private static final int FILE_SIZE = SEGMENT_SIZE * 10 + 100;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private byte[] content;
+    private FileVideoSource source;
+    private File cacheDir;
+    private VideoCacheProxy proxy;
+
+    @Before
+    public void setUp() throws IOException {
+        content = new byte[FILE_SIZE];
+        new Random(42).nextBytes(content);
+
+        File serverRoot = folder.newFolder("server");
+        try (FileOutputStream out = new FileOutputStream(new File(serverRoot, "clip.mp4"))) {
+            out.write(content);
+        }
+        source = new FileVideoSource(serverRoot);
+        cacheDir = folder.newFolder("cache");
+    }
+
+    @After
+    public void tearDown() {
+        if (proxy != null) proxy.stop();
+    }
+
+    @Test
+    public void readRange_secondReadServedFromCache() throws IOException {
+        VideoSegmentCache cache = new VideoSegmentCache(cacheDir, source, FILE_SIZE * 2L, SEGMENT_SIZE);
+
+        assertArrayEquals(slice(1500, 3000), read(cache, 1500, 3000));
+        int opens = source.getOpenCount();
+        assertEquals(0f, cache.getHitRate(), 0f);
+
+        assertArrayEquals(slice(1500, 3000), read(cache, 1500, 3000));
+        assertEquals(opens, source.getOpenCount());
+        assertEquals(0.5f, cache.getHitRate(), 0.001f);
+    }
+
+    @Test
+    public void readRange_lastPartialSegment() throws IOException {
+        VideoSegmentCache cache = new VideoSegmentCache(cacheDir, source, FILE_SIZE * 2L, SEGMENT_SIZE);
+        assertArrayEquals(slice(FILE_SIZE - 150, 1000), read(cache, FILE_SIZE - 150, 1000));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedOverBudget() throws IOException {
+        VideoSegmentCache cache = new VideoSegmentCache(cacheDir, source, SEGMENT_SIZE * 3L, SEGMENT_SIZE);
+
+        read(cache, 0, SEGMENT_SIZE * 5);
+        assertTrue(cache.getTotalBytes() <= SEGMENT_SIZE * 3L);
+        assertFalse(cache.isCached(URL, 0));
+        assertTrue(cache.isCached(URL, 4));
+    }
+
+    @Test
+    public void indexSurvivesRestart() throws IOException {
+        VideoSegmentCache cache = new VideoSegmentCache(cacheDir, source, FILE_SIZE * 2L, SEGMENT_SIZE);
+        read(cache, 0, SEGMENT_SIZE * 2);
+
+        VideoSegmentCache reopened = new VideoSegmentCache(cacheDir, source, FILE_SIZE * 2L, SEGMENT_SIZE);
+        int opens = source.getOpenCount();
+        assertArrayEquals(slice(0, SEGMENT_SIZE * 2), read(reopened, 0, SEGMENT_SIZE * 2));
+        assertEquals(opens, source.getOpenCount());
+        assertEquals(1f, reopened.getHitRate(), 0f);
+    }
+
+    @Test
+    public void prefetch_cachesLeadingSeconds() throws IOException {
+        VideoSegmentCache cache = new VideoSegmentCache(cacheDir, source, FILE_SIZE * 2L, SEGMENT_SIZE);
+
+        // 10 秒的视频预取 3 秒，约为前 30% 的字节
+        cache.prefetch(URL, 3, 10_000);
+        assertTrue(cache.isCached(URL, 0));
+        assertTrue(cache.isCached(URL, 2));
+        assertFalse(cache.isCached(URL, 5));
+    }
+
+    @Test
+    public void proxy_servesRangeRequests() throws IOException {
+        VideoSegmentCache cache = new VideoSegmentCache(cacheDir, source, FILE_SIZE * 2L, SEGMENT_SIZE);
+        proxy = new VideoCacheProxy(cache);
+        proxy.start();
+
+        HttpURLConnection connection = (HttpURLConnection) new URL(proxy.proxyUrl(URL)).openConnection();
+        connection.setRequestProperty("Range", "bytes=2000-4999");
+        assertEquals(206, connection.getResponseCode());
+        assertEquals("bytes 2000-4999/" + FILE_SIZE, connection.getHeaderField("Content-Range"));
+        assertArrayEquals(slice(2000, 3000), readAll(connection.getInputStream()));
+        connection.disconnect();
+
+        connection = (HttpURLConnection) new URL(proxy.proxyUrl(URL)).openConnection();
+        assertEquals(200, connection.getResponseCode());
+        assertArrayEquals(content, readAll(connection.getInputStream()));
+        connection.disconnect();
+
+        assertTrue(cache.getHitRate() > 0f);
+    }
+
+    @Test
+    public void proxy_leavesNonHttpUrlsUnchanged() throws IOException {
+        VideoSegmentCache cache = new VideoSegmentCache(cacheDir, source, FILE_SIZE * 2L, SEGMENT_SIZE);
+        proxy = new VideoCacheProxy(cache);
+        proxy.start();
+
+        String[] localUrls = {
+                "android.resource://com.example.bytedancehomework/raw/sample",
+                "file:///sdcard/Movies/clip.mp4",
+                "content://media/external/video/media/1",
+        };
+        for (String url : localUrls) {
+            assertEquals(url, proxy.proxyUrl(url));
+        }
+        assertTrue(proxy.proxyUrl(URL).startsWith("http://127.0.0.1:" + proxy.getPort() + "/"));
+        assertTrue(proxy.proxyUrl("HTTPS://videos.example.com/clip.mp4").startsWith("http://127.0.0.1:"));
+    }
+
+    // ==================== 工具方法 ====================
+
+    private byte[] read(VideoSegmentCache cache, long start, long length) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        cache.readRange(URL, start, length, out);
+        return out.toByteArray();
+    }
+
+    private byte[] slice(int start, int length) {
+        return Arrays.copyOfRange(content, start, Math.min(start + length, content.length));
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        try (InputStream input = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int n;
+            while ((n = input.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        }
+    }
+}